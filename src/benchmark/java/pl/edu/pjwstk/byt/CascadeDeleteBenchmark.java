@@ -0,0 +1,52 @@
+package pl.edu.pjwstk.byt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds a large order history and measures cascade deletes: an erasure batch of customers
+ * with Customer.deleteAll, and single Customer.delete calls for comparison.
+ * Run with: gradle benchmarkClasses && java -Xmx2g -cp build/classes/java/main:build/classes/java/benchmark pl.edu.pjwstk.byt.CascadeDeleteBenchmark [orders] [ordersPerCustomer]
+ */
+public class CascadeDeleteBenchmark {
+
+    public static void main(String[] args) {
+        int orderCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int ordersPerCustomer = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int customerCount = Math.max(1, orderCount / ordersPerCustomer);
+
+        var product = new Product("Product", "Benchmark product", 1.0, 1, List.of("image.jpg"));
+        List<Customer> customers = new ArrayList<>(customerCount);
+        for (int i = 0; i < customerCount; i++) {
+            customers.add(new Customer("Customer " + i, "customer" + i + "@test.com"));
+        }
+        long start = System.nanoTime();
+        var batch = new OrderBatch(orderCount);
+        for (int i = 0; i < orderCount; i++) {
+            batch.add(customers.get(i % customerCount), product.getId(), 1).endOrder();
+        }
+        Order.createAll(batch);
+        System.out.println("=== Cascade delete benchmark (" + orderCount + " orders, "
+                + customerCount + " customers) ===");
+        System.out.printf("create:                       %8d ms%n", (System.nanoTime() - start) / 1_000_000);
+
+        // erasure batch: half of the customers, with half of the orders
+        List<Customer> erased = new ArrayList<>(customers.subList(0, customerCount / 2));
+        start = System.nanoTime();
+        Customer.deleteAll(erased);
+        System.out.printf("deleteAll %7d customers:  %8d ms%n", erased.size(), (System.nanoTime() - start) / 1_000_000);
+
+        // single deletes, every call does its own pass over the extents
+        int singles = Math.min(10, customerCount - erased.size());
+        start = System.nanoTime();
+        for (Customer customer : customers.subList(erased.size(), erased.size() + singles)) {
+            customer.delete();
+        }
+        System.out.printf("delete    %7d customers:  %8d ms%n", singles, (System.nanoTime() - start) / 1_000_000);
+
+        int expected = orderCount - (erased.size() + singles) * ordersPerCustomer;
+        if (Order.getExtent().size() != expected || OrderItem.getExtent().size() != expected) {
+            throw new IllegalStateException("Extents do not add up");
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package pl.edu.pjwstk.byt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Drives many concurrent customer sessions through the CheckoutService and reports the
+ * session latency percentiles. Every session fills a cart with a few products and checks out.
+ * Run with: gradle benchmarkClasses && java -cp build/classes/java/main:build/classes/java/benchmark pl.edu.pjwstk.byt.CheckoutLoadSimulation [sessions]
+ */
+public class CheckoutLoadSimulation {
+
+    private static final int PRODUCTS = 100;
+
+    public static void main(String[] args) throws Exception {
+        int sessionCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+
+        List<Product> products = new ArrayList<>(PRODUCTS);
+        for (int i = 0; i < PRODUCTS; i++) {
+            products.add(new Product("Product " + i, "Simulated product", 1.0 + i, sessionCount * 10, List.of("image.jpg")));
+        }
+        long stockBefore = Product.getTotalStock();
+
+        long[] latencies = new long[sessionCount];
+        List<Future<Integer>> results = new ArrayList<>(sessionCount);
+        var start = new CountDownLatch(1);
+        long wallStart;
+        long ordered = 0;
+        try (var service = new CheckoutService()) {
+            System.out.println("=== Checkout load simulation (" + sessionCount + " sessions, "
+                    + (service.usesVirtualThreads() ? "virtual threads" : "platform thread pool") + ") ===");
+            for (int s = 0; s < sessionCount; s++) {
+                int session = s;
+                results.add(service.startSession(() -> {
+                    start.await();
+                    long began = System.nanoTime();
+                    var random = ThreadLocalRandom.current();
+                    String key = "session-" + session;
+                    for (int i = random.nextInt(1, 4); i > 0; i--) {
+                        service.addToCart(key, products.get(random.nextInt(PRODUCTS)), random.nextInt(1, 4));
+                    }
+                    int units = service.getCart(key).getItemCount();
+                    service.checkout(key, new Customer("Customer " + session, "customer" + session + "@test.com"));
+                    latencies[session] = System.nanoTime() - began;
+                    return units;
+                }));
+            }
+            wallStart = System.nanoTime();
+            start.countDown();
+            for (Future<Integer> result : results) {
+                ordered += result.get();
+            }
+        }
+        long wallMillis = (System.nanoTime() - wallStart) / 1_000_000;
+
+        if (Product.getTotalStock() != stockBefore - ordered) {
+            throw new IllegalStateException("Stock does not add up");
+        }
+        Arrays.sort(latencies);
+        System.out.printf("sessions/s: %d%n", sessionCount * 1000L / Math.max(1, wallMillis));
+        System.out.printf("p50: %.2f ms  p90: %.2f ms  p99: %.2f ms  max: %.2f ms%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+                latencies[latencies.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,75 @@
+package pl.edu.pjwstk.byt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compares stock decrement throughput of a single counter with the striped flash-sale mode
+ * for a growing number of threads that all buy the same product.
+ * Run with: gradle benchmarkClasses && java -cp build/classes/java/main:build/classes/java/benchmark pl.edu.pjwstk.byt.FlashSaleBenchmark [millisPerRun]
+ */
+public class FlashSaleBenchmark {
+
+    private static final int STOCK = Integer.MAX_VALUE / 2;
+
+    public static void main(String[] args) throws InterruptedException {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 1_000;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        System.out.println("=== Flash sale stock benchmark (" + cores + " cores, " + millis + " ms per run) ===");
+        System.out.printf("%8s %20s %20s%n", "threads", "single ops/s", "striped ops/s");
+        for (int threads = 1; threads <= cores * 2; threads *= 2) {
+            // warm up both paths once before measuring
+            if (threads == 1) {
+                run(false, 1, millis / 4);
+                run(true, 1, millis / 4);
+            }
+            long single = run(false, threads, millis);
+            long striped = run(true, threads, millis);
+            System.out.printf("%8d %20d %20d%n", threads, single * 1000 / millis, striped * 1000 / millis);
+        }
+    }
+
+    private static long run(boolean flashSale, int threads, long millis) throws InterruptedException {
+        var product = new Product("Flash sale item", "Benchmark product", 1.0, STOCK, List.of("item.jpg"));
+        if (flashSale) {
+            product.startFlashSale();
+        }
+        var operations = new LongAdder();
+        var start = new CountDownLatch(1);
+        var deadline = new long[1];
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            var worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long count = 0;
+                while (System.nanoTime() < deadline[0]) {
+                    product.updateStock(-1);
+                    count++;
+                }
+                operations.add(count);
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        deadline[0] = System.nanoTime() + millis * 1_000_000;
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        if (flashSale) {
+            product.endFlashSale();
+        }
+        if (product.getStockQuantity() != STOCK - operations.sum()) {
+            throw new IllegalStateException("Stock does not add up");
+        }
+        return operations.sum();
+    }
+}
@@ -0,0 +1,110 @@
+package pl.edu.pjwstk.byt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Times the SalesAnalytics group-by queries in two setups:
+ * end to end, projecting real Order/OrderItem objects from a domain snapshot and then querying;
+ * and columns only, over generated order lines appended to the columns directly, because that
+ * many lines do not fit into the heap as domain objects. The second setup excludes projection.
+ * Run with: gradle benchmarkClasses && java -Xmx4g -cp build/classes/java/main:build/classes/java/benchmark pl.edu.pjwstk.byt.SalesAnalyticsBenchmark [lines] [domainOrders]
+ */
+public class SalesAnalyticsBenchmark {
+
+    private static final int PRODUCTS = 10_000;
+    private static final int CATEGORIES = 50;
+    private static final int CUSTOMERS = 10_000;
+    private static final int DAYS = 365;
+    private static final long FIRST_DAY = 19_723; // 2024-01-01
+
+    public static void main(String[] args) {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 50_000_000;
+        int domainOrders = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+
+        List<Category> categories = new ArrayList<>(CATEGORIES);
+        for (int i = 0; i < CATEGORIES; i++) {
+            categories.add(new Category("Category " + i, "Generated category", null));
+        }
+        List<Product> products = new ArrayList<>(PRODUCTS);
+        for (int i = 0; i < PRODUCTS; i++) {
+            var product = new Product("Product " + i, "Generated product", 1.0 + i % 500, 1, List.of("image.jpg"));
+            categories.get(i % CATEGORIES).addProduct(product);
+            products.add(product);
+        }
+
+        endToEnd(products, domainOrders);
+        columnsOnly(products, lines);
+    }
+
+    private static void endToEnd(List<Product> products, int orderCount) {
+        List<Customer> customers = new ArrayList<>(CUSTOMERS);
+        for (int i = 0; i < CUSTOMERS; i++) {
+            customers.add(new Customer("Customer " + i, "customer" + i + "@test.com"));
+        }
+        var random = new SplittableRandom(7);
+        var batch = new OrderBatch(orderCount * 2);
+        for (int i = 0; i < orderCount; i++) {
+            Customer customer = customers.get(random.nextInt(CUSTOMERS));
+            for (int line = 1 + random.nextInt(3); line > 0; line--) {
+                batch.add(customer, products.get(random.nextInt(PRODUCTS)).getId(), 1 + random.nextInt(5));
+            }
+            batch.endOrder();
+        }
+        long createStart = System.nanoTime();
+        Order.createAll(batch);
+        System.out.printf("=== End to end (%,d orders, %,d order lines, created in %d ms, %d cores) ===%n",
+                orderCount, batch.getLineCount(), (System.nanoTime() - createStart) / 1_000_000,
+                Runtime.getRuntime().availableProcessors());
+
+        for (int run = 0; run < 3; run++) {
+            long start = System.nanoTime();
+            var analytics = SalesAnalytics.ofCurrentOrders(Money.DEFAULT_CURRENCY);
+            long projected = System.nanoTime();
+            long queried = query(analytics);
+            System.out.printf("run %d: projection %d ms, queries %d ms, total %d ms%n", run,
+                    (projected - start) / 1_000_000, (queried - projected) / 1_000_000, (queried - start) / 1_000_000);
+        }
+    }
+
+    private static void columnsOnly(List<Product> products, int lines) {
+        var builder = new SalesColumns.Builder(Money.DEFAULT_CURRENCY, lines);
+        int[] productCategory = new int[PRODUCTS];
+        long[] productPrice = new long[PRODUCTS];
+        for (int i = 0; i < PRODUCTS; i++) {
+            Product product = products.get(i);
+            builder.productSlot(product);
+            productCategory[i] = builder.categorySlot(product.getCategory());
+            productPrice[i] = product.getPriceMinor();
+        }
+        OrderStatus[] statuses = OrderStatus.values();
+        var random = new SplittableRandom(42);
+        long generateStart = System.nanoTime();
+        for (int i = 0; i < lines; i++) {
+            int product = random.nextInt(PRODUCTS);
+            long timestamp = (FIRST_DAY + random.nextInt(DAYS)) * 86_400 + random.nextInt(86_400);
+            builder.add(timestamp, statuses[random.nextInt(statuses.length)], product,
+                    productCategory[product], 1 + random.nextInt(5), productPrice[product]);
+        }
+        var analytics = new SalesAnalytics(builder.build());
+        System.out.printf("=== Columns only, projection excluded (%,d order lines, generated in %d ms) ===%n",
+                lines, (System.nanoTime() - generateStart) / 1_000_000);
+
+        for (int run = 0; run < 3; run++) {
+            long start = System.nanoTime();
+            long queried = query(analytics);
+            System.out.printf("run %d: queries %d ms%n", run, (queried - start) / 1_000_000);
+        }
+    }
+
+    // Runs the three group-by queries and returns the time they finished.
+    private static long query(SalesAnalytics analytics) {
+        int groups = analytics.revenueByCategory().size() + analytics.revenueByDay().size()
+                + analytics.revenueByStatus().size();
+        if (groups == 0) {
+            throw new IllegalStateException("No groups");
+        }
+        return System.nanoTime();
+    }
+}
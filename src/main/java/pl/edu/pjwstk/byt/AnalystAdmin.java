@@ -1,16 +1,23 @@
 package pl.edu.pjwstk.byt;
 
-import java.util.ArrayList;
+import java.util.Currency;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class AnalystAdmin extends Admin implements Idataanalyst {
-    int reportsGenerated;
-    List<Report> reportList;
+    // a sales report changes with orders, their items, product prices and categories
+    static final Set<DomainExtent> SALES_SOURCES =
+            EnumSet.of(DomainExtent.ORDER, DomainExtent.ORDER_ITEM, DomainExtent.PRODUCT, DomainExtent.CATEGORY);
+
+    // reports of background jobs are added from scheduler threads
+    final AtomicInteger reportsGenerated = new AtomicInteger();
+    final List<Report> reportList = new CopyOnWriteArrayList<>();
 
     protected AnalystAdmin(String username, String email) {
         super(username, email);
-        reportsGenerated = 0;
-        reportList = new ArrayList<Report>();
     }
 
     public List<Report> getReportList() {
@@ -19,16 +26,16 @@ public class AnalystAdmin extends Admin implements Idataanalyst {
 
     public void addtoReportList(Report report) {
         this.reportList.add(report);
-        reportsGenerated++;
+        reportsGenerated.incrementAndGet();
     }
 
     public void delfromReportList(Report report) {
         this.reportList.remove(report);
-        reportsGenerated--;
+        reportsGenerated.decrementAndGet();
     }
 
     public int getReportsGenerated() {
-        return reportsGenerated;
+        return reportsGenerated.get();
     }
 
     public void generateReport(String content) {
@@ -38,11 +45,37 @@ public class AnalystAdmin extends Admin implements Idataanalyst {
         System.out.println("Report generated: " + content);
     }
 
+    // Revenue by category and by order status, in the default currency.
     public void analyzeSales() {
-        System.out.println("Analyzing sales data...");
+        System.out.print(ReportCache.shared().get("sales-analysis", SALES_SOURCES, AnalystAdmin::salesAnalysis));
     }
 
+    // Order lines, total revenue and revenue per day, in the default currency.
     public void viewStatistics() {
-        System.out.println("Viewing statistics...");
+        System.out.print(ReportCache.shared().get("sales-statistics", SALES_SOURCES, AnalystAdmin::salesStatistics));
+    }
+
+    private static String salesAnalysis() {
+        var analytics = SalesAnalytics.ofCurrentOrders(Money.DEFAULT_CURRENCY);
+        Currency currency = analytics.getColumns().getCurrency();
+        var text = new StringBuilder("Sales by category:\n");
+        analytics.revenueByCategory().forEach((category, revenue) -> text.append("  ")
+                .append(category == null ? "(no category)" : category.getName())
+                .append(": ").append(Money.ofMinor(revenue, currency)).append('\n'));
+        text.append("Sales by status:\n");
+        analytics.revenueByStatus().forEach((status, revenue) ->
+                text.append("  ").append(status).append(": ").append(Money.ofMinor(revenue, currency)).append('\n'));
+        return text.toString();
+    }
+
+    private static String salesStatistics() {
+        var analytics = SalesAnalytics.ofCurrentOrders(Money.DEFAULT_CURRENCY);
+        Currency currency = analytics.getColumns().getCurrency();
+        var text = new StringBuilder();
+        text.append("Order lines: ").append(analytics.getColumns().size()).append('\n');
+        text.append("Revenue: ").append(Money.ofMinor(analytics.getTotalRevenueMinor(), currency)).append('\n');
+        analytics.revenueByDay().forEach((day, revenue) ->
+                text.append("  ").append(day).append(": ").append(Money.ofMinor(revenue, currency)).append('\n'));
+        return text.toString();
     }
 }
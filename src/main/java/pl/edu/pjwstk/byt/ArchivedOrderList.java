@@ -0,0 +1,48 @@
+package pl.edu.pjwstk.byt;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Order list of a customer with archived orders: the archived ones are fetched from the
+ * OrderArchive on first access, one page of records at a time; the orders in memory follow.
+ */
+class ArchivedOrderList extends AbstractList<Order> {
+
+    static final int PAGE_SIZE = 64;
+
+    private final OrderArchive archive;
+    private final Customer customer;
+    private final long[] references;
+    private final List<Order> hot;
+    private int pageStart = -1;
+    private List<Order> page;
+
+    ArchivedOrderList(OrderArchive archive, Customer customer, long[] references, List<Order> hot) {
+        this.archive = archive;
+        this.customer = customer;
+        this.references = references;
+        this.hot = hot;
+    }
+
+    @Override
+    public Order get(int index) {
+        if (index >= references.length) {
+            return hot.get(index - references.length);
+        }
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        int start = index - index % PAGE_SIZE;
+        if (start != pageStart) {
+            page = archive.fetch(customer, references, start, Math.min(references.length, start + PAGE_SIZE));
+            pageStart = start;
+        }
+        return page.get(index - start);
+    }
+
+    @Override
+    public int size() {
+        return references.length + hot.size();
+    }
+}
@@ -2,13 +2,18 @@ package pl.edu.pjwstk.byt;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
+import pl.edu.pjwstk.byt.extent.Extent;
+import pl.edu.pjwstk.byt.extent.SerializationCodec;
+
 public class CartItem implements Serializable {
 
     private static final long serialVersionUID = 1L;
     private static final String EXTENT_FILE = "CartItem_extent.ser";
-    private static List<CartItem> extent = new ArrayList<>();
+    private static final Extent<CartItem> extent =
+            new Extent<>(EXTENT_FILE, new CartItemStore(), new SerializationCodec<>());
 
     private final Product product;
 
@@ -16,6 +21,8 @@ public class CartItem implements Serializable {
 
     private int quantity;
 
+    private transient int slot = -1; // position in the extent store
+
     public CartItem(int quantity, Product product, ShoppingCart cart) {
         if (cart == null) {
             throw new IllegalArgumentException("Cart item must be instantiated with a shopping cart");
@@ -31,7 +38,11 @@ public class CartItem implements Serializable {
     }
 
     public void updateQuantity(int quantity) {
+        int oldQuantity = this.quantity;
         this.quantity = quantity;
+        if (cart != null) {
+            cart.itemQuantityChangedInternal(this, oldQuantity);
+        }
     }
 
     public int getQuantity() {
@@ -50,20 +61,51 @@ public class CartItem implements Serializable {
         this.cart = cart;
     }
 
+    // Lifecycle: called by the owning cart when the item is removed from it
+    protected void dispose() {
+        extent.remove(this);
+        cart = null;
+    }
+
+    // Same as dispose() for many items; every item is found by its slot, the rest of the extent is not scanned
+    protected static void disposeAll(Collection<CartItem> cartItems) {
+        if (cartItems.isEmpty()) {
+            return;
+        }
+        extent.removeAll(cartItems);
+        for (CartItem cartItem : cartItems) {
+            cartItem.cart = null;
+        }
+    }
+
+    int getSlot() {
+        return slot;
+    }
+
+    void setSlot(int slot) {
+        this.slot = slot;
+    }
+
+    // Leak check: items in the extent that are not reachable from any shopping cart
+    public static int getOrphanCount() {
+        int orphans = 0;
+        for (CartItem cartItem : extent.snapshot()) {
+            if (cartItem.cart == null || !cartItem.cart.containsItem(cartItem)) {
+                orphans++;
+            }
+        }
+        return orphans;
+    }
+
     public static List<CartItem> getExtent() {
-        return new ArrayList<>(extent);
+        return extent.snapshot();
     }
 
     public static void saveExtent() throws IOException {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(EXTENT_FILE))) {
-            oos.writeObject(extent);
-        }
+        extent.save();
     }
 
-    @SuppressWarnings("unchecked")
     public static void loadExtent() throws IOException, ClassNotFoundException {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(EXTENT_FILE))) {
-            extent = (List<CartItem>) ois.readObject();
-        }
+        extent.load();
     }
 }
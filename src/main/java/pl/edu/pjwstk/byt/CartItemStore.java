@@ -0,0 +1,252 @@
+package pl.edu.pjwstk.byt;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+import pl.edu.pjwstk.byt.extent.ReplaceableStorage;
+
+/**
+ * Storage backend of the CartItem extent.
+ * Every cart item knows its slot (its position in the list), so removing one is O(1): the last
+ * item moves into the freed slot. The extent is not kept in creation order.
+ * Guarded by a read-write lock like LockedList, so carts of different sessions can share it.
+ */
+class CartItemStore extends AbstractList<CartItem> implements RandomAccess, ReplaceableStorage<CartItem> {
+
+    private final List<CartItem> items = new ArrayList<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Override
+    public CartItem get(int index) {
+        lock.readLock().lock();
+        try {
+            return items.get(index);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return items.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof CartItem item)) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return isStored(item);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Object[] toArray() {
+        lock.readLock().lock();
+        try {
+            return items.toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public <E> E[] toArray(E[] a) {
+        lock.readLock().lock();
+        try {
+            return items.toArray(a);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public CartItem set(int index, CartItem item) {
+        if (item == null) {
+            throw new IllegalArgumentException("Cart item cannot be null");
+        }
+        lock.writeLock().lock();
+        try {
+            CartItem previous = items.set(index, item);
+            previous.setSlot(-1);
+            item.setSlot(index);
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // AbstractList would read the size and insert in two steps
+    @Override
+    public boolean add(CartItem item) {
+        if (item == null) {
+            throw new IllegalArgumentException("Cart item cannot be null");
+        }
+        lock.writeLock().lock();
+        try {
+            item.setSlot(items.size());
+            items.add(item);
+            modCount++;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void add(int index, CartItem item) {
+        if (item == null) {
+            throw new IllegalArgumentException("Cart item cannot be null");
+        }
+        lock.writeLock().lock();
+        try {
+            items.add(index, item);
+            reassignSlots(index);
+            modCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends CartItem> c) {
+        lock.writeLock().lock();
+        try {
+            int from = items.size();
+            items.addAll(c);
+            reassignSlots(from);
+            modCount++;
+            return !c.isEmpty();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public CartItem remove(int index) {
+        lock.writeLock().lock();
+        try {
+            CartItem item = items.get(index);
+            removeAt(index);
+            return item;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof CartItem item)) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!isStored(item)) {
+                return false;
+            }
+            removeAt(item.getSlot());
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // O(c.size()), the items are looked up by their slots.
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        lock.writeLock().lock();
+        try {
+            boolean changed = false;
+            for (Object o : c) {
+                if (o instanceof CartItem item && isStored(item)) {
+                    removeAt(item.getSlot());
+                    changed = true;
+                }
+            }
+            return changed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super CartItem> filter) {
+        lock.writeLock().lock();
+        try {
+            List<CartItem> removed = new ArrayList<>();
+            boolean changed = items.removeIf(item -> filter.test(item) && removed.add(item));
+            if (changed) {
+                removed.forEach(item -> item.setSlot(-1));
+                reassignSlots(0);
+                modCount++;
+            }
+            return changed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void replaceContents(Collection<? extends CartItem> elements) {
+        lock.writeLock().lock();
+        try {
+            items.forEach(item -> item.setSlot(-1));
+            items.clear();
+            items.addAll(elements);
+            reassignSlots(0);
+            modCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            items.forEach(item -> item.setSlot(-1));
+            items.clear();
+            modCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // the slot field of a loaded item is 0, so it is checked against the list
+    private boolean isStored(CartItem item) {
+        int slot = item.getSlot();
+        return slot >= 0 && slot < items.size() && items.get(slot) == item;
+    }
+
+    private void removeAt(int index) {
+        CartItem removed = items.get(index);
+        CartItem last = items.remove(items.size() - 1);
+        if (last != removed) {
+            items.set(index, last);
+            last.setSlot(index);
+        }
+        removed.setSlot(-1);
+        modCount++;
+    }
+
+    private void reassignSlots(int from) {
+        for (int i = from; i < items.size(); i++) {
+            items.get(i).setSlot(i);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package pl.edu.pjwstk.byt;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import pl.edu.pjwstk.byt.utils.TimingWheel;
+
+/**
+ * Registry of shopping carts keyed by user or session id.
+ * Keys are spread over independently locked shards, so sessions in different shards never
+ * contend. Every shard keeps a timing wheel of idle deadlines; {@link #expireIdle()} evicts
+ * carts that were neither accessed nor updated for longer than the TTL, removes them from the extents and
+ * optionally spills them to disk first.
+ */
+public class CartRegistry {
+
+    private static final class Entry {
+        private final ShoppingCart cart;
+        private final TimingWheel.Timer<String> timer;
+        private long lastAccessed; // registry clock millis of the last get/getOrCreate
+
+        private Entry(ShoppingCart cart, TimingWheel.Timer<String> timer, long lastAccessed) {
+            this.cart = cart;
+            this.timer = timer;
+            this.lastAccessed = lastAccessed;
+        }
+    }
+
+    private static final class Shard {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Map<String, Entry> carts = new HashMap<>();
+        private final TimingWheel<String> wheel;
+
+        private Shard(TimingWheel<String> wheel) {
+            this.wheel = wheel;
+        }
+    }
+
+    private final Shard[] shards;
+    private final long ttlMillis;
+    private final Clock clock;
+    private final Path spillDirectory; // optional
+
+    public CartRegistry(int shardCount, Duration ttl) {
+        this(shardCount, ttl, Duration.ofSeconds(1), Clock.systemDefaultZone(), null);
+    }
+
+    public CartRegistry(int shardCount, Duration ttl, Duration tick, Clock clock, Path spillDirectory) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("TTL must be positive");
+        }
+        if (tick == null || tick.isNegative() || tick.isZero()) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock cannot be null");
+        }
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+        this.spillDirectory = spillDirectory;
+        this.shards = new Shard[shardCount];
+        long now = clock.millis();
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(new TimingWheel<>(tick.toMillis(), 64, now));
+        }
+    }
+
+    public ShoppingCart getOrCreate(String key) {
+        Shard shard = shardFor(key);
+        shard.lock.lock();
+        try {
+            Entry entry = shard.carts.get(key);
+            long now = clock.millis();
+            if (entry == null) {
+                var timer = shard.wheel.schedule(key, now + ttlMillis);
+                entry = new Entry(new ShoppingCart(clock), timer, now);
+                shard.carts.put(key, entry);
+            }
+            entry.lastAccessed = now;
+            return entry.cart;
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    public ShoppingCart get(String key) {
+        Shard shard = shardFor(key);
+        shard.lock.lock();
+        try {
+            Entry entry = shard.carts.get(key);
+            if (entry == null) {
+                return null;
+            }
+            entry.lastAccessed = clock.millis();
+            return entry.cart;
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    // Removes the cart from the registry and the extents; returns false if there was none.
+    public boolean remove(String key) {
+        Shard shard = shardFor(key);
+        Entry entry;
+        shard.lock.lock();
+        try {
+            entry = shard.carts.remove(key);
+            if (entry != null) {
+                shard.wheel.cancel(entry.timer);
+            }
+        } finally {
+            shard.lock.unlock();
+        }
+        if (entry == null) {
+            return false;
+        }
+        entry.cart.delete();
+        return true;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                size += shard.carts.size();
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Evicts every cart idle for longer than the TTL and returns how many were evicted.
+     * Meant to be called periodically, e.g. from a scheduled executor.
+     * If spilling fails, the carts that were not written yet stay registered and the error is rethrown.
+     */
+    public int expireIdle() throws IOException {
+        long now = clock.millis();
+        List<Entry> expired = new ArrayList<>();
+        List<String> expiredKeys = new ArrayList<>();
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                shard.wheel.advance(now, key -> {
+                    Entry entry = shard.carts.get(key);
+                    long deadline = idleDeadline(entry);
+                    if (deadline > now) {
+                        // updated since it was scheduled, wait for the new deadline
+                        shard.wheel.reschedule(entry.timer, deadline);
+                    } else {
+                        shard.carts.remove(key);
+                        expired.add(entry);
+                        expiredKeys.add(key);
+                    }
+                });
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        int spilled = 0;
+        try {
+            if (spillDirectory != null) {
+                for (; spilled < expired.size(); spilled++) {
+                    spill(expiredKeys.get(spilled), expired.get(spilled).cart);
+                }
+            } else {
+                spilled = expired.size();
+            }
+        } finally {
+            List<ShoppingCart> evicted = new ArrayList<>(spilled);
+            for (int i = 0; i < spilled; i++) {
+                evicted.add(expired.get(i).cart);
+            }
+            ShoppingCart.deleteAll(evicted);
+            for (int i = spilled; i < expired.size(); i++) {
+                restore(expiredKeys.get(i), expired.get(i), now);
+            }
+        }
+        return expired.size();
+    }
+
+    // Puts back a cart whose spill failed; it is retried one TTL later unless the key was reused meanwhile.
+    private void restore(String key, Entry entry, long now) {
+        Shard shard = shardFor(key);
+        shard.lock.lock();
+        try {
+            if (!shard.carts.containsKey(key)) {
+                var timer = shard.wheel.schedule(key, now + ttlMillis);
+                shard.carts.put(key, new Entry(entry.cart, timer, entry.lastAccessed));
+            }
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    public static Path spillFile(Path spillDirectory, String key) {
+        String name = Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+        return spillDirectory.resolve(name + ".ser");
+    }
+
+    private void spill(String key, ShoppingCart cart) throws IOException {
+        Files.createDirectories(spillDirectory);
+        try (OutputStream out = Files.newOutputStream(spillFile(spillDirectory, key));
+             ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            oos.writeObject(cart);
+        }
+    }
+
+    // a cart is active while it is either accessed through the registry or updated
+    private long idleDeadline(Entry entry) {
+        // carts are stamped from the registry clock, so its zone turns the stamp back into clock millis
+        LocalDateTime lastUpdated = entry.cart.getLastUpdated();
+        long updatedMillis = lastUpdated.atZone(clock.getZone()).toInstant().toEpochMilli();
+        return Math.max(updatedMillis, entry.lastAccessed) + ttlMillis;
+    }
+
+    private Shard shardFor(String key) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null");
+        }
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return shards[Math.floorMod(h, shards.length)];
+    }
+}
@@ -4,13 +4,15 @@ import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
 
+import pl.edu.pjwstk.byt.extent.Extent;
+
 import static pl.edu.pjwstk.byt.utils.StringUtils.isNullOrBlank;
 
 public class Category implements Serializable {
 
     private static final long serialVersionUID = 1L;
     private static final String EXTENT_FILE = "Category_extent.ser";
-    private static List<Category> extent = new ArrayList<>();
+    private static final Extent<Category> extent = Extent.onHeap(EXTENT_FILE);
 
     private String name;
 
@@ -99,6 +101,7 @@ public class Category implements Serializable {
             throw new IllegalArgumentException("Name cannot be null or empty");
         }
         this.name = name;
+        extent.touch();
     }
 
     public String getDescription() {
@@ -110,6 +113,7 @@ public class Category implements Serializable {
             throw new IllegalArgumentException("Description cannot be null or empty");
         }
         this.description = description;
+        extent.touch();
     }
 
     public Category getParentCategory() {
@@ -129,20 +133,19 @@ public class Category implements Serializable {
         return subCategories;
     }
 
+    static Extent<Category> liveExtent() {
+        return extent;
+    }
+
     public static List<Category> getExtent() {
-        return new ArrayList<>(extent);
+        return extent.snapshot();
     }
 
     public static void saveExtent() throws IOException {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(EXTENT_FILE))) {
-            oos.writeObject(extent);
-        }
+        extent.save();
     }
 
-    @SuppressWarnings("unchecked")
     public static void loadExtent() throws IOException, ClassNotFoundException {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(EXTENT_FILE))) {
-            extent = (List<Category>) ois.readObject();
-        }
+        extent.load();
     }
 }
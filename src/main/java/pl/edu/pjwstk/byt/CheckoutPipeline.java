@@ -0,0 +1,250 @@
+package pl.edu.pjwstk.byt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Turns shopping carts into orders in batches.
+ * Checkouts are queued into bounded per-worker queues (submit blocks when a queue is full).
+ * Every worker drains up to {@code batchSize} checkouts at a time, reserves their stock, builds
+ * the Order/OrderItem graphs and registers the whole batch in the extents with one call per
+ * extent, then removes the checked out items from the carts. If registering fails, the stock of
+ * the batch is returned and its orders are deleted again. Checkouts of one customer always go to
+ * the same worker, so a customer's order list is never modified by two workers at once.
+ * A cart must not be modified after it was submitted until its future completes.
+ * While the pipeline is open it also releases expired stock holds once a second.
+ */
+public class CheckoutPipeline implements AutoCloseable {
+
+    private static final long POLL_MILLIS = 50;
+    private static final long EXPIRY_SWEEP_MILLIS = 1_000;
+
+    private static final class Request {
+        private final Customer customer;
+        private final ShoppingCart cart;
+        private final CompletableFuture<Order> result = new CompletableFuture<>();
+        private List<CartItem> items; // cart snapshot taken by the worker
+        private final List<StockReservation> reserved = new ArrayList<>();
+
+        private Request(Customer customer, ShoppingCart cart) {
+            this.customer = customer;
+            this.cart = cart;
+        }
+    }
+
+    private final StockReservations reservations;
+    private final List<BlockingQueue<Request>> queues = new ArrayList<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final ScheduledExecutorService expirySweeper;
+    private final int batchSize;
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong ordersCreated = new AtomicLong();
+    private volatile boolean closed;
+
+    public CheckoutPipeline(StockReservations reservations, int workerCount, int queueCapacity, int batchSize) {
+        if (reservations == null) {
+            throw new IllegalArgumentException("Stock reservations cannot be null");
+        }
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("Worker count must be positive");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.reservations = reservations;
+        this.batchSize = batchSize;
+        for (int i = 0; i < workerCount; i++) {
+            BlockingQueue<Request> queue = new ArrayBlockingQueue<>(queueCapacity);
+            queues.add(queue);
+            Thread worker = new Thread(() -> runWorker(queue), "checkout-worker-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+        this.expirySweeper = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread sweeper = new Thread(task, "reservation-expiry");
+            sweeper.setDaemon(true);
+            return sweeper;
+        });
+        expirySweeper.scheduleWithFixedDelay(reservations::releaseExpired,
+                EXPIRY_SWEEP_MILLIS, EXPIRY_SWEEP_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues the cart for checkout. The future completes with the created order, or exceptionally
+     * when the cart is empty or there is not enough stock for one of its items.
+     */
+    public CompletableFuture<Order> submit(Customer customer, ShoppingCart cart) throws InterruptedException {
+        if (customer == null) {
+            throw new IllegalArgumentException("Customer cannot be null");
+        }
+        if (cart == null) {
+            throw new IllegalArgumentException("Shopping cart cannot be null");
+        }
+        var request = new Request(customer, cart);
+        BlockingQueue<Request> queue = queues.get(Math.floorMod(System.identityHashCode(customer), queues.size()));
+        // a full queue is retried so that a close() in between is noticed, its workers may be gone already
+        do {
+            if (closed) {
+                throw new IllegalStateException("Checkout pipeline is closed");
+            }
+        } while (!queue.offer(request, POLL_MILLIS, TimeUnit.MILLISECONDS));
+        if (closed && queue.remove(request)) {
+            // queued after close() drained the queues, nobody would ever take it
+            throw new IllegalStateException("Checkout pipeline is closed");
+        }
+        return request.result;
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public long getOrdersCreated() {
+        return ordersCreated.get();
+    }
+
+    // Finishes the queued checkouts and stops the workers; an interrupt is kept for the caller.
+    @Override
+    public void close() {
+        closed = true;
+        boolean interrupted = false;
+        for (Thread worker : workers) {
+            while (worker.isAlive()) {
+                try {
+                    worker.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        expirySweeper.shutdownNow();
+        // submits that raced with close
+        for (BlockingQueue<Request> queue : queues) {
+            Request request;
+            while ((request = queue.poll()) != null) {
+                request.result.completeExceptionally(new IllegalStateException("Checkout pipeline is closed"));
+            }
+        }
+    }
+
+    private void runWorker(BlockingQueue<Request> queue) {
+        List<Request> batch = new ArrayList<>(batchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Request first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                processBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                for (Request request : batch) {
+                    request.result.completeExceptionally(e);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void processBatch(List<Request> batch) {
+        List<Request> accepted = new ArrayList<>(batch.size());
+        List<Order> orders = new ArrayList<>(batch.size());
+        for (Request request : batch) {
+            Order order = checkout(request);
+            if (order != null) {
+                accepted.add(request);
+                orders.add(order);
+            }
+        }
+
+        try {
+            Order.registerAll(orders);
+        } catch (RuntimeException e) {
+            // stock is already committed and the orders are linked to their customers, undo both
+            for (Request request : accepted) {
+                returnStock(request.reserved);
+            }
+            Order.deleteAll(orders);
+            for (Request request : accepted) {
+                request.result.completeExceptionally(e);
+            }
+            return;
+        }
+        // counters first, so they include the batch once its futures complete
+        batches.incrementAndGet();
+        ordersCreated.addAndGet(orders.size());
+        for (int i = 0; i < accepted.size(); i++) {
+            Request request = accepted.get(i);
+            request.cart.removeItems(request.items);
+            request.result.complete(orders.get(i));
+        }
+    }
+
+    // Reserves and commits the stock and builds the (not yet registered) order; null on failure.
+    private Order checkout(Request request) {
+        List<CartItem> items = new ArrayList<>(request.cart.getCartItems().values());
+        if (items.isEmpty()) {
+            request.result.completeExceptionally(new IllegalArgumentException("Shopping cart is empty"));
+            return null;
+        }
+        request.items = items;
+
+        List<StockReservation> reserved = request.reserved;
+        Order order = null;
+        try {
+            for (CartItem item : items) {
+                var reservation = reservations.tryReserve(item.getProduct(), item.getQuantity(), request.cart);
+                if (reservation == null) {
+                    throw new IllegalStateException("Not enough stock for " + item.getProduct().getName());
+                }
+                reserved.add(reservation);
+            }
+
+            CartItem first = items.get(0);
+            order = new Order(request.customer, first.getProduct(), first.getQuantity(), false);
+            for (int i = 1; i < items.size(); i++) {
+                order.addProductUnregistered(items.get(i).getProduct(), items.get(i).getQuantity());
+            }
+
+            for (StockReservation reservation : reserved) {
+                reservations.commit(reservation);
+            }
+            return order;
+        } catch (RuntimeException e) {
+            returnStock(reserved);
+            if (order != null) {
+                order.delete(); // unlinks the customer
+            }
+            request.result.completeExceptionally(e);
+            return null;
+        }
+    }
+
+    private void returnStock(List<StockReservation> reserved) {
+        for (StockReservation reservation : reserved) {
+            if (!reservations.release(reservation)
+                    && reservation.getState() == StockReservation.State.COMMITTED) {
+                reservation.getProduct().returnStock(reservation.getQuantity());
+            }
+        }
+    }
+}
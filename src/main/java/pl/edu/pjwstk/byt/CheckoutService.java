@@ -0,0 +1,120 @@
+package pl.edu.pjwstk.byt;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service layer for customer sessions: cart updates and checkout.
+ * Every session runs as its own task, on a virtual thread when the runtime provides them
+ * (otherwise on a bounded platform thread pool). A session blocks while its checkout is
+ * processed by the {@link CheckoutPipeline}; the structures it touches (extents, stock,
+ * customer orders) use j.u.c. locks and CAS instead of monitors, so a blocked virtual thread
+ * never pins its carrier thread.
+ * One session key must be driven by one session at a time.
+ */
+public class CheckoutService implements AutoCloseable {
+
+    private static final int FALLBACK_THREADS = 256;
+
+    private final CartRegistry carts;
+    private final CheckoutPipeline pipeline;
+    private final ExecutorService sessions;
+    private final boolean virtualThreads;
+
+    public CheckoutService() {
+        this(new CartRegistry(64, Duration.ofMinutes(30)), new StockReservations(Duration.ofMinutes(15)),
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    public CheckoutService(CartRegistry carts, StockReservations reservations, int checkoutWorkers) {
+        if (carts == null) {
+            throw new IllegalArgumentException("Cart registry cannot be null");
+        }
+        if (reservations == null) {
+            throw new IllegalArgumentException("Stock reservations cannot be null");
+        }
+        this.carts = carts;
+        this.pipeline = new CheckoutPipeline(reservations, checkoutWorkers, 1024, 64);
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.sessions = virtual != null ? virtual : Executors.newFixedThreadPool(FALLBACK_THREADS);
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() is looked up reflectively, the project targets Java 17.
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    // Starts a session; the returned future completes with the session's result.
+    public <T> Future<T> startSession(Callable<T> session) {
+        if (session == null) {
+            throw new IllegalArgumentException("Session cannot be null");
+        }
+        return sessions.submit(session);
+    }
+
+    public boolean addToCart(String sessionKey, Product product, int quantity) {
+        return carts.getOrCreate(sessionKey).updateCart(product, quantity);
+    }
+
+    public ShoppingCart getCart(String sessionKey) {
+        return carts.get(sessionKey);
+    }
+
+    /**
+     * Checks out the cart of the session and waits for the order.
+     * On success the cart is removed from the registry; on failure it is kept unchanged.
+     */
+    public Order checkout(String sessionKey, Customer customer) throws InterruptedException {
+        ShoppingCart cart = carts.get(sessionKey);
+        if (cart == null) {
+            throw new IllegalStateException("No shopping cart for session " + sessionKey);
+        }
+        Order order;
+        try {
+            order = pipeline.submit(customer, cart).get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Checkout failed", e.getCause());
+        }
+        carts.remove(sessionKey);
+        return order;
+    }
+
+    public long getOrdersCreated() {
+        return pipeline.getOrdersCreated();
+    }
+
+    // Waits for the running sessions, then finishes the queued checkouts; an interrupt is kept for the caller.
+    @Override
+    public void close() {
+        sessions.shutdown();
+        boolean interrupted = false;
+        while (!sessions.isTerminated()) {
+            try {
+                sessions.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        pipeline.close();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,17 +1,32 @@
 package pl.edu.pjwstk.byt;
 
 import java.io.*;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
 
-public class Customer implements Serializable {
-    private static final long serialVersionUID = 1L;
+import pl.edu.pjwstk.byt.extent.Extent;
+import pl.edu.pjwstk.byt.tx.VersionStamp;
+import pl.edu.pjwstk.byt.tx.Versioned;
+
+public class Customer implements Serializable, Versioned {
+    private static final long serialVersionUID = 2L; // 2: orders lock, version stamp, archived orders
     private static final String EXTENT_FILE = "Customer_extent.ser";
-    private static List<Customer> extent = new ArrayList<>();
+    private static final Extent<Customer> extent = Extent.versioned(EXTENT_FILE, DomainSnapshot.GROUP);
 
     private String name;
     private String email;
     private List<Order> orders = new ArrayList<>();
+    private final ReentrantLock ordersLock = new ReentrantLock(); // orders can be placed from many sessions at once
+    private final VersionStamp versionStamp = new VersionStamp();
+    private String archiveDirectory; // set once orders of the customer were archived
+    private long[] archivedOrders; // OrderArchive references, oldest first
+    private int archivedOrderCount;
 
     public Customer(String name, String email) {
         if (name == null || name.isBlank())
@@ -27,8 +42,7 @@ public class Customer implements Serializable {
     public void addOrder(Order order) {
         if (order == null)
             throw new IllegalArgumentException("Order cannot be null");
-        if (!orders.contains(order)) {
-            orders.add(order);
+        if (addOrderInternal(order)) {
             // Reverse connection
             if (order.getCustomer() != this) {
                 order.setCustomer(this);
@@ -36,9 +50,27 @@ public class Customer implements Serializable {
         }
     }
 
-    protected void addOrderInternal(Order order) {
-        if (!orders.contains(order)) {
-            orders.add(order);
+    protected boolean addOrderInternal(Order order) {
+        ordersLock.lock();
+        try {
+            if (orders.contains(order)) {
+                return false;
+            }
+            versionStamp.touch();
+            return orders.add(order);
+        } finally {
+            ordersLock.unlock();
+        }
+    }
+
+    // Links orders created by Order.createAll; they are new, so there is nothing to check for duplicates.
+    protected void addOrdersInternal(List<Order> newOrders) {
+        ordersLock.lock();
+        try {
+            versionStamp.touch();
+            orders.addAll(newOrders);
+        } finally {
+            ordersLock.unlock();
         }
     }
 
@@ -53,10 +85,86 @@ public class Customer implements Serializable {
         } else {
             // If already unlinked (e.g. called from Order.delete() or Order.setCustomer()),
             // just remove from implementation list.
-            orders.remove(order);
+            ordersLock.lock();
+            try {
+                if (orders.remove(order)) {
+                    versionStamp.touch();
+                }
+            } finally {
+                ordersLock.unlock();
+            }
         }
     }
 
+    // Drops orders unlinked by Order.deleteAll with one pass over the order list.
+    protected void removeOrdersInternal(Set<Order> removed) {
+        ordersLock.lock();
+        try {
+            if (orders.removeIf(removed::contains)) {
+                versionStamp.touch();
+            }
+        } finally {
+            ordersLock.unlock();
+        }
+    }
+
+    // Swaps orders moved to the archive for their references (called by Order.archiveAll).
+    protected void archiveOrdersInternal(Set<Order> archived, long[] references, String directory) {
+        ordersLock.lock();
+        try {
+            if (archiveDirectory != null && !archiveDirectory.equals(directory)) {
+                throw new IllegalStateException("Orders of the customer are archived in " + archiveDirectory);
+            }
+            archiveDirectory = directory;
+            if (archivedOrders == null) {
+                archivedOrders = new long[Math.max(8, references.length)];
+            } else if (archivedOrderCount + references.length > archivedOrders.length) {
+                archivedOrders = Arrays.copyOf(archivedOrders,
+                        Math.max(archivedOrderCount + references.length, archivedOrders.length * 2));
+            }
+            System.arraycopy(references, 0, archivedOrders, archivedOrderCount, references.length);
+            archivedOrderCount += references.length;
+            orders.removeIf(archived::contains);
+            versionStamp.touch();
+        } finally {
+            ordersLock.unlock();
+        }
+    }
+
+    // Lifecycle: deleting a customer deletes its orders (an order requires a customer)
+    public void delete() {
+        deleteAll(List.of(this));
+    }
+
+    /**
+     * Same as delete() for many customers, e.g. an erasure batch. All their orders are deleted
+     * with one Order.deleteAll call and the customers leave the extent in one pass, so the cost
+     * is linear in the size of the extents, not in customers times orders. Archived orders are not
+     * read back; the customers just drop their references to them.
+     */
+    public static void deleteAll(Collection<Customer> customers) {
+        if (customers.isEmpty()) {
+            return;
+        }
+        Set<Customer> deleted = new HashSet<>(customers);
+        List<Order> orders = new ArrayList<>();
+        for (Customer customer : deleted) {
+            customer.ordersLock.lock();
+            try {
+                orders.addAll(customer.orders);
+                customer.archiveDirectory = null;
+                customer.archivedOrders = null;
+                customer.archivedOrderCount = 0;
+            } finally {
+                customer.ordersLock.unlock();
+            }
+        }
+        DomainSnapshot.GROUP.write(() -> {
+            Order.deleteAll(orders);
+            extent.removeAll(deleted);
+        });
+    }
+
     public String getName() {
         return name;
     }
@@ -65,25 +173,51 @@ public class Customer implements Serializable {
         return email;
     }
 
+    /**
+     * Archived orders first (oldest first), then the orders in memory. Archived orders are
+     * fetched lazily, a page at a time, as read-only copies.
+     */
     public List<Order> getOrders() {
-        return new ArrayList<>(orders);
+        ordersLock.lock();
+        try {
+            if (archivedOrderCount == 0) {
+                return new ArrayList<>(orders);
+            }
+            return new ArchivedOrderList(OrderArchive.open(Path.of(archiveDirectory)), this,
+                    Arrays.copyOf(archivedOrders, archivedOrderCount), new ArrayList<>(orders));
+        } finally {
+            ordersLock.unlock();
+        }
+    }
+
+    public int getArchivedOrderCount() {
+        ordersLock.lock();
+        try {
+            return archivedOrderCount;
+        } finally {
+            ordersLock.unlock();
+        }
+    }
+
+    @Override
+    public VersionStamp getVersionStamp() {
+        return versionStamp;
+    }
+
+    static Extent<Customer> liveExtent() {
+        return extent;
     }
 
     // Persistence
     public static List<Customer> getExtent() {
-        return new ArrayList<>(extent);
+        return extent.snapshot();
     }
 
     public static void saveExtent() throws IOException {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(EXTENT_FILE))) {
-            oos.writeObject(extent);
-        }
+        extent.save();
     }
 
-    @SuppressWarnings("unchecked")
     public static void loadExtent() throws IOException, ClassNotFoundException {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(EXTENT_FILE))) {
-            extent = (List<Customer>) ois.readObject();
-        }
+        extent.load();
     }
 }
@@ -1,16 +1,16 @@
 package pl.edu.pjwstk.byt;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class DataAnalyst extends User implements Idataanalyst {
-    int reportsGenerated;
-    List<Report> reportList;
+    // reports of background jobs are added from scheduler threads
+    final AtomicInteger reportsGenerated = new AtomicInteger();
+    final List<Report> reportList = new CopyOnWriteArrayList<>();
 
     public DataAnalyst(String username, String email) {
         super(username, email);
-        this.reportsGenerated = 0;
-        this.reportList = new ArrayList<Report>();
     }
 
     public List<Report> getReportList() {
@@ -19,15 +19,15 @@ public class DataAnalyst extends User implements Idataanalyst {
 
     public void addtoReportList(Report report) {
         this.reportList.add(report);
-        reportsGenerated++;
+        reportsGenerated.incrementAndGet();
 
     }
     public void delfromReportList(Report report) {
         this.reportList.remove(report);
-        reportsGenerated--;
+        reportsGenerated.decrementAndGet();
     }
 
     public int getReportsGenerated() {
-        return reportsGenerated;
+        return reportsGenerated.get();
     }
 }
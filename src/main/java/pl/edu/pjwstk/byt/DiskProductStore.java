@@ -0,0 +1,131 @@
+package pl.edu.pjwstk.byt;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Currency;
+import java.util.List;
+
+/**
+ * Product catalog on disk, one record per file named after the product id.
+ * A record holds the product's own fields only (no category, so no category tree), written
+ * with DataOutput like the order archive records.
+ * Products loaded from the store are not registered in the Product extent.
+ */
+public class DiskProductStore {
+
+    private static final int RECORD_VERSION = 1;
+
+    private final Path directory;
+
+    public DiskProductStore(Path directory) throws IOException {
+        if (directory == null) {
+            throw new IllegalArgumentException("Store directory cannot be null");
+        }
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    // Writes to a temporary file first, readers never see a half written product.
+    public void put(Product product) throws IOException {
+        if (product == null) {
+            throw new IllegalArgumentException("Product cannot be null");
+        }
+        Path file = file(product.getId());
+        Path temporary = Files.createTempFile(directory, "product", ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            writeRecord(out, product);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Null if there is no product with this id.
+    public Product load(String id) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file(id))))) {
+            return readRecord(in);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    public boolean remove(String id) throws IOException {
+        return Files.deleteIfExists(file(id));
+    }
+
+    private Path file(String id) {
+        if (id == null || id.isBlank()) {
+            throw new IllegalArgumentException("Product id cannot be empty");
+        }
+        String name = Base64.getUrlEncoder().withoutPadding().encodeToString(id.getBytes(StandardCharsets.UTF_8));
+        return directory.resolve(name + ".bin");
+    }
+
+    // ------------------------------------------------------------------------
+    // Record format: version, id, name, description, currency, price, stock, images, rating histogram
+    // ------------------------------------------------------------------------
+
+    private static void writeRecord(DataOutputStream out, Product product) throws IOException {
+        out.writeByte(RECORD_VERSION);
+        out.writeUTF(product.getId());
+        writeString(out, product.getName());
+        writeString(out, product.getDescription());
+        out.writeUTF(product.getCurrency().getCurrencyCode());
+        out.writeLong(product.getPriceMinor());
+        out.writeInt(product.getStockQuantity());
+        List<String> images = product.getImages();
+        out.writeInt(images.size());
+        for (String image : images) {
+            writeString(out, image);
+        }
+        int[] histogram = product.getRatingDistribution();
+        out.writeByte(histogram.length);
+        for (int count : histogram) {
+            out.writeInt(count);
+        }
+    }
+
+    private static Product readRecord(DataInputStream in) throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != RECORD_VERSION) {
+            throw new IOException("Unsupported product record version " + version);
+        }
+        String id = in.readUTF();
+        String name = readString(in);
+        String description = readString(in);
+        Currency currency = Currency.getInstance(in.readUTF());
+        long price = in.readLong();
+        int stock = in.readInt();
+        int imageCount = in.readInt();
+        List<String> images = new ArrayList<>(imageCount);
+        for (int i = 0; i < imageCount; i++) {
+            images.add(readString(in));
+        }
+        int[] histogram = new int[in.readUnsignedByte()];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = in.readInt();
+        }
+        return Product.restore(id, name, description, Money.ofMinor(price, currency), stock, images, histogram);
+    }
+
+    // writeUTF stops at 64 KB, descriptions may be longer
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,29 @@
+package pl.edu.pjwstk.byt;
+
+import pl.edu.pjwstk.byt.extent.Extent;
+
+/**
+ * Extents a cached report can depend on, see {@link ReportCache}.
+ */
+public enum DomainExtent {
+    CUSTOMER,
+    ORDER,
+    ORDER_ITEM,
+    PRODUCT,
+    CATEGORY;
+
+    // Modification version of the extent, see Extent.getVersion().
+    public long getVersion() {
+        return extent().getVersion();
+    }
+
+    private Extent<?> extent() {
+        return switch (this) {
+            case CUSTOMER -> Customer.liveExtent();
+            case ORDER -> Order.liveExtent();
+            case ORDER_ITEM -> OrderItem.liveExtent();
+            case PRODUCT -> Product.liveExtent();
+            case CATEGORY -> Category.liveExtent();
+        };
+    }
+}
@@ -0,0 +1,54 @@
+package pl.edu.pjwstk.byt;
+
+import java.util.List;
+
+import pl.edu.pjwstk.byt.extent.Snapshot;
+import pl.edu.pjwstk.byt.extent.SnapshotGroup;
+
+/**
+ * Consistent read-only view of the customer, order and order item extents, for analytics.
+ * Pinning a snapshot takes no lock and copies nothing, so long running reports never block
+ * checkout. Orders are published together with their items (and deleted together with them),
+ * so a snapshot never contains half-built orders.
+ * Only extent membership is versioned; the attributes of the objects themselves are live.
+ */
+public final class DomainSnapshot {
+
+    static final SnapshotGroup GROUP = new SnapshotGroup();
+
+    private final Snapshot snapshot;
+    private final List<Customer> customers;
+    private final List<Order> orders;
+    private final List<OrderItem> orderItems;
+
+    private DomainSnapshot(Snapshot snapshot) {
+        this.snapshot = snapshot;
+        this.customers = snapshot.of(Customer.liveExtent());
+        this.orders = snapshot.of(Order.liveExtent());
+        this.orderItems = snapshot.of(OrderItem.liveExtent());
+    }
+
+    public static DomainSnapshot pin() {
+        // loads the classes first, so their extents are part of the group when it is pinned
+        Customer.liveExtent();
+        Order.liveExtent();
+        OrderItem.liveExtent();
+        return new DomainSnapshot(GROUP.pin());
+    }
+
+    public long getVersion() {
+        return snapshot.getVersion();
+    }
+
+    public List<Customer> getCustomers() {
+        return customers;
+    }
+
+    public List<Order> getOrders() {
+        return orders;
+    }
+
+    public List<OrderItem> getOrderItems() {
+        return orderItems;
+    }
+}
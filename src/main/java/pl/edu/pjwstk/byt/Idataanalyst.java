@@ -1,5 +1,8 @@
 package pl.edu.pjwstk.byt;
+import java.io.IOException;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
 
 public interface Idataanalyst {
     int reportsGenerated = 0;
@@ -10,4 +13,29 @@ public interface Idataanalyst {
     public void delfromReportList(Report report);
 
     public int getReportsGenerated();
+
+    // Adds the named report, served from the shared ReportCache while its extents are unchanged.
+    public default Report generateReport(String name, Set<DomainExtent> dependsOn, Supplier<String> content) {
+        Report report = new Report(ReportCache.shared().get(name, dependsOn, content));
+        addtoReportList(report);
+        return report;
+    }
+
+    // Same for a large report streamed to a file; the analyst gets a copy of its own and deletes it when done.
+    public default Report generateReport(String name, Set<DomainExtent> dependsOn, ReportCache.Content content)
+            throws IOException {
+        Report report = ReportCache.shared().getReport(name, dependsOn, content);
+        addtoReportList(report);
+        return report;
+    }
+
+    // Runs the report in the background on the shared ReportScheduler; the finished report is added to the list.
+    public default ReportJob submitReport(String name, int priority, ReportJob.Work work) {
+        return ReportScheduler.shared().submit(name, priority, work, this::addtoReportList);
+    }
+
+    // Same for a large report streamed to a file; the file-backed report is added to the list.
+    public default ReportJob submitReport(String name, int priority, ReportJob.StreamingWork work) {
+        return ReportScheduler.shared().submit(name, priority, work, this::addtoReportList);
+    }
 }
@@ -0,0 +1,145 @@
+package pl.edu.pjwstk.byt;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Objects;
+
+/**
+ * Fixed-point amount of money: a whole number of minor units (e.g. grosz) plus a currency.
+ * Domain classes keep raw minor units in long fields and use the static helpers, so the
+ * hot paths (order totals, cart subtotals) do not allocate. Sums of longs do not depend
+ * on the summation order, so parallel aggregations give the same result as serial ones.
+ */
+public final class Money implements Serializable, Comparable<Money> {
+    private static final long serialVersionUID = 1L;
+
+    public static final Currency DEFAULT_CURRENCY = Currency.getInstance("PLN");
+
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000};
+
+    private final long minorUnits;
+    private final Currency currency;
+
+    private Money(long minorUnits, Currency currency) {
+        if (currency == null) {
+            throw new IllegalArgumentException("Currency cannot be null");
+        }
+        this.minorUnits = minorUnits;
+        this.currency = currency;
+    }
+
+    public static Money ofMinor(long minorUnits, Currency currency) {
+        return new Money(minorUnits, currency);
+    }
+
+    public static Money of(double amount, Currency currency) {
+        return new Money(toMinor(amount, currency), currency);
+    }
+
+    public static Money of(double amount) {
+        return of(amount, DEFAULT_CURRENCY);
+    }
+
+    public static Money zero(Currency currency) {
+        return new Money(0, currency);
+    }
+
+    // ------------------------------------------------------------------------
+    // Allocation-free helpers on raw minor units
+    // ------------------------------------------------------------------------
+
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long multiply(long minorUnits, int quantity) {
+        return Math.multiplyExact(minorUnits, (long) quantity);
+    }
+
+    public static long toMinor(double amount, Currency currency) {
+        if (Double.isNaN(amount) || Double.isInfinite(amount)) {
+            throw new IllegalArgumentException("Amount must be a finite number");
+        }
+        return BigDecimal.valueOf(amount)
+                .setScale(fractionDigits(currency), RoundingMode.HALF_UP)
+                .unscaledValue()
+                .longValueExact();
+    }
+
+    public static double toDouble(long minorUnits, Currency currency) {
+        return (double) minorUnits / POWERS_OF_TEN[fractionDigits(currency)];
+    }
+
+    private static int fractionDigits(Currency currency) {
+        return Math.max(0, currency.getDefaultFractionDigits());
+    }
+
+    // ------------------------------------------------------------------------
+    // Value API
+    // ------------------------------------------------------------------------
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public double toDouble() {
+        return toDouble(minorUnits, currency);
+    }
+
+    public Money plus(Money other) {
+        checkSameCurrency(other);
+        return new Money(add(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money minus(Money other) {
+        checkSameCurrency(other);
+        return new Money(Math.subtractExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money times(int quantity) {
+        return new Money(multiply(minorUnits, quantity), currency);
+    }
+
+    public boolean isNegative() {
+        return minorUnits < 0;
+    }
+
+    private void checkSameCurrency(Money other) {
+        if (other == null) {
+            throw new IllegalArgumentException("Money cannot be null");
+        }
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " and " + other.currency);
+        }
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        checkSameCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Money)) return false;
+        Money money = (Money) o;
+        return minorUnits == money.minorUnits && currency.equals(money.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(minorUnits, currency);
+    }
+
+    @Override
+    public String toString() {
+        return BigDecimal.valueOf(minorUnits, fractionDigits(currency)).toPlainString() + " " + currency.getCurrencyCode();
+    }
+}
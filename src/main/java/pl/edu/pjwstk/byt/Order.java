@@ -3,25 +3,44 @@ package pl.edu.pjwstk.byt;
 import java.io.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Currency;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import pl.edu.pjwstk.byt.extent.Extent;
+import pl.edu.pjwstk.byt.tx.Transaction;
 
 public class Order implements Serializable {
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 2L; // 2: total in minor units, order currency
     private static final String EXTENT_FILE = "Order_extent.ser";
-    private static List<Order> extent = new ArrayList<>();
+    private static final Extent<Order> extent = Extent.versioned(EXTENT_FILE, DomainSnapshot.GROUP);
 
     private final LocalDateTime orderDate; // complex attribute
     private OrderStatus status;
-    private double totalAmount; // derived attribute
+    private long totalAmount; // derived attribute, minor units of currency
+    private final Currency currency;
 
     // Composition: Order (Whole) <-> OrderItem (Part)
     private List<OrderItem> items;
 
     // Basic Association: Customer (1) <-> Order (*)
     private Customer customer;
+    private transient boolean inRollups; // counted in SalesRollups, set once the order is registered
+    private transient boolean inMetrics; // counted in OrderMetrics, set for registered and loaded orders
+    private transient boolean archived; // restored copy of an archived order, read-only
 
     public Order(Customer customer, Product initialProduct, int initialQuantity) {
+        this(customer, initialProduct, initialQuantity, true);
+    }
+
+    // Bulk creation paths pass register = false and add the whole batch with registerAll.
+    Order(Customer customer, Product initialProduct, int initialQuantity, boolean register) {
         if (customer == null)
             throw new IllegalArgumentException("Order must have a customer");
         if (initialProduct == null)
@@ -32,6 +51,7 @@ public class Order implements Serializable {
         this.status = OrderStatus.PAYMENT_PENDING;
         this.orderDate = LocalDateTime.now();
         this.totalAmount = 0;
+        this.currency = initialProduct.getCurrency();
         this.items = new ArrayList<>();
 
         // Basic Association: Customer (1)
@@ -39,9 +59,172 @@ public class Order implements Serializable {
 
         // Composition: Items (1..*)
         // We create the first item.
-        addProduct(initialProduct, initialQuantity);
+        new OrderItem(this, initialProduct, initialQuantity, false);
+
+        if (register) {
+            registerAll(List.of(this)); // snapshots see the order together with its item
+        }
+    }
+
+    // Bulk creation: items are added right after, the customer links the order with addOrdersInternal.
+    private Order(Customer customer, Currency currency, int itemCount, LocalDateTime orderDate) {
+        this.status = OrderStatus.PAYMENT_PENDING;
+        this.orderDate = orderDate;
+        this.currency = currency;
+        this.items = new ArrayList<>(itemCount);
+        this.customer = customer;
+    }
+
+    /**
+     * Creates all orders of the batch in one pass. Every distinct product id is resolved once,
+     * collections are pre-sized, every customer gets its new orders with one call and all orders
+     * and items are registered with one publication.
+     * The batch is validated first: if a line is invalid no order is created.
+     */
+    public static List<Order> createAll(OrderBatch batch) {
+        if (batch == null)
+            throw new IllegalArgumentException("Order batch cannot be null");
+
+        Set<String> ids = new HashSet<>();
+        for (int line = 0; line < batch.getLineCount(); line++) {
+            ids.add(batch.productId(line));
+        }
+        Map<String, Product> products = Product.findByIds(ids);
+        for (int o = 0; o < batch.getOrderCount(); o++) {
+            Currency orderCurrency = null;
+            for (int line = batch.orderStart(o); line < batch.orderEnd(o); line++) {
+                Product product = products.get(batch.productId(line));
+                if (product == null)
+                    throw new IllegalArgumentException("Unknown product " + batch.productId(line));
+                if (orderCurrency == null) {
+                    orderCurrency = product.getCurrency();
+                } else if (!orderCurrency.equals(product.getCurrency())) {
+                    throw new IllegalArgumentException("Product currency does not match order currency " + orderCurrency);
+                }
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Order> orders = new ArrayList<>(batch.getOrderCount());
+        Map<Customer, List<Order>> ordersByCustomer = new IdentityHashMap<>();
+        for (int o = 0; o < batch.getOrderCount(); o++) {
+            int from = batch.orderStart(o);
+            int to = batch.orderEnd(o);
+            Customer customer = batch.customer(from);
+            var order = new Order(customer, products.get(batch.productId(from)).getCurrency(), to - from, now);
+            for (int line = from; line < to; line++) {
+                new OrderItem(order, products.get(batch.productId(line)), batch.quantity(line), false);
+            }
+            orders.add(order);
+            ordersByCustomer.computeIfAbsent(customer, c -> new ArrayList<>()).add(order);
+        }
+        ordersByCustomer.forEach(Customer::addOrdersInternal);
+        registerAll(orders);
+        return orders;
+    }
+
+    // Registers orders built with register = false, and their items, with one call per extent.
+    static void registerAll(List<Order> orders) {
+        addToExtents(orders);
+        recordCreated(orders);
+    }
 
-        extent.add(this);
+    // The part of registerAll that delete() undoes: extents and rollups.
+    private static void addToExtents(List<Order> orders) {
+        int itemCount = 0;
+        for (Order order : orders) {
+            itemCount += order.items.size();
+        }
+        List<OrderItem> allItems = new ArrayList<>(itemCount);
+        for (Order order : orders) {
+            allItems.addAll(order.items);
+        }
+        DomainSnapshot.GROUP.write(() -> {
+            OrderItem.registerAll(allItems);
+            extent.addAll(orders);
+        });
+        recordAllInRollups(orders);
+    }
+
+    // Counts new orders in the sales sketches and order metrics, which are never taken back.
+    private static void recordCreated(List<Order> orders) {
+        List<OrderItem> allItems = new ArrayList<>();
+        for (Order order : orders) {
+            allItems.addAll(order.items);
+        }
+        SalesSketches.itemsRegistered(allItems);
+        for (Order order : orders) {
+            order.inMetrics = true;
+            int units = 0;
+            for (OrderItem item : order.items) {
+                units += item.getQuantity();
+            }
+            OrderMetrics.orderCreated(order, units);
+        }
+    }
+
+    // From now on every change of these orders is applied to SalesRollups.
+    static void recordAllInRollups(Collection<Order> orders) {
+        for (Order order : orders) {
+            order.inRollups = true;
+            for (OrderItem item : order.items) {
+                item.captureForRollups();
+                SalesRollups.record(order, order.status, item, item.getQuantity());
+            }
+        }
+    }
+
+    static Extent<Order> liveExtent() {
+        return extent;
+    }
+
+    /**
+     * Checkout as one optimistic transaction: takes the stock of every cart item, creates and
+     * registers the order and clears the cart. Either all of it happens or none of it does.
+     * Concurrent changes of the same products, customer or cart abort the transaction, which is
+     * then retried; checkouts of unrelated products do not wait for each other.
+     */
+    public static Order placeOrder(Customer customer, ShoppingCart cart) {
+        if (customer == null)
+            throw new IllegalArgumentException("Order must have a customer");
+        if (cart == null)
+            throw new IllegalArgumentException("Shopping cart cannot be null");
+
+        Order[] placed = new Order[1];
+        Transaction.execute(tx -> {
+            List<CartItem> items = tx.read(cart, () -> new ArrayList<>(cart.getCartItems().values()));
+            if (items.isEmpty())
+                throw new IllegalArgumentException("Shopping cart is empty");
+
+            for (CartItem item : items) {
+                Product product = item.getProduct();
+                int quantity = item.getQuantity();
+                if (tx.read(product, product::getStockQuantity) < quantity)
+                    throw new IllegalStateException("Not enough stock for " + product.getName());
+                tx.write(product, () -> {
+                    if (!product.tryTakeStock(quantity))
+                        throw new IllegalStateException("Not enough stock for " + product.getName());
+                }, () -> product.returnStock(quantity));
+            }
+            tx.write(customer, () -> {
+                CartItem first = items.get(0);
+                Order order = new Order(customer, first.getProduct(), first.getQuantity(), false);
+                for (int i = 1; i < items.size(); i++) {
+                    order.addProductUnregistered(items.get(i).getProduct(), items.get(i).getQuantity());
+                }
+                addToExtents(List.of(order));
+                placed[0] = order;
+            }, () -> placed[0].delete());
+            tx.write(cart, cart::clearCart, () -> {
+                for (CartItem item : items) {
+                    cart.updateCart(item.getProduct(), item.getQuantity());
+                }
+            });
+            return null;
+        });
+        // only the attempt that committed is counted, retried ones were deleted again
+        recordCreated(List.of(placed[0]));
+        return placed[0];
     }
 
     // ------------------------------------------------------------------------
@@ -88,26 +271,63 @@ public class Order implements Serializable {
     // ------------------------------------------------------------------------
 
     public OrderItem addProduct(Product product, int quantity) {
+        checkModifiable();
         return new OrderItem(this, product, quantity);
     }
 
+    // For orders built with register = false, the item is registered by registerAll.
+    OrderItem addProductUnregistered(Product product, int quantity) {
+        return new OrderItem(this, product, quantity, false);
+    }
+
+    // Called exactly once per item, from the OrderItem constructor.
     protected void addOrderItemInternal(OrderItem item) {
-        if (!items.contains(item)) {
-            items.add(item);
-            calculateTotal();
+        if (item.getOrder() != this) {
+            throw new IllegalArgumentException("Order item belongs to another order");
+        }
+        checkModifiable();
+        if (!item.getProduct().getCurrency().equals(currency)) {
+            throw new IllegalArgumentException("Product currency does not match order currency " + currency);
+        }
+        items.add(item);
+        totalAmount = Money.add(totalAmount, item.getLineTotalMinor());
+        if (inRollups) {
+            item.captureForRollups();
+            SalesRollups.record(this, status, item, item.getQuantity());
+        }
+        if (inMetrics) {
+            OrderMetrics.itemsAdded(this, item.getProduct(), item.getQuantity());
         }
     }
 
     protected void removeOrderItemInternal(OrderItem item) {
+        checkModifiable();
         // Enforce multiplicity 1..*
         if (items.size() <= 1 && items.contains(item)) {
             throw new IllegalStateException("Cannot remove the last item from the order");
         }
-        items.remove(item);
-        calculateTotal();
+        if (items.remove(item)) {
+            totalAmount = Money.add(totalAmount, -item.getLineTotalMinor());
+            if (inRollups) {
+                SalesRollups.record(this, status, item, -item.getQuantity());
+            }
+        }
+    }
+
+    // Called by OrderItem.setQuantity, applies only the difference to the total.
+    protected void itemQuantityChangedInternal(OrderItem item, int oldQuantity) {
+        long delta = Money.multiply(item.getProduct().getPriceMinor(), item.getQuantity() - oldQuantity);
+        totalAmount = Money.add(totalAmount, delta);
+        if (inRollups) {
+            SalesRollups.record(this, status, item, item.getQuantity() - oldQuantity);
+        }
+        if (inMetrics && item.getQuantity() > oldQuantity) {
+            OrderMetrics.itemsAdded(this, item.getProduct(), item.getQuantity() - oldQuantity);
+        }
     }
 
     public void removeOrderItem(OrderItem item) {
+        checkModifiable();
         if (items.contains(item)) {
             if (items.size() <= 1) {
                 throw new IllegalStateException(
@@ -134,23 +354,83 @@ public class Order implements Serializable {
         if (status == null) {
             throw new IllegalArgumentException("Order status cannot be null");
         }
+        checkModifiable();
+        OrderStatus oldStatus = this.status;
         this.status = status;
+        extent.touch();
+        if (inMetrics && oldStatus != status) {
+            OrderMetrics.statusChanged(status);
+        }
+        if (inRollups && oldStatus != status) {
+            // the lines move from the buckets of the old status to those of the new one
+            for (OrderItem item : items) {
+                SalesRollups.record(this, oldStatus, item, -item.getQuantity());
+                SalesRollups.record(this, status, item, item.getQuantity());
+            }
+        }
+    }
+
+    // Restored archived orders are detached copies, changing them would change nothing that is kept.
+    void checkModifiable() {
+        if (archived) {
+            throw new IllegalStateException("Archived orders are read-only");
+        }
     }
 
     public OrderStatus getStatus() {
         return status;
     }
 
+    public LocalDateTime getOrderDate() {
+        return orderDate;
+    }
+
     public double getTotalAmount() {
+        return Money.toDouble(totalAmount, currency);
+    }
+
+    public Money getTotal() {
+        return Money.ofMinor(totalAmount, currency);
+    }
+
+    public long getTotalMinor() {
         return totalAmount;
     }
 
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    // The total is maintained incrementally; full recompute is only needed for audits.
     public void calculateTotal() {
-        double sum = 0;
+        totalAmount = recomputeTotal();
+    }
+
+    // Audit check: does the maintained total match a full recompute over all items?
+    public boolean verifyTotal() {
+        return recomputeTotal() == totalAmount;
+    }
+
+    private long recomputeTotal() {
+        long sum = 0;
         for (OrderItem item : items) {
-            sum += item.getProduct().getPrice() * item.getQuantity();
+            sum = Money.add(sum, item.getLineTotalMinor());
+        }
+        return sum;
+    }
+
+    // Revenue over all orders in the given currency. Long sums do not depend on the
+    // summation order, so the parallel result is identical to a serial run.
+    public static Money calculateRevenue(Currency currency) {
+        if (currency == null) {
+            throw new IllegalArgumentException("Currency cannot be null");
         }
-        totalAmount = sum;
+        long revenue = DomainSnapshot.pin().getOrders()
+                .parallelStream()
+                .filter(order -> order.currency.equals(currency))
+                .mapToLong(Order::getTotalMinor)
+                .reduce(0, Money::add);
+        return Money.ofMinor(revenue, currency);
     }
 
     public void checkPendingOrders() {
@@ -161,48 +441,107 @@ public class Order implements Serializable {
 
     // Lifecycle: Delete Order -> Delete Parts (Composition)
     public void delete() {
-        extent.remove(this);
+        deleteAll(List.of(this));
+    }
 
-        // Dispose all parts
-        // Use copy to avoid ConcurrentModificationException
-        List<OrderItem> copy = new ArrayList<>(items);
+    /**
+     * Same as delete() for many orders, in time linear in the size of the extents: the orders
+     * and their items leave the extents in one pass each, and every customer drops its deleted
+     * orders in one pass over its order list. Snapshots see all of it or nothing.
+     */
+    public static void deleteAll(Collection<Order> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        Set<Order> deleted = new HashSet<>(orders);
+        Map<Customer, Set<Order>> ordersByCustomer = new IdentityHashMap<>();
+        DomainSnapshot.GROUP.write(() -> {
+            extent.removeAll(deleted);
+
+            // Dispose all parts
+            List<OrderItem> items = new ArrayList<>();
+            for (Order order : deleted) {
+                if (order.inRollups) {
+                    for (OrderItem item : order.items) {
+                        SalesRollups.record(order, order.status, item, -item.getQuantity());
+                    }
+                    order.inRollups = false;
+                }
+                order.inMetrics = false;
+                items.addAll(order.items);
+                order.items.clear();
+                // Unlink customer
+                if (order.customer != null) {
+                    ordersByCustomer.computeIfAbsent(order.customer, c -> new HashSet<>()).add(order);
+                    order.customer = null;
+                }
+            }
+            OrderItem.disposeAll(items);
+        });
+        ordersByCustomer.forEach(Customer::removeOrdersInternal);
+    }
 
-        // Clear internal list first so we don't have removal issues
-        items.clear();
+    // ------------------------------------------------------------------------
+    // Archival (see OrderArchive)
+    // ------------------------------------------------------------------------
 
-        for (OrderItem item : copy) {
-            // Let's just remove from extent manually since we are the aggregate root.
-            item.disposeWithoutRemovingFromOrder();
-        }
+    /**
+     * Moves archived orders out of the hot tier: every customer swaps its orders for their archive
+     * references and the extents drop the orders. The references are in the iteration order of
+     * the map, the orders of one customer one after another.
+     */
+    static void archiveAll(Map<Customer, List<Order>> ordersByCustomer, long[] references, String archiveDirectory) {
+        List<Order> archived = new ArrayList<>(references.length);
+        DomainSnapshot.GROUP.write(() -> {
+            int next = 0;
+            for (Map.Entry<Customer, List<Order>> entry : ordersByCustomer.entrySet()) {
+                List<Order> orders = entry.getValue();
+                long[] customerReferences = Arrays.copyOfRange(references, next, next + orders.size());
+                entry.getKey().archiveOrdersInternal(new HashSet<>(orders), customerReferences, archiveDirectory);
+                archived.addAll(orders);
+                next += orders.size();
+            }
+            for (Order order : archived) {
+                order.inRollups = false; // archived sales stay in the rollups
+            }
+            deleteAll(archived);
+        });
+    }
 
-        // Unlink customer
-        if (this.customer != null) {
-            Customer c = this.customer;
-            this.customer = null;
-            c.removeOrder(this);
+    // Detached read-only copy of an archived order; it is not part of any extent or customer order list.
+    static Order restore(Customer customer, OrderStatus status, LocalDateTime orderDate, Currency currency,
+                         long totalAmount, List<Product> products, int[] quantities) {
+        var order = new Order(customer, currency, products.size(), orderDate);
+        order.status = status;
+        for (int i = 0; i < products.size(); i++) {
+            new OrderItem(order, products.get(i), quantities[i], false);
         }
+        order.totalAmount = totalAmount; // as it was when the order was archived
+        order.archived = true;
+        return order;
     }
 
     @Override
     public String toString() {
-        return "Order{" + "date=" + orderDate + ", status='" + status + '\'' + ", total=" + totalAmount + ", items="
+        return "Order{" + "date=" + orderDate + ", status='" + status + '\'' + ", total=" + getTotal() + ", items="
                 + items.size() + '}';
     }
 
     public static List<Order> getExtent() {
-        return new ArrayList<>(extent);
+        return extent.snapshot();
     }
 
     public static void saveExtent() throws IOException {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(EXTENT_FILE))) {
-            oos.writeObject(extent);
-        }
+        extent.save();
     }
 
-    @SuppressWarnings("unchecked")
+    // The loaded orders replace the registered ones, so the rollups are recomputed from them.
+    // Their later changes count in OrderMetrics; loading itself is not an event and is not counted.
     public static void loadExtent() throws IOException, ClassNotFoundException {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(EXTENT_FILE))) {
-            extent = (List<Order>) ois.readObject();
+        extent.load();
+        SalesRollups.rebuild();
+        for (Order order : extent.snapshot()) {
+            order.inMetrics = true;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,275 @@
+package pl.edu.pjwstk.byt;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Cold tier of the Order extent.
+ * Finished orders (COMPLETE, DELIVERED, CANCELLED) older than a cutoff are written to
+ * append-only segment files and dropped from the Order and OrderItem extents; their customers
+ * keep one 8 byte reference per archived order. Customer.getOrders() still lists them and
+ * fetches them lazily, a page at a time, as detached read-only copies.
+ * Records of one customer are written next to each other, so a page is a single read.
+ * Deleting a customer drops its references; the records stay in their segment.
+ */
+public class OrderArchive implements Closeable {
+
+    public static final Set<OrderStatus> ARCHIVABLE =
+            EnumSet.of(OrderStatus.COMPLETE, OrderStatus.DELIVERED, OrderStatus.CANCELLED);
+
+    private static final int OFFSET_BITS = 40; // reference = segment << OFFSET_BITS | offset
+    private static final String SEGMENT_PREFIX = "orders-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final Map<Path, OrderArchive> archives = new ConcurrentHashMap<>();
+
+    private final Path directory;
+    private final AtomicInteger nextSegment;
+    private final Map<Integer, FileChannel> channels = new ConcurrentHashMap<>();
+    private final ReentrantLock archiving = new ReentrantLock(); // one archival run at a time
+
+    private OrderArchive(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+            int segments = 0;
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    String name = file.getFileName().toString();
+                    if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                        int segment = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(),
+                                name.length() - SEGMENT_SUFFIX.length()));
+                        segments = Math.max(segments, segment + 1);
+                    }
+                }
+            }
+            this.nextSegment = new AtomicInteger(segments);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // One archive per directory, customers find theirs again by the directory name.
+    public static OrderArchive open(Path directory) {
+        if (directory == null) {
+            throw new IllegalArgumentException("Archive directory cannot be null");
+        }
+        return archives.computeIfAbsent(directory.toAbsolutePath().normalize(), OrderArchive::new);
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Archives the finished orders placed before the cutoff into a new segment.
+     * Returns the number of archived orders.
+     */
+    public int archive(LocalDateTime cutoff) throws IOException {
+        if (cutoff == null) {
+            throw new IllegalArgumentException("Cutoff cannot be null");
+        }
+        archiving.lock();
+        try {
+            return archiveBefore(cutoff);
+        } finally {
+            archiving.unlock();
+        }
+    }
+
+    private int archiveBefore(LocalDateTime cutoff) throws IOException {
+        Map<Customer, List<Order>> ordersByCustomer = new LinkedHashMap<>();
+        int count = 0;
+        for (Order order : DomainSnapshot.pin().getOrders()) {
+            if (ARCHIVABLE.contains(order.getStatus()) && order.getOrderDate().isBefore(cutoff)
+                    && order.getCustomer() != null) {
+                ordersByCustomer.computeIfAbsent(order.getCustomer(), c -> new ArrayList<>()).add(order);
+                count++;
+            }
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        int segment = nextSegment.getAndIncrement();
+        long[] references = new long[count];
+        try (OutputStream out = Files.newOutputStream(segmentFile(segment), StandardOpenOption.CREATE_NEW)) {
+            var buffer = new ByteArrayOutputStream(256);
+            var record = new DataOutputStream(buffer);
+            long offset = 0;
+            int next = 0;
+            for (List<Order> orders : ordersByCustomer.values()) {
+                for (Order order : orders) {
+                    buffer.reset();
+                    record.writeInt(0); // length, patched below
+                    writeRecord(record, order);
+                    byte[] bytes = buffer.toByteArray();
+                    ByteBuffer.wrap(bytes).putInt(0, bytes.length - Integer.BYTES);
+                    out.write(bytes);
+                    references[next++] = (long) segment << OFFSET_BITS | offset;
+                    offset += bytes.length;
+                }
+            }
+        }
+        Order.archiveAll(ordersByCustomer, references, directory.toString());
+        return count;
+    }
+
+    // Reads the referenced records [from, to) of the customer; consecutive records take a single read.
+    List<Order> fetch(Customer customer, long[] references, int from, int to) {
+        List<Order> orders = new ArrayList<>(to - from);
+        try {
+            int i = from;
+            while (i < to) {
+                // a run of records in the same segment, read from the first to the end of the last
+                int segment = segmentOf(references[i]);
+                long start = offsetOf(references[i]);
+                int end = i + 1;
+                while (end < to && segmentOf(references[end]) == segment
+                        && offsetOf(references[end]) > offsetOf(references[end - 1])) {
+                    end++;
+                }
+                FileChannel channel = channel(segment);
+                long last = offsetOf(references[end - 1]);
+                ByteBuffer lastLength = read(channel, last, Integer.BYTES);
+                ByteBuffer run = read(channel, start, (int) (last - start) + Integer.BYTES + lastLength.getInt());
+                List<RecordData> records = new ArrayList<>(end - i);
+                Set<String> productIds = new HashSet<>();
+                for (int r = i; r < end; r++) {
+                    int position = (int) (offsetOf(references[r]) - start) + Integer.BYTES;
+                    RecordData data = readRecord(new DataInputStream(
+                            new ByteArrayInputStream(run.array(), position, run.limit() - position)));
+                    records.add(data);
+                    productIds.addAll(data.productIds);
+                }
+                Map<String, Product> products = Product.findByIds(productIds);
+                for (RecordData data : records) {
+                    orders.add(data.restore(customer, products));
+                }
+                i = end;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return orders;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (FileChannel channel : channels.values()) {
+            channel.close();
+        }
+        channels.clear();
+    }
+
+    // ------------------------------------------------------------------------
+    // Record format: status, date, currency, total, then product id and quantity per item
+    // ------------------------------------------------------------------------
+
+    private static final class RecordData {
+        private OrderStatus status;
+        private LocalDateTime orderDate;
+        private Currency currency;
+        private long totalAmount;
+        private List<String> productIds;
+        private int[] quantities;
+
+        private Order restore(Customer customer, Map<String, Product> products) {
+            List<Product> items = new ArrayList<>(productIds.size());
+            for (String productId : productIds) {
+                Product product = products.get(productId);
+                if (product == null) {
+                    throw new IllegalStateException("Archived order references unknown product " + productId);
+                }
+                items.add(product);
+            }
+            return Order.restore(customer, status, orderDate, currency, totalAmount, items, quantities);
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, Order order) throws IOException {
+        out.writeByte(order.getStatus().ordinal());
+        out.writeLong(order.getOrderDate().toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(order.getOrderDate().getNano());
+        out.writeUTF(order.getCurrency().getCurrencyCode());
+        out.writeLong(order.getTotalMinor());
+        List<OrderItem> items = order.getItems();
+        out.writeInt(items.size());
+        for (OrderItem item : items) {
+            out.writeUTF(item.getProduct().getId());
+            out.writeInt(item.getQuantity());
+        }
+    }
+
+    private static RecordData readRecord(DataInputStream in) throws IOException {
+        var data = new RecordData();
+        data.status = OrderStatus.values()[in.readByte()];
+        data.orderDate = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+        data.currency = Currency.getInstance(in.readUTF());
+        data.totalAmount = in.readLong();
+        int itemCount = in.readInt();
+        data.productIds = new ArrayList<>(itemCount);
+        data.quantities = new int[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            data.productIds.add(in.readUTF());
+            data.quantities[i] = in.readInt();
+        }
+        return data;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Archive segment is truncated");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private FileChannel channel(int segment) {
+        return channels.computeIfAbsent(segment, s -> {
+            try {
+                return FileChannel.open(segmentFile(s), StandardOpenOption.READ);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private Path segmentFile(int segment) {
+        return directory.resolve(SEGMENT_PREFIX + segment + SEGMENT_SUFFIX);
+    }
+
+    private static int segmentOf(long reference) {
+        return (int) (reference >>> OFFSET_BITS);
+    }
+
+    private static long offsetOf(long reference) {
+        return reference & ((1L << OFFSET_BITS) - 1);
+    }
+}
@@ -0,0 +1,94 @@
+package pl.edu.pjwstk.byt;
+
+import java.util.Arrays;
+
+/**
+ * Compact input of {@link Order#createAll}: (customer, product id, quantity) lines kept in
+ * parallel arrays. Consecutive lines of the same customer form one order; {@link #endOrder()}
+ * starts a new order even if the next line has the same customer.
+ */
+public class OrderBatch {
+
+    private Customer[] customers;
+    private String[] productIds;
+    private int[] quantities;
+    private int[] orderStarts; // index of the first line of every order
+    private int lineCount;
+    private int orderCount;
+    private boolean orderOpen;
+
+    public OrderBatch() {
+        this(16);
+    }
+
+    public OrderBatch(int expectedLines) {
+        if (expectedLines <= 0) {
+            throw new IllegalArgumentException("Expected lines must be positive");
+        }
+        customers = new Customer[expectedLines];
+        productIds = new String[expectedLines];
+        quantities = new int[expectedLines];
+        orderStarts = new int[Math.max(1, expectedLines / 4)];
+    }
+
+    public OrderBatch add(Customer customer, String productId, int quantity) {
+        if (customer == null)
+            throw new IllegalArgumentException("Order must have a customer");
+        if (productId == null || productId.isBlank())
+            throw new IllegalArgumentException("Product id cannot be empty");
+        if (quantity <= 0)
+            throw new IllegalArgumentException("Quantity must be positive");
+
+        if (lineCount == customers.length) {
+            int capacity = customers.length * 2;
+            customers = Arrays.copyOf(customers, capacity);
+            productIds = Arrays.copyOf(productIds, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+        }
+        if (!orderOpen || customers[lineCount - 1] != customer) {
+            if (orderCount == orderStarts.length) {
+                orderStarts = Arrays.copyOf(orderStarts, orderStarts.length * 2);
+            }
+            orderStarts[orderCount++] = lineCount;
+            orderOpen = true;
+        }
+        customers[lineCount] = customer;
+        productIds[lineCount] = productId;
+        quantities[lineCount] = quantity;
+        lineCount++;
+        return this;
+    }
+
+    public OrderBatch endOrder() {
+        orderOpen = false;
+        return this;
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    int orderStart(int order) {
+        return orderStarts[order];
+    }
+
+    int orderEnd(int order) {
+        return order + 1 < orderCount ? orderStarts[order + 1] : lineCount;
+    }
+
+    Customer customer(int line) {
+        return customers[line];
+    }
+
+    String productId(int line) {
+        return productIds[line];
+    }
+
+    int quantity(int line) {
+        return quantities[line];
+    }
+}
@@ -2,18 +2,28 @@ package pl.edu.pjwstk.byt;
 
 import java.io.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 
+import pl.edu.pjwstk.byt.extent.Extent;
+
 public class OrderItem implements Serializable {
     private static final long serialVersionUID = 1L;
     private static final String EXTENT_FILE = "OrderItem_extent.ser";
-    private static List<OrderItem> extent = new ArrayList<>();
+    private static final Extent<OrderItem> extent = Extent.versioned(EXTENT_FILE, DomainSnapshot.GROUP);
 
     private Order order; // Component of Order (Whole)
     private Product product;
     private int quantity;
+    private transient long rollupUnitPrice; // price and category the line is counted with in SalesRollups
+    private transient Category rollupCategory;
 
     public OrderItem(Order order, Product product, int quantity) {
+        this(order, product, quantity, true);
+    }
+
+    OrderItem(Order order, Product product, int quantity, boolean register) {
         if (order == null)
             throw new IllegalArgumentException("Order cannot be null");
         if (product == null)
@@ -27,7 +37,18 @@ public class OrderItem implements Serializable {
 
         this.order.addOrderItemInternal(this);
 
-        extent.add(this);
+        if (register) {
+            extent.add(this);
+            SalesSketches.itemRegistered(this);
+        }
+    }
+
+    static void registerAll(List<OrderItem> items) {
+        extent.addAll(items);
+    }
+
+    static Extent<OrderItem> liveExtent() {
+        return extent;
     }
 
     public Order getOrder() {
@@ -45,12 +66,44 @@ public class OrderItem implements Serializable {
     public void setQuantity(int quantity) {
         if (quantity <= 0)
             throw new IllegalArgumentException("Quantity must be positive");
+        if (order != null) {
+            order.checkModifiable();
+        }
+        int oldQuantity = this.quantity;
         this.quantity = quantity;
-        order.calculateTotal(); // Update whole
+        extent.touch();
+        if (order != null) {
+            order.itemQuantityChangedInternal(this, oldQuantity); // Update whole
+        }
+    }
+
+    // Called when the line is first counted in SalesRollups; later changes are reversed with these values.
+    void captureForRollups() {
+        rollupUnitPrice = product.getPriceMinor();
+        rollupCategory = product.getCategory();
+    }
+
+    long getRollupUnitPrice() {
+        return rollupUnitPrice;
+    }
+
+    Category getRollupCategory() {
+        return rollupCategory;
+    }
+
+    public Money getLineTotal() {
+        return Money.ofMinor(getLineTotalMinor(), product.getCurrency());
+    }
+
+    public long getLineTotalMinor() {
+        return Money.multiply(product.getPriceMinor(), quantity);
     }
 
     // Lifecycle method for Composition
     public void dispose() {
+        if (order != null) {
+            order.checkModifiable();
+        }
         extent.remove(this);
         if (order != null) {
             order.removeOrderItemInternal(this);
@@ -58,28 +111,28 @@ public class OrderItem implements Serializable {
         }
     }
 
-    // Internal use for Order.delete()
-    protected void disposeWithoutRemovingFromOrder() {
-        extent.remove(this);
-        this.order = null;
+    // Internal use for Order.deleteAll(), removes the items of deleted orders with a single pass over the extent
+    static void disposeAll(Collection<OrderItem> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        extent.removeAll(new HashSet<>(items));
+        for (OrderItem item : items) {
+            item.order = null;
+        }
     }
 
     // Extent persistence
     public static List<OrderItem> getExtent() {
-        return new ArrayList<>(extent);
+        return extent.snapshot();
     }
 
     public static void saveExtent() throws IOException {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(EXTENT_FILE))) {
-            oos.writeObject(extent);
-        }
+        extent.save();
     }
 
-    @SuppressWarnings("unchecked")
     public static void loadExtent() throws IOException, ClassNotFoundException {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(EXTENT_FILE))) {
-            extent = (List<OrderItem>) ois.readObject();
-        }
+        extent.load();
     }
 
     @Override
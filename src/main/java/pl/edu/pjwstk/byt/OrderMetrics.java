@@ -0,0 +1,108 @@
+package pl.edu.pjwstk.byt;
+
+import java.util.Currency;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import pl.edu.pjwstk.byt.utils.SlidingWindowCounter;
+
+/**
+ * Real-time order metrics over the last minute, 5 minutes and hour: orders created, revenue
+ * per currency, items sold and status transitions per target status. Order and OrderItem
+ * update them on their hot paths; an update is one CAS on a striped one-second slot, with no
+ * lock and no allocation. Unlike SalesRollups these count events as they happen (by wall
+ * clock, not order date) and nothing is taken back when orders are deleted or reduced.
+ */
+public final class OrderMetrics {
+
+    public enum Window {
+        ONE_MINUTE(60_000),
+        FIVE_MINUTES(300_000),
+        ONE_HOUR(3_600_000);
+
+        private final long millis;
+
+        Window(long millis) {
+            this.millis = millis;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+    }
+
+    private static final int SLOTS = 3_600; // one-second slots, one hour
+    private static final int STRIPES = Math.max(2, Integer.highestOneBit(Runtime.getRuntime().availableProcessors()) * 2);
+
+    private static final SlidingWindowCounter ordersCreated = newCounter();
+    private static final SlidingWindowCounter itemsSold = newCounter();
+    private static final Map<Currency, SlidingWindowCounter> revenue = new ConcurrentHashMap<>();
+    private static final SlidingWindowCounter[] transitions = new SlidingWindowCounter[OrderStatus.values().length];
+
+    static {
+        for (int i = 0; i < transitions.length; i++) {
+            transitions[i] = newCounter();
+        }
+    }
+
+    private OrderMetrics() {
+    }
+
+    private static SlidingWindowCounter newCounter() {
+        return new SlidingWindowCounter(SLOTS, 1_000, STRIPES, System::currentTimeMillis);
+    }
+
+    // ------------------------------------------------------------------------
+    // Updates, called by Order and OrderItem
+    // ------------------------------------------------------------------------
+
+    static void orderCreated(Order order, int units) {
+        ordersCreated.increment();
+        itemsSold.add(units);
+        revenueCounter(order.getCurrency()).add(order.getTotalMinor());
+    }
+
+    // Items added to an existing order, or a quantity raised.
+    static void itemsAdded(Order order, Product product, int quantity) {
+        itemsSold.add(quantity);
+        revenueCounter(order.getCurrency()).add(Money.multiply(product.getPriceMinor(), quantity));
+    }
+
+    static void statusChanged(OrderStatus status) {
+        transitions[status.ordinal()].increment();
+    }
+
+    private static SlidingWindowCounter revenueCounter(Currency currency) {
+        SlidingWindowCounter counter = revenue.get(currency);
+        return counter != null ? counter : revenue.computeIfAbsent(currency, c -> newCounter());
+    }
+
+    // ------------------------------------------------------------------------
+    // Reads
+    // ------------------------------------------------------------------------
+
+    public static long getOrdersCreated(Window window) {
+        return ordersCreated.sum(window.millis);
+    }
+
+    public static double getOrderRatePerSecond(Window window) {
+        return ordersCreated.rate(window.millis);
+    }
+
+    public static long getItemsSold(Window window) {
+        return itemsSold.sum(window.millis);
+    }
+
+    public static Money getRevenue(Currency currency, Window window) {
+        if (currency == null) {
+            throw new IllegalArgumentException("Currency cannot be null");
+        }
+        SlidingWindowCounter counter = revenue.get(currency);
+        return Money.ofMinor(counter == null ? 0 : counter.sum(window.millis), currency);
+    }
+
+    // Transitions into the given status.
+    public static long getStatusTransitions(OrderStatus status, Window window) {
+        return transitions[status.ordinal()].sum(window.millis);
+    }
+}
@@ -2,101 +2,303 @@ package pl.edu.pjwstk.byt;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
-public class Product implements Serializable {
-    private static final long serialVersionUID = 1L;
+import pl.edu.pjwstk.byt.extent.Extent;
+import pl.edu.pjwstk.byt.extent.SerializationCodec;
+import pl.edu.pjwstk.byt.tx.VersionStamp;
+import pl.edu.pjwstk.byt.tx.Versioned;
+
+public class Product implements Serializable, Versioned {
+    private static final long serialVersionUID = 3L; // 2: minor unit price, atomic stock, rating histogram; 3: flash sale stock
     private static final String EXTENT_FILE = "Product_extent.ser";
-    private static List<Product> extent = new ArrayList<>();
+    private static final ProductColumnStore columns = new ProductColumnStore();
+    private static final Extent<Product> extent = new Extent<>(EXTENT_FILE, columns, new SerializationCodec<>());
+    private static final AtomicReferenceFieldUpdater<Product, StripedStock> FLASH_SALE =
+            AtomicReferenceFieldUpdater.newUpdater(Product.class, StripedStock.class, "flashSaleStock");
 
     private String name; // basic attribute
     private String description;
-    private double price;
-    private int stockQuantity;
+    private long price; // minor units of currency
+    private Currency currency;
+    private final AtomicInteger stockQuantity; // available stock, reservations already taken out
     private List<String> images; // multi value attribute [1..*]
-    private List<Integer> rating;
+    private int[] ratingHistogram; // number of reviews per star, index 0 = 1 star
+    private long ratingSum;
+    private int ratingCount;
     private double avgRating; // derived attribute
     private final String id; // unique identifier (GUID)
     private Category category; // 0..1 aggregation
+    private final VersionStamp versionStamp = new VersionStamp(); // bumped on stock changes outside a flash sale
+    private transient int slot = -1; // position in the extent column store
+    private transient volatile StripedStock flashSaleStock; // set while a flash sale is running
 
     public Product(String name, String description, double price, int stockQuantity, List<String> images) {
+        this(name, description, Money.of(price), stockQuantity, images);
+    }
+
+    public Product(String name, String description, Money price, int stockQuantity, List<String> images) {
         if (name == null || name.isBlank()) throw new IllegalArgumentException("Name cannot be empty");
         if (description == null || description.isBlank()) throw new IllegalArgumentException("Description cannot be empty");
-        if (price < 0) throw new IllegalArgumentException("Price cannot be negative");
+        if (price == null) throw new IllegalArgumentException("Price cannot be null");
+        if (price.isNegative()) throw new IllegalArgumentException("Price cannot be negative");
         if (stockQuantity < 0) throw new IllegalArgumentException("Stock quantity cannot be negative");
         if (images == null || images.isEmpty()) throw new IllegalArgumentException("At least one image required");
         this.id = UUID.randomUUID().toString();
         this.name = name;
         this.description = description;
-        this.price = price;
-        this.stockQuantity = stockQuantity;
+        this.price = price.getMinorUnits();
+        this.currency = price.getCurrency();
+        this.stockQuantity = new AtomicInteger(stockQuantity);
         this.images = new ArrayList<>(images);
-        this.rating = new ArrayList<>();
+        this.ratingHistogram = new int[5];
         this.avgRating = 0;
         extent.add(this);
     }
 
+    // Detached copy read back by DiskProductStore; it is not part of the extent and has no category.
+    private Product(String id, String name, String description, Money price, int stockQuantity,
+                    List<String> images, int[] ratingHistogram) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.price = price.getMinorUnits();
+        this.currency = price.getCurrency();
+        this.stockQuantity = new AtomicInteger(stockQuantity);
+        this.images = new ArrayList<>(images);
+        this.ratingHistogram = ratingHistogram.clone();
+        for (int stars = 1; stars <= ratingHistogram.length; stars++) {
+            ratingSum += (long) stars * ratingHistogram[stars - 1];
+            ratingCount += ratingHistogram[stars - 1];
+        }
+        calculateAverageRating();
+    }
+
+    static Product restore(String id, String name, String description, Money price, int stockQuantity,
+                           List<String> images, int[] ratingHistogram) {
+        return new Product(id, name, description, price, stockQuantity, images, ratingHistogram);
+    }
+
     // product <-> category 0..1 aggregation implementation
     public Category getCategory() {
         return category;
     }
     protected void assignCategory(Category category) {
         this.category = category;
+        extent.touch();
     }
 
     protected void removeCategory() {
         this.category = null;
+        extent.touch();
     }
 
+    // check and update happen in a single CAS, concurrent callers can never oversell
     public void updateStock(int change) {
-        if (stockQuantity + change < 0) {
+        if (change >= 0) {
+            returnStock(change);
+        } else if (!tryTakeStock(-change)) {
             throw new IllegalArgumentException("Not enough stock");
         }
-        stockQuantity += change;
     }
 
+    // Takes the quantity out of the available stock if there is enough of it, used by reservations.
+    protected boolean tryTakeStock(int quantity) {
+        var striped = flashSaleStock;
+        if (striped != null && striped.tryTake(quantity)) {
+            return true; // the stock column is refreshed when the flash sale ends
+        }
+        int current;
+        do {
+            current = stockQuantity.get();
+            if (current < quantity) {
+                return false;
+            }
+        } while (!stockQuantity.compareAndSet(current, current - quantity));
+        versionStamp.touch();
+        columns.refreshStock(this);
+        extent.touch();
+        return true;
+    }
+
+    // Puts back stock taken by tryTakeStock, e.g. when a reservation is released.
+    protected void returnStock(int quantity) {
+        var striped = flashSaleStock;
+        if (striped != null) {
+            striped.add(quantity);
+            return;
+        }
+        stockQuantity.addAndGet(quantity);
+        versionStamp.touch();
+        columns.refreshStock(this);
+        extent.touch();
+    }
+
+    public void startFlashSale() {
+        startFlashSale(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Splits the available stock into per-thread stripes, so that thousands of concurrent
+     * buyers of this product do not all CAS the same counter. Starting and ending a sale
+     * are CAS operations as well, nothing on this path takes a lock.
+     */
+    public void startFlashSale(int stripes) {
+        var striped = new StripedStock(stripes, stockQuantity);
+        if (!FLASH_SALE.compareAndSet(this, null, striped)) {
+            throw new IllegalStateException("Flash sale is already running");
+        }
+        striped.distribute(stockQuantity.getAndSet(0));
+    }
+
+    // Folds the striped stock back into the single counter.
+    public void endFlashSale() {
+        var striped = FLASH_SALE.getAndSet(this, null);
+        if (striped == null) {
+            throw new IllegalStateException("No flash sale is running");
+        }
+        striped.close();
+        columns.refreshStock(this);
+        extent.touch();
+    }
+
+    @Override
+    public VersionStamp getVersionStamp() {
+        return versionStamp;
+    }
+
+    public boolean isFlashSale() {
+        return flashSaleStock != null;
+    }
+
+    // O(1), running sum and count are maintained by addReview
     public void calculateAverageRating() {
-        if (rating.isEmpty()) {
+        if (ratingCount == 0) {
             avgRating = 0;
             return;
         }
-        double sum = 0;
-        for (int r : rating) sum += r;
-        avgRating = sum / rating.size();
+        avgRating = (double) ratingSum / ratingCount;
     }
 
     public void addReview(int stars) {
         if (stars < 1 || stars > 5) {
             throw new IllegalArgumentException("Stars must be between 1 and 5");
         }
-        rating.add(stars);
+        ratingHistogram[stars - 1]++;
+        ratingSum += stars;
+        ratingCount++;
         calculateAverageRating();
+        columns.refresh(this);
+        extent.touch();
     }
 
     public boolean isInStock() {
-        return stockQuantity > 0;
+        return getStockQuantity() > 0;
     }
 
     public String getName() { return name; }
-    public double getPrice() { return price; }
+    public String getDescription() { return description; }
+    public double getPrice() { return Money.toDouble(price, currency); }
+    public Money getPriceMoney() { return Money.ofMinor(price, currency); }
+    public long getPriceMinor() { return price; }
+    public Currency getCurrency() { return currency; }
     public double getAvgRating() { return avgRating; }
+    public int getStockQuantity() {
+        var striped = flashSaleStock;
+        return stockQuantity.get() + (striped != null ? striped.sum() : 0);
+    }
+    public int getRatingCount() { return ratingCount; }
+
+    public int getRatingCount(int stars) {
+        if (stars < 1 || stars > 5) {
+            throw new IllegalArgumentException("Stars must be between 1 and 5");
+        }
+        return ratingHistogram[stars - 1];
+    }
+
+    // share of reviews with the given number of stars, in percent
+    public double getRatingPercentage(int stars) {
+        int count = getRatingCount(stars);
+        return ratingCount == 0 ? 0 : count * 100.0 / ratingCount;
+    }
+
+    // copy of the histogram, index 0 holds the number of 1 star reviews
+    public int[] getRatingDistribution() {
+        return ratingHistogram.clone();
+    }
     public String getId() { return id; }
 
+    int getSlot() { return slot; }
+    void setSlot(int slot) { this.slot = slot; }
+
+
+    // The stock of a running flash sale sits in the transient stripes; it is saved after the fields.
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        var striped = flashSaleStock;
+        out.writeInt(striped != null ? striped.sum() : 0);
+    }
+
+    // A loaded product is not in a flash sale, the saved stripe stock goes back to the single counter.
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        stockQuantity.addAndGet(in.readInt());
+    }
+
+    static Extent<Product> liveExtent() {
+        return extent;
+    }
 
     public static List<Product> getExtent() {
-        return new ArrayList<>(extent);
+        return extent.snapshot();
     }
 
-    public static void saveExtent() throws IOException {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(EXTENT_FILE))) {
-            oos.writeObject(extent);
+    // extent wide scans served from the primitive columns
+    public static Product findById(String id) {
+        return columns.findById(id);
+    }
+
+    // Resolves many ids at once; unknown ids are missing from the result.
+    public static Map<String, Product> findByIds(Set<String> ids) {
+        Map<String, Product> found = new HashMap<>(ids.size() * 2);
+        for (String id : ids) {
+            Product product = columns.findById(id);
+            if (product != null) {
+                found.put(id, product);
+            }
         }
+        return found;
     }
 
-    @SuppressWarnings("unchecked")
-    public static void loadExtent() throws IOException, ClassNotFoundException {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(EXTENT_FILE))) {
-            extent = (List<Product>) ois.readObject();
+    public static int countInStock() {
+        return columns.countInStock();
+    }
+
+    public static long getTotalStock() {
+        return columns.totalStock();
+    }
+
+    public static List<Product> findByPriceRange(double minPrice, double maxPrice) {
+        if (minPrice > maxPrice) {
+            throw new IllegalArgumentException("Min price cannot be greater than max price");
+        }
+        return columns.findByPriceRange(minPrice, maxPrice);
+    }
+
+    public static List<Product> findTopRated(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit cannot be negative");
         }
+        return columns.findTopRated(limit);
+    }
+
+    public static void saveExtent() throws IOException {
+        extent.save();
+    }
+
+    public static void loadExtent() throws IOException, ClassNotFoundException {
+        extent.load();
     }
 
     public List<String> getImages() {
@@ -106,6 +308,6 @@ public class Product implements Serializable {
 
     @Override
     public String toString() {
-        return name + " Price: " + price + " Avg Rating: " + avgRating;
+        return name + " Price: " + getPriceMoney() + " Avg Rating: " + avgRating;
     }
 }
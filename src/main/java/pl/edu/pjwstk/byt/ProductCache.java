@@ -0,0 +1,177 @@
+package pl.edu.pjwstk.byt;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import pl.edu.pjwstk.byt.utils.WTinyLfuCache;
+
+/**
+ * Read-through cache in front of a DiskProductStore, keyed by product id and bounded by an
+ * estimated byte budget. W-TinyLFU admission keeps the frequently read products resident when
+ * crawlers scan the long tail of the catalog; a plain LRU would be flushed by such scans.
+ * Products are loaded outside the cache lock, so a slow disk read does not block cache hits.
+ * Concurrent misses of one id share a single load; a put or invalidate while it runs keeps its
+ * result out of the cache, so a stale copy never replaces a newer one.
+ */
+public class ProductCache {
+
+    private static final int OBJECT_OVERHEAD = 256; // Product, its collections and boxed fields
+
+    private final DiskProductStore store;
+    private final WTinyLfuCache<String, Product> cache;
+    private final Map<String, CompletableFuture<Product>> loading = new HashMap<>(); // guarded by lock
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public ProductCache(DiskProductStore store, long maximumBytes) {
+        if (store == null) {
+            throw new IllegalArgumentException("Product store cannot be null");
+        }
+        this.store = store;
+        int expectedSize = (int) Math.min(Integer.MAX_VALUE, Math.max(1, maximumBytes / OBJECT_OVERHEAD));
+        this.cache = new WTinyLfuCache<>(maximumBytes, expectedSize, ProductCache::estimateSize);
+    }
+
+    // Null if the product is neither cached nor in the store.
+    public Product get(String id) throws IOException {
+        CompletableFuture<Product> load;
+        boolean owner = false;
+        lock.lock();
+        try {
+            Product cached = cache.get(id);
+            if (cached != null) {
+                return cached;
+            }
+            load = loading.get(id);
+            if (load == null) {
+                load = new CompletableFuture<>();
+                loading.put(id, load);
+                owner = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (!owner) {
+            return await(load);
+        }
+        Product loaded;
+        try {
+            loaded = store.load(id);
+        } catch (IOException | RuntimeException e) {
+            finishLoad(id, load, null);
+            load.completeExceptionally(e);
+            throw e;
+        }
+        finishLoad(id, load, loaded);
+        load.complete(loaded);
+        return loaded;
+    }
+
+    // Caches the loaded product unless a put or invalidate of the id superseded the load.
+    private void finishLoad(String id, CompletableFuture<Product> load, Product loaded) {
+        lock.lock();
+        try {
+            if (loading.get(id) == load) {
+                loading.remove(id);
+                if (loaded != null) {
+                    cache.put(id, loaded);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static Product await(CompletableFuture<Product> load) throws IOException {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Loading product failed", e.getCause());
+        }
+    }
+
+    // Write-through: the store is updated first, then the cached copy.
+    public void put(Product product) throws IOException {
+        store.put(product);
+        lock.lock();
+        try {
+            loading.remove(product.getId());
+            cache.put(product.getId(), product);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(String id) {
+        lock.lock();
+        try {
+            loading.remove(id);
+            cache.invalidate(id);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getHitCount() {
+        lock.lock();
+        try {
+            return cache.getHitCount();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getMissCount() {
+        lock.lock();
+        try {
+            return cache.getMissCount();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getEvictionCount() {
+        lock.lock();
+        try {
+            return cache.getEvictionCount();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public double getHitRate() {
+        lock.lock();
+        try {
+            return cache.getHitRate();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getCachedBytes() {
+        lock.lock();
+        try {
+            return cache.weightedSize();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Rough heap footprint: fixed overhead plus two bytes per character of the text fields.
+    static long estimateSize(Product product) {
+        long chars = product.getId().length() + product.getName().length() + product.getDescription().length();
+        for (String image : product.getImages()) {
+            chars += image.length() + 16;
+        }
+        return OBJECT_OVERHEAD + 2 * chars;
+    }
+}
@@ -0,0 +1,404 @@
+package pl.edu.pjwstk.byt;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import pl.edu.pjwstk.byt.extent.ReplaceableStorage;
+
+/**
+ * Storage backend of the Product extent.
+ * Besides the products themselves it keeps their hot numeric fields (price, stock,
+ * average rating, rating count) in off-heap primitive columns indexed by the product
+ * slot (its position in the extent), so catalog wide scans are sequential primitive
+ * reads instead of walking the Product object graph.
+ * Structural changes take the write lock; refreshes and scans share the read lock,
+ * refreshes only touch the slot of their own product.
+ */
+class ProductColumnStore extends AbstractList<Product> implements RandomAccess, ReplaceableStorage<Product> {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final List<Product> products = new ArrayList<>();
+    private final Map<String, Product> byId = new HashMap<>();
+    private DoubleBuffer prices;
+    private IntBuffer stock;
+    private DoubleBuffer avgRatings;
+    private IntBuffer ratingCounts;
+    private int capacity;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    ProductColumnStore() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    // ------------------------------------------------------------------------
+    // List backend
+    // ------------------------------------------------------------------------
+
+    @Override
+    public Product get(int index) {
+        lock.readLock().lock();
+        try {
+            return products.get(index);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return products.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Object[] toArray() {
+        lock.readLock().lock();
+        try {
+            return products.toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public <E> E[] toArray(E[] a) {
+        lock.readLock().lock();
+        try {
+            return products.toArray(a);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void add(int index, Product product) {
+        if (product == null) {
+            throw new IllegalArgumentException("Product cannot be null");
+        }
+        lock.writeLock().lock();
+        try {
+            int size = products.size();
+            if (index < 0 || index > size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            if (size == capacity) {
+                allocate(capacity * 2);
+            }
+            products.add(index, product);
+            byId.put(product.getId(), product);
+            if (index < size) {
+                shift(index, index + 1, size - index);
+                reassignSlots(index + 1);
+            }
+            product.setSlot(index);
+            write(index, product);
+            modCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Product set(int index, Product product) {
+        if (product == null) {
+            throw new IllegalArgumentException("Product cannot be null");
+        }
+        lock.writeLock().lock();
+        try {
+            Product previous = products.set(index, product);
+            byId.remove(previous.getId());
+            byId.put(product.getId(), product);
+            product.setSlot(index);
+            write(index, product);
+            return previous;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Product remove(int index) {
+        lock.writeLock().lock();
+        try {
+            return removeAt(index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Looks up and removes under one write lock, so a concurrent removal cannot shift the slot in between.
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Product product)) {
+            return false;
+        }
+        lock.writeLock().lock();
+        try {
+            int slot = product.getSlot();
+            if (slot < 0 || slot >= products.size() || products.get(slot) != product) {
+                slot = products.indexOf(product);
+            }
+            if (slot < 0) {
+                return false;
+            }
+            removeAt(slot);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Product removeAt(int index) {
+        Product removed = products.remove(index);
+        byId.remove(removed.getId());
+        shift(index + 1, index, products.size() - index);
+        reassignSlots(index);
+        removed.setSlot(-1);
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            products.clear();
+            byId.clear();
+            modCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Used when the extent is loaded: scans never see the store half filled.
+    @Override
+    public void replaceContents(Collection<? extends Product> elements) {
+        lock.writeLock().lock();
+        try {
+            for (Product product : products) {
+                product.setSlot(-1);
+            }
+            products.clear();
+            byId.clear();
+            int newCapacity = capacity;
+            while (newCapacity < elements.size()) {
+                newCapacity *= 2;
+            }
+            if (newCapacity != capacity) {
+                allocate(newCapacity);
+            }
+            for (Product product : elements) {
+                int slot = products.size();
+                products.add(product);
+                byId.put(product.getId(), product);
+                product.setSlot(slot);
+                write(slot, product);
+            }
+            modCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Column maintenance
+    // ------------------------------------------------------------------------
+
+    /**
+     * Copies the current hot fields of the product into its slot.
+     * Products that are not (or no longer) part of this extent are ignored.
+     */
+    void refresh(Product product) {
+        lock.readLock().lock();
+        try {
+            int slot = product.getSlot();
+            if (slot >= 0 && slot < products.size() && products.get(slot) == product) {
+                write(slot, product);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stock can change from many threads at once. A writer that stored a value which is already
+     * stale writes again, so the column always ends up with the latest stock.
+     */
+    void refreshStock(Product product) {
+        lock.readLock().lock();
+        try {
+            int slot = product.getSlot();
+            if (slot < 0 || slot >= products.size() || products.get(slot) != product) {
+                return;
+            }
+            int value;
+            do {
+                value = product.getStockQuantity();
+                stock.put(slot, value);
+            } while (value != product.getStockQuantity());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void write(int slot, Product product) {
+        prices.put(slot, product.getPrice());
+        stock.put(slot, product.getStockQuantity());
+        avgRatings.put(slot, product.getAvgRating());
+        ratingCounts.put(slot, product.getRatingCount());
+    }
+
+    private void reassignSlots(int from) {
+        for (int i = from; i < products.size(); i++) {
+            products.get(i).setSlot(i);
+        }
+    }
+
+    private void shift(int from, int to, int length) {
+        if (length <= 0) {
+            return;
+        }
+        prices.put(to, prices, from, length);
+        stock.put(to, stock, from, length);
+        avgRatings.put(to, avgRatings, from, length);
+        ratingCounts.put(to, ratingCounts, from, length);
+    }
+
+    private void allocate(int newCapacity) {
+        DoubleBuffer newPrices = directDoubles(newCapacity);
+        IntBuffer newStock = directInts(newCapacity);
+        DoubleBuffer newAvgRatings = directDoubles(newCapacity);
+        IntBuffer newRatingCounts = directInts(newCapacity);
+        int size = products.size();
+        if (size > 0) {
+            newPrices.put(0, prices, 0, size);
+            newStock.put(0, stock, 0, size);
+            newAvgRatings.put(0, avgRatings, 0, size);
+            newRatingCounts.put(0, ratingCounts, 0, size);
+        }
+        prices = newPrices;
+        stock = newStock;
+        avgRatings = newAvgRatings;
+        ratingCounts = newRatingCounts;
+        capacity = newCapacity;
+    }
+
+    private static DoubleBuffer directDoubles(int capacity) {
+        return ByteBuffer.allocateDirect(capacity * Double.BYTES).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+    }
+
+    private static IntBuffer directInts(int capacity) {
+        return ByteBuffer.allocateDirect(capacity * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    Product findById(String id) {
+        lock.readLock().lock();
+        try {
+            return byId.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Column scans
+    // ------------------------------------------------------------------------
+
+    int countInStock() {
+        lock.readLock().lock();
+        try {
+            int count = 0;
+            for (int i = 0, size = products.size(); i < size; i++) {
+                if (stock.get(i) > 0) {
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long totalStock() {
+        lock.readLock().lock();
+        try {
+            long total = 0;
+            for (int i = 0, size = products.size(); i < size; i++) {
+                total += stock.get(i);
+            }
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    List<Product> findByPriceRange(double minPrice, double maxPrice) {
+        lock.readLock().lock();
+        try {
+            List<Product> result = new ArrayList<>();
+            for (int i = 0, size = products.size(); i < size; i++) {
+                double price = prices.get(i);
+                if (price >= minPrice && price <= maxPrice) {
+                    result.add(products.get(i));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Best rated products first; products without reviews are skipped.
+     * Keeps only the best {@code limit} slots while scanning, so the cost is O(n * limit).
+     */
+    List<Product> findTopRated(int limit) {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            limit = Math.min(limit, products.size()); // the limit may be far larger than the catalog
+            int[] best = new int[limit];
+            int found = 0;
+            for (int i = 0, size = products.size(); i < size; i++) {
+                if (ratingCounts.get(i) == 0) {
+                    continue;
+                }
+                double rating = avgRatings.get(i);
+                if (found == limit && rating <= avgRatings.get(best[found - 1])) {
+                    continue;
+                }
+                int pos = found < limit ? found++ : found - 1;
+                while (pos > 0 && avgRatings.get(best[pos - 1]) < rating) {
+                    best[pos] = best[pos - 1];
+                    pos--;
+                }
+                best[pos] = i;
+            }
+            List<Product> result = new ArrayList<>(found);
+            for (int i = 0; i < found; i++) {
+                result.add(products.get(best[i]));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
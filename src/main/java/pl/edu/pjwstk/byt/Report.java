@@ -1,7 +1,20 @@
 package pl.edu.pjwstk.byt;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Content of a report, either a String or a file written by {@link ReportWriter}.
+ * File-backed content is read a chunk at a time through openReader() or getChunk(), so
+ * reports larger than the heap can be exported; getContent() reads all of it into one String.
+ * The owner of a file-backed report removes its file with delete() once it is no longer needed.
+ */
 public class Report {
     private String content;
+    private ReportChunks chunks; // set for file-backed content
 
     public Report() {
     }
@@ -10,11 +23,99 @@ public class Report {
         this.content = content;
     }
 
+    Report(ReportChunks chunks) {
+        this.chunks = chunks;
+    }
+
+    // Reopens a report file written by ReportWriter.
+    public static Report open(Path file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("Report file cannot be null");
+        }
+        return new Report(ReportChunks.open(file));
+    }
+
     public String getContent() {
-        return content;
+        if (chunks == null) {
+            return content;
+        }
+        if (chunks.getLength() > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Report is too large for a String, use openReader()");
+        }
+        var text = new StringBuilder((int) chunks.getLength());
+        for (int i = 0; i < chunks.getChunkCount(); i++) {
+            text.append(chunks.readChunk(i));
+        }
+        return text.toString();
     }
 
     public void setContent(String content) {
         this.content = content;
+        this.chunks = null;
+    }
+
+    public boolean isFileBacked() {
+        return chunks != null;
+    }
+
+    // Null for in-memory content.
+    public Path getFile() {
+        return chunks == null ? null : chunks.getFile();
+    }
+
+    // Length of the content in chars.
+    public long getLength() {
+        if (chunks != null) {
+            return chunks.getLength();
+        }
+        return content == null ? 0 : content.length();
+    }
+
+    // In-memory content is a single chunk.
+    public int getChunkCount() {
+        if (chunks != null) {
+            return chunks.getChunkCount();
+        }
+        return content == null || content.isEmpty() ? 0 : 1;
+    }
+
+    public String getChunk(int index) {
+        if (chunks != null) {
+            return chunks.readChunk(index);
+        }
+        if (index != 0 || getChunkCount() == 0) {
+            throw new IndexOutOfBoundsException("Chunk " + index + " of " + getChunkCount());
+        }
+        return content;
+    }
+
+    public Reader openReader() throws IOException {
+        if (chunks == null) {
+            return new StringReader(content == null ? "" : content);
+        }
+        return chunks.openReader();
+    }
+
+    // Deletes the file of a file-backed report; the report is empty afterwards.
+    public void delete() throws IOException {
+        if (chunks != null) {
+            Files.deleteIfExists(chunks.getFile());
+            chunks = null;
+        }
+        content = null;
+    }
+
+    // A report of its own: file-backed content is copied to a new temporary file.
+    Report copy() throws IOException {
+        if (chunks == null) {
+            return new Report(content);
+        }
+        Path target = ReportWriter.createTemporaryFile();
+        try {
+            return new Report(chunks.copyTo(target));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
     }
 }
@@ -0,0 +1,180 @@
+package pl.edu.pjwstk.byt;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Report contents shared by all analysts, keyed by report name. An entry remembers the
+ * versions of the extents the report depends on, read before it was computed, and is served
+ * until one of them changes. Analysts asking for a report that is being computed wait for
+ * that computation instead of starting their own scan.
+ * Large reports are written to a file through getReport(); the cache owns that file and
+ * deletes it when the entry is replaced or invalidated, every caller gets a copy of its own.
+ */
+public class ReportCache {
+
+    private static final ReportCache shared = new ReportCache();
+
+    // Writes the content of a large report, see getReport().
+    @FunctionalInterface
+    public interface Content {
+        void write(ReportWriter writer) throws IOException;
+    }
+
+    private interface Computation<E extends Exception> {
+        Report compute() throws E;
+    }
+
+    private static final class Entry {
+        private final DomainExtent[] dependencies;
+        private final long[] versions;
+        private final CompletableFuture<Report> report = new CompletableFuture<>();
+
+        private Entry(DomainExtent[] dependencies, long[] versions) {
+            this.dependencies = dependencies;
+            this.versions = versions;
+        }
+
+        private boolean isCurrent(DomainExtent[] dependencies, long[] versions) {
+            return Arrays.equals(this.dependencies, dependencies) && Arrays.equals(this.versions, versions);
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public static ReportCache shared() {
+        return shared;
+    }
+
+    /**
+     * Content of the named report: cached while none of the extents it depends on changed,
+     * otherwise computed once by the first caller. A failed computation is not cached.
+     */
+    public String get(String name, Set<DomainExtent> dependsOn, Supplier<String> compute) {
+        if (compute == null) {
+            throw new IllegalArgumentException("Dependencies and computation cannot be null");
+        }
+        return lookup(name, dependsOn, () -> new Report(compute.get())).getContent();
+    }
+
+    /**
+     * Same as get() for a report too large for the heap: the first caller streams it to a
+     * temporary file. Every caller gets a copy of the file, which it deletes with Report.delete().
+     */
+    public Report getReport(String name, Set<DomainExtent> dependsOn, Content content) throws IOException {
+        if (content == null) {
+            throw new IllegalArgumentException("Dependencies and computation cannot be null");
+        }
+        while (true) {
+            Report cached = lookup(name, dependsOn, () -> {
+                ReportWriter writer = ReportWriter.temporary();
+                try {
+                    content.write(writer);
+                    return writer.toReport();
+                } catch (IOException | RuntimeException | Error e) {
+                    writer.abort();
+                    throw e;
+                }
+            });
+            try {
+                return cached.copy();
+            } catch (NoSuchFileException e) {
+                // the entry was replaced and its file deleted meanwhile, look again
+            }
+        }
+    }
+
+    private <E extends Exception> Report lookup(String name, Set<DomainExtent> dependsOn, Computation<E> compute)
+            throws E {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Report name cannot be empty");
+        }
+        if (dependsOn == null) {
+            throw new IllegalArgumentException("Dependencies and computation cannot be null");
+        }
+        // in ordinal order, so equal sets give equal arrays
+        DomainExtent[] dependencies = (dependsOn.isEmpty() ? EnumSet.noneOf(DomainExtent.class)
+                : EnumSet.copyOf(dependsOn)).toArray(new DomainExtent[0]);
+        long[] versions = new long[dependencies.length];
+        for (int i = 0; i < dependencies.length; i++) {
+            versions[i] = dependencies[i].getVersion();
+        }
+
+        Entry fresh = new Entry(dependencies, versions);
+        Entry[] replaced = new Entry[1];
+        Entry entry = entries.compute(name, (key, current) -> {
+            if (current != null && current.isCurrent(dependencies, versions)) {
+                return current;
+            }
+            replaced[0] = current;
+            return fresh;
+        });
+        if (entry != fresh) {
+            hits.increment();
+            return join(entry);
+        }
+        misses.increment();
+        discard(replaced[0]);
+        try {
+            fresh.report.complete(compute.compute());
+        } catch (Exception | Error e) {
+            entries.remove(name, fresh);
+            fresh.report.completeExceptionally(e);
+            throw e;
+        }
+        return fresh.report.join();
+    }
+
+    private static Report join(Entry entry) {
+        try {
+            return entry.report.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Report computation failed", e.getCause());
+        }
+    }
+
+    // Deletes the file of an entry that left the cache, once its computation is done.
+    private static void discard(Entry entry) {
+        if (entry == null) {
+            return;
+        }
+        entry.report.thenAccept(report -> {
+            if (report.isFileBacked()) {
+                try {
+                    Files.deleteIfExists(report.getFile());
+                } catch (IOException e) {
+                    report.getFile().toFile().deleteOnExit();
+                }
+            }
+        });
+    }
+
+    public void invalidate(String name) {
+        discard(entries.remove(name));
+    }
+
+    public void invalidateAll() {
+        for (String name : entries.keySet()) {
+            invalidate(name);
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+}
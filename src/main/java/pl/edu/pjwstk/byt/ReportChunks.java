@@ -0,0 +1,162 @@
+package pl.edu.pjwstk.byt;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Read side of a report written by {@link ReportWriter}: the file holds independently
+ * deflated chunks of UTF-8 text followed by an index (see ReportWriter for the layout), so any
+ * chunk can be read and inflated on its own. Only the index is kept in memory.
+ */
+final class ReportChunks {
+
+    private final Path file;
+    private final long[] offsets;
+    private final int[] compressedLengths;
+    private final int[] charCounts;
+    private final long length;
+
+    ReportChunks(Path file, long[] offsets, int[] compressedLengths, int[] charCounts) {
+        this.file = file;
+        this.offsets = offsets;
+        this.compressedLengths = compressedLengths;
+        this.charCounts = charCounts;
+        long total = 0;
+        for (int count : charCounts) {
+            total += count;
+        }
+        this.length = total;
+    }
+
+    // Reads the index from the end of a finished report file.
+    static ReportChunks open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < Long.BYTES) {
+                throw new IOException("Not a report file: " + file);
+            }
+            long indexStart = read(channel, size - Long.BYTES, Long.BYTES).getLong();
+            if (indexStart < 0 || indexStart > size - Long.BYTES - Integer.BYTES) {
+                throw new IOException("Not a report file: " + file);
+            }
+            ByteBuffer index = read(channel, indexStart, (int) (size - Long.BYTES - indexStart));
+            int count = index.getInt();
+            if (count < 0 || index.remaining() != count * (Long.BYTES + 2 * Integer.BYTES)) {
+                throw new IOException("Not a report file: " + file);
+            }
+            long[] offsets = new long[count];
+            int[] compressedLengths = new int[count];
+            int[] charCounts = new int[count];
+            for (int i = 0; i < count; i++) {
+                offsets[i] = index.getLong();
+                compressedLengths[i] = index.getInt();
+                charCounts[i] = index.getInt();
+            }
+            return new ReportChunks(file, offsets, compressedLengths, charCounts);
+        }
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    // Copies the file; the index is the same and is shared with the copy.
+    ReportChunks copyTo(Path target) throws IOException {
+        Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+        return new ReportChunks(target, offsets, compressedLengths, charCounts);
+    }
+
+    int getChunkCount() {
+        return offsets.length;
+    }
+
+    long getLength() {
+        return length;
+    }
+
+    String readChunk(int index) {
+        if (index < 0 || index >= offsets.length) {
+            throw new IndexOutOfBoundsException("Chunk " + index + " of " + offsets.length);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return readChunk(channel, index);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String readChunk(FileChannel channel, int index) throws IOException {
+        ByteBuffer compressed = read(channel, offsets[index], compressedLengths[index]);
+        var inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] text = new byte[charCounts[index] * 3]; // UTF-8 takes at most 3 bytes per char
+            int size = 0;
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(text, size, text.length - size);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary() || size == text.length)) {
+                    throw new IOException("Report chunk " + index + " is truncated");
+                }
+                size += inflated;
+            }
+            return new String(text, 0, size, StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IOException("Report chunk " + index + " is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // Streams the chunks one after another, only one of them is in memory at a time.
+    Reader openReader() throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        return new Reader() {
+            private int next;
+            private String chunk = "";
+            private int position;
+
+            @Override
+            public int read(char[] buffer, int offset, int count) throws IOException {
+                if (count == 0) {
+                    return 0;
+                }
+                while (position == chunk.length()) {
+                    if (next == offsets.length) {
+                        return -1;
+                    }
+                    chunk = readChunk(channel, next++);
+                    position = 0;
+                }
+                int read = Math.min(count, chunk.length() - position);
+                chunk.getChars(position, position + read, buffer, offset);
+                position += read;
+                return read;
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Report file is truncated");
+            }
+        }
+        return buffer.flip();
+    }
+}
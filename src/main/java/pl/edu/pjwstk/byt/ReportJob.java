@@ -0,0 +1,206 @@
+package pl.edu.pjwstk.byt;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * A report computed in the background by a {@link ReportScheduler}. Jobs with a higher
+ * priority start first, equal priorities in submission order. Cancelling a queued job
+ * removes it; a running job sees the cancellation through its Progress and should stop.
+ * A job given StreamingWork writes to a temporary file and completes with a file-backed
+ * report, which its receiver deletes once done with it; the file of a job that fails or is
+ * cancelled is deleted by the job.
+ */
+public class ReportJob implements Comparable<ReportJob> {
+
+    public enum Status { QUEUED, RUNNING, DONE, FAILED, CANCELLED }
+
+    // Handed to the work of a job to report how far it got and to check for cancellation.
+    public interface Progress {
+        void update(double fraction);
+
+        boolean isCancelled();
+    }
+
+    @FunctionalInterface
+    public interface Work {
+        String compute(Progress progress) throws Exception;
+    }
+
+    // Work for large reports: the content goes to the writer instead of a String.
+    @FunctionalInterface
+    public interface StreamingWork {
+        void write(ReportWriter writer, Progress progress) throws Exception;
+    }
+
+    private interface Producer {
+        Report produce(Progress progress) throws Exception;
+    }
+
+    private static final AtomicLong sequences = new AtomicLong();
+
+    private final ReportScheduler scheduler;
+    private final String name;
+    private final int priority;
+    private final long sequence = sequences.getAndIncrement();
+    private final Producer work;
+    private final Consumer<Report> onComplete;
+    private final AtomicReference<Status> status = new AtomicReference<>(Status.QUEUED);
+    private final CompletableFuture<Report> result = new CompletableFuture<>();
+    private volatile double progress;
+
+    ReportJob(ReportScheduler scheduler, String name, int priority, Work work, Consumer<Report> onComplete) {
+        this(scheduler, name, priority, work == null ? null : (Producer) progress -> new Report(work.compute(progress)),
+                onComplete);
+    }
+
+    ReportJob(ReportScheduler scheduler, String name, int priority, StreamingWork work, Consumer<Report> onComplete) {
+        this(scheduler, name, priority, work == null ? null : (Producer) progress -> writeToFile(work, progress),
+                onComplete);
+    }
+
+    private ReportJob(ReportScheduler scheduler, String name, int priority, Producer work, Consumer<Report> onComplete) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Report name cannot be empty");
+        }
+        if (work == null) {
+            throw new IllegalArgumentException("Report work cannot be null");
+        }
+        this.scheduler = scheduler;
+        this.name = name;
+        this.priority = priority;
+        this.work = work;
+        this.onComplete = onComplete;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public Status getStatus() {
+        return status.get();
+    }
+
+    // Between 0 and 1, as last reported by the work; 1 once the job is done.
+    public double getProgress() {
+        return progress;
+    }
+
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    // Completes with the report, or exceptionally when the job failed or was cancelled.
+    public CompletableFuture<Report> toCompletableFuture() {
+        return result.copy();
+    }
+
+    // Waits for the report; throws CancellationException if the job was cancelled.
+    public Report get() throws InterruptedException, ExecutionException {
+        return result.get();
+    }
+
+    /**
+     * Cancels the job unless it already finished. Returns false if it had finished.
+     * A queued job leaves the scheduler's queue and frees its slot.
+     */
+    public boolean cancel() {
+        while (true) {
+            Status current = status.get();
+            if (current != Status.QUEUED && current != Status.RUNNING) {
+                return current == Status.CANCELLED;
+            }
+            if (status.compareAndSet(current, Status.CANCELLED)) {
+                if (current == Status.QUEUED) {
+                    scheduler.dequeue(this);
+                }
+                result.completeExceptionally(new CancellationException("Report " + name + " was cancelled"));
+                return true;
+            }
+        }
+    }
+
+    // Runs on a scheduler thread; a job cancelled while queued is skipped.
+    void run() {
+        if (!status.compareAndSet(Status.QUEUED, Status.RUNNING)) {
+            return;
+        }
+        Report report;
+        try {
+            report = work.produce(new Progress() {
+                @Override
+                public void update(double fraction) {
+                    progress = Math.max(0, Math.min(1, fraction));
+                }
+
+                @Override
+                public boolean isCancelled() {
+                    return status.get() == Status.CANCELLED;
+                }
+            });
+        } catch (Exception | Error e) {
+            if (status.compareAndSet(Status.RUNNING, Status.FAILED)) {
+                result.completeExceptionally(e);
+            }
+            return;
+        }
+        if (!status.compareAndSet(Status.RUNNING, Status.DONE)) {
+            discard(report); // cancelled while running
+            return;
+        }
+        progress = 1;
+        // the report is in the analyst's list before anyone waiting for it wakes up
+        if (onComplete != null) {
+            try {
+                onComplete.accept(report);
+            } catch (RuntimeException | Error e) {
+                status.set(Status.FAILED);
+                discard(report);
+                result.completeExceptionally(e);
+                return;
+            }
+        }
+        result.complete(report);
+    }
+
+    private static Report writeToFile(StreamingWork work, Progress progress) throws Exception {
+        ReportWriter writer = ReportWriter.temporary();
+        try {
+            work.write(writer, progress);
+            return writer.toReport();
+        } catch (Exception | Error e) {
+            writer.abort();
+            throw e;
+        }
+    }
+
+    private static void discard(Report report) {
+        try {
+            report.delete();
+        } catch (IOException e) {
+            report.getFile().toFile().deleteOnExit();
+        }
+    }
+
+    @Override
+    public int compareTo(ReportJob other) {
+        if (priority != other.priority) {
+            return Integer.compare(other.priority, priority);
+        }
+        return Long.compare(sequence, other.sequence);
+    }
+
+    @Override
+    public String toString() {
+        return "ReportJob{" + name + ", priority=" + priority + ", " + status.get() + '}';
+    }
+}
@@ -0,0 +1,122 @@
+package pl.edu.pjwstk.byt;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs report jobs in the background so that analysts never wait on the caller's thread.
+ * Jobs wait in a priority queue; every submission hands the pool one task that runs the
+ * highest-priority job waiting at that time, so an urgent report overtakes queued ones.
+ * The pool is a work-stealing ForkJoinPool, and jobs may fork their own subtasks on it
+ * (see getPool()). At most {@code capacity} jobs can wait; beyond that submit() throws.
+ */
+public class ReportScheduler implements AutoCloseable {
+
+    private static final ReportScheduler shared =
+            new ReportScheduler(Math.max(2, Runtime.getRuntime().availableProcessors() / 2), 1_024);
+
+    private final ForkJoinPool pool;
+    private final PriorityBlockingQueue<ReportJob> queue = new PriorityBlockingQueue<>();
+    private final Semaphore queueSlots;
+
+    public ReportScheduler(int parallelism, int capacity) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.pool = new ForkJoinPool(parallelism);
+        this.queueSlots = new Semaphore(capacity);
+    }
+
+    // Used by Idataanalyst.submitReport; its threads are daemons and it is never closed.
+    public static ReportScheduler shared() {
+        return shared;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    // Number of jobs waiting for a thread; a cancelled job leaves the queue right away.
+    public int getQueuedJobs() {
+        return queue.size();
+    }
+
+    /**
+     * Queues the work as a report job. onComplete (may be null) receives the report before
+     * the job completes, e.g. to add it to the report list of an analyst.
+     */
+    public ReportJob submit(String name, int priority, ReportJob.Work work, Consumer<Report> onComplete) {
+        return enqueue(new ReportJob(this, name, priority, work, onComplete));
+    }
+
+    // Same as submit(), for work that streams a large report to a file; onComplete receives the file-backed report.
+    public ReportJob submit(String name, int priority, ReportJob.StreamingWork work, Consumer<Report> onComplete) {
+        return enqueue(new ReportJob(this, name, priority, work, onComplete));
+    }
+
+    private ReportJob enqueue(ReportJob job) {
+        if (pool.isShutdown()) {
+            throw new IllegalStateException("Report scheduler is closed");
+        }
+        if (!queueSlots.tryAcquire()) {
+            throw new IllegalStateException("Too many queued reports");
+        }
+        queue.add(job);
+        try {
+            pool.execute(this::runNext);
+        } catch (RejectedExecutionException e) {
+            // closed in between: no task will run this job, so it is cancelled like the others still queued
+            cancelQueued();
+            throw new IllegalStateException("Report scheduler is closed", e);
+        }
+        return job;
+    }
+
+    // Called by ReportJob.cancel(); the job gives its queue slot back if it was still waiting.
+    void dequeue(ReportJob job) {
+        if (queue.remove(job)) {
+            queueSlots.release();
+        }
+    }
+
+    private void runNext() {
+        ReportJob job = queue.poll();
+        if (job != null) {
+            queueSlots.release();
+            job.run();
+        }
+    }
+
+    private void cancelQueued() {
+        ReportJob job;
+        while ((job = queue.poll()) != null) {
+            queueSlots.release();
+            job.cancel();
+        }
+    }
+
+    // Cancels the jobs that did not start yet and waits for the running ones; an interrupt is kept for the caller.
+    @Override
+    public void close() {
+        pool.shutdown();
+        cancelQueued();
+        boolean interrupted = false;
+        while (!pool.isTerminated()) {
+            try {
+                pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
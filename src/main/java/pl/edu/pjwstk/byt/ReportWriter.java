@@ -0,0 +1,205 @@
+package pl.edu.pjwstk.byt;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * Streams the content of a large report to a file instead of building it in the heap.
+ * Text is cut into chunks of CHUNK_CHARS characters; every chunk is UTF-8 encoded and deflated
+ * on its own, so a Report can later read any chunk without inflating the ones before it.
+ * File layout: the chunks, then the index (chunk count, and per chunk its offset, compressed
+ * length and char count), then the offset of the index as the last 8 bytes.
+ * Only the chunk being filled is held in memory. Not thread-safe.
+ */
+public class ReportWriter extends Writer {
+
+    public static final int CHUNK_CHARS = 64 * 1024;
+
+    private final Path file;
+    private final OutputStream out;
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private final char[] chunk = new char[CHUNK_CHARS];
+    private int chunkSize;
+    private byte[] compressed = new byte[CHUNK_CHARS];
+    private long position;
+    private long[] offsets = new long[16];
+    private int[] compressedLengths = new int[16];
+    private int[] charCounts = new int[16];
+    private int chunkCount;
+    private ReportChunks finished;
+
+    public ReportWriter(Path file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("Report file cannot be null");
+        }
+        this.file = file;
+        this.out = new BufferedOutputStream(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+    }
+
+    // Writes to a new file in the temporary directory.
+    public static ReportWriter temporary() throws IOException {
+        return new ReportWriter(createTemporaryFile());
+    }
+
+    static Path createTemporaryFile() throws IOException {
+        return Files.createTempFile("report", ".chunks");
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public void write(char[] buffer, int offset, int count) throws IOException {
+        ensureOpen();
+        while (count > 0) {
+            int copied = Math.min(count, CHUNK_CHARS - chunkSize);
+            System.arraycopy(buffer, offset, chunk, chunkSize, copied);
+            chunkSize += copied;
+            offset += copied;
+            count -= copied;
+            if (chunkSize == CHUNK_CHARS) {
+                writeChunk();
+            }
+        }
+    }
+
+    @Override
+    public void write(String text, int offset, int count) throws IOException {
+        ensureOpen();
+        while (count > 0) {
+            int copied = Math.min(count, CHUNK_CHARS - chunkSize);
+            text.getChars(offset, offset + copied, chunk, chunkSize);
+            chunkSize += copied;
+            offset += copied;
+            count -= copied;
+            if (chunkSize == CHUNK_CHARS) {
+                writeChunk();
+            }
+        }
+    }
+
+    // Appends the cells as one CSV row; cells with commas, quotes or line breaks are quoted.
+    public ReportWriter writeRow(Object... cells) throws IOException {
+        for (int i = 0; i < cells.length; i++) {
+            if (i > 0) {
+                write(',');
+            }
+            String cell = String.valueOf(cells[i]);
+            if (cell.indexOf(',') >= 0 || cell.indexOf('"') >= 0 || cell.indexOf('\n') >= 0 || cell.indexOf('\r') >= 0) {
+                write('"');
+                write(cell.replace("\"", "\"\""));
+                write('"');
+            } else {
+                write(cell);
+            }
+        }
+        write('\n');
+        return this;
+    }
+
+    // Chunks are only cut when full; flush just pushes the finished ones to the file.
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        out.flush();
+    }
+
+    // Writes the last chunk and the index.
+    @Override
+    public void close() throws IOException {
+        if (finished != null) {
+            return;
+        }
+        try {
+            if (chunkSize > 0) {
+                writeChunk();
+            }
+            long indexStart = position;
+            var index = new DataOutputStream(out);
+            index.writeInt(chunkCount);
+            for (int i = 0; i < chunkCount; i++) {
+                index.writeLong(offsets[i]);
+                index.writeInt(compressedLengths[i]);
+                index.writeInt(charCounts[i]);
+            }
+            index.writeLong(indexStart);
+            index.flush();
+        } finally {
+            deflater.end();
+            out.close();
+        }
+        finished = new ReportChunks(file, Arrays.copyOf(offsets, chunkCount),
+                Arrays.copyOf(compressedLengths, chunkCount), Arrays.copyOf(charCounts, chunkCount));
+    }
+
+    // Closes the writer and returns the report reading the file.
+    public Report toReport() throws IOException {
+        close();
+        return new Report(finished);
+    }
+
+    // Closes the writer and deletes its file, for a report that failed half way.
+    public void abort() {
+        try {
+            close();
+        } catch (IOException e) {
+            // the file is deleted below anyway
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    private void writeChunk() throws IOException {
+        int chars = chunkSize;
+        // never split a surrogate pair, the high half moves on to the next chunk
+        if (chars == CHUNK_CHARS && Character.isHighSurrogate(chunk[chars - 1])) {
+            chars--;
+        }
+        byte[] text = new String(chunk, 0, chars).getBytes(StandardCharsets.UTF_8);
+        deflater.reset();
+        deflater.setInput(text);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        out.write(compressed, 0, length);
+
+        if (chunkCount == offsets.length) {
+            offsets = Arrays.copyOf(offsets, chunkCount * 2);
+            compressedLengths = Arrays.copyOf(compressedLengths, chunkCount * 2);
+            charCounts = Arrays.copyOf(charCounts, chunkCount * 2);
+        }
+        offsets[chunkCount] = position;
+        compressedLengths[chunkCount] = length;
+        charCounts[chunkCount] = chars;
+        chunkCount++;
+        position += length;
+
+        System.arraycopy(chunk, chars, chunk, 0, chunkSize - chars);
+        chunkSize -= chars;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (finished != null) {
+            throw new IOException("Report writer is closed");
+        }
+    }
+}
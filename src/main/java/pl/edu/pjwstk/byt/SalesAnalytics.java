@@ -0,0 +1,186 @@
+package pl.edu.pjwstk.byt;
+
+import java.time.LocalDate;
+import java.util.Currency;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Group-by aggregations over {@link SalesColumns}. A query splits the rows into ranges on the
+ * fork-join pool; every leaf sums its range into a private array of group totals and the
+ * partial arrays are added up on the way back, so no map or boxed value is touched per row.
+ * Revenue is quantity times unit price in minor units. Cancelled order lines are left out,
+ * except for revenueByStatus() which reports every status.
+ */
+public class SalesAnalytics {
+
+    private static final int MIN_LEAF_ROWS = 1 << 16;
+    private static final long SECONDS_PER_DAY = 86_400;
+    private static final int CANCELLED = OrderStatus.CANCELLED.ordinal();
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    private enum Dimension { CATEGORY, DAY, STATUS }
+
+    private final SalesColumns columns;
+    private final ForkJoinPool pool;
+    private final int leafRows;
+
+    public SalesAnalytics(SalesColumns columns) {
+        this(columns, ForkJoinPool.commonPool());
+    }
+
+    public SalesAnalytics(SalesColumns columns, ForkJoinPool pool) {
+        if (columns == null) {
+            throw new IllegalArgumentException("Sales columns cannot be null");
+        }
+        if (pool == null) {
+            throw new IllegalArgumentException("Pool cannot be null");
+        }
+        this.columns = columns;
+        this.pool = pool;
+        // a few leaves per worker, so a slow worker does not hold up the whole query
+        this.leafRows = Math.max(MIN_LEAF_ROWS, columns.size() / (pool.getParallelism() * 4) + 1);
+    }
+
+    // Projects the current orders in the given currency; archived orders are not part of them.
+    public static SalesAnalytics ofCurrentOrders(Currency currency) {
+        return new SalesAnalytics(SalesColumns.project(DomainSnapshot.pin(), currency));
+    }
+
+    public SalesColumns getColumns() {
+        return columns;
+    }
+
+    public long getTotalRevenueMinor() {
+        long[] totals = aggregate(Dimension.STATUS);
+        long total = 0;
+        for (int status = 0; status < totals.length; status++) {
+            if (status != CANCELLED) {
+                total = Money.add(total, totals[status]);
+            }
+        }
+        return total;
+    }
+
+    // Products without a category are reported under the null key.
+    public Map<Category, Long> revenueByCategory() {
+        long[] totals = aggregate(Dimension.CATEGORY);
+        Map<Category, Long> result = new LinkedHashMap<>();
+        for (int slot = 0; slot < columns.getCategoryCount(); slot++) {
+            result.put(columns.getCategory(slot), totals[slot + 1]);
+        }
+        if (totals[0] != 0) {
+            result.put(null, totals[0]);
+        }
+        return result;
+    }
+
+    // Days (UTC) without sales are left out.
+    public SortedMap<LocalDate, Long> revenueByDay() {
+        SortedMap<LocalDate, Long> result = new TreeMap<>();
+        if (columns.size() == 0) {
+            return result;
+        }
+        long[] totals = aggregate(Dimension.DAY);
+        long firstDay = Math.floorDiv(columns.minTimestamp(), SECONDS_PER_DAY);
+        for (int day = 0; day < totals.length; day++) {
+            if (totals[day] != 0) {
+                result.put(LocalDate.ofEpochDay(firstDay + day), totals[day]);
+            }
+        }
+        return result;
+    }
+
+    public Map<OrderStatus, Long> revenueByStatus() {
+        long[] totals = aggregate(Dimension.STATUS);
+        Map<OrderStatus, Long> result = new EnumMap<>(OrderStatus.class);
+        for (OrderStatus status : STATUSES) {
+            result.put(status, totals[status.ordinal()]);
+        }
+        return result;
+    }
+
+    private long[] aggregate(Dimension dimension) {
+        int groups = switch (dimension) {
+            case CATEGORY -> columns.getCategoryCount() + 1; // group 0 = no category
+            case DAY -> columns.size() == 0 ? 0 : Math.toIntExact(
+                    Math.floorDiv(columns.maxTimestamp(), SECONDS_PER_DAY)
+                            - Math.floorDiv(columns.minTimestamp(), SECONDS_PER_DAY) + 1);
+            case STATUS -> STATUSES.length;
+        };
+        return pool.invoke(new GroupSum(dimension, groups, 0, columns.size()));
+    }
+
+    private final class GroupSum extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final Dimension dimension;
+        private final int groups;
+        private final int from;
+        private final int to;
+
+        private GroupSum(Dimension dimension, int groups, int from, int to) {
+            this.dimension = dimension;
+            this.groups = groups;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= leafRows) {
+                return sumRange();
+            }
+            int middle = (from + to) >>> 1;
+            var left = new GroupSum(dimension, groups, from, middle);
+            left.fork();
+            long[] right = new GroupSum(dimension, groups, middle, to).compute();
+            long[] totals = left.join();
+            for (int g = 0; g < groups; g++) {
+                totals[g] = Money.add(totals[g], right[g]);
+            }
+            return totals;
+        }
+
+        // One loop per dimension keeps the inner loop free of calls.
+        private long[] sumRange() {
+            long[] totals = new long[groups];
+            byte[] statuses = columns.statuses();
+            int[] quantities = columns.quantities();
+            long[] unitPrices = columns.unitPrices();
+            switch (dimension) {
+                case CATEGORY -> {
+                    int[] categories = columns.categorySlots();
+                    for (int row = from; row < to; row++) {
+                        if (statuses[row] != CANCELLED) {
+                            int group = categories[row] + 1;
+                            totals[group] = Money.add(totals[group], Money.multiply(unitPrices[row], quantities[row]));
+                        }
+                    }
+                }
+                case DAY -> {
+                    long[] timestamps = columns.timestamps();
+                    long firstDay = Math.floorDiv(columns.minTimestamp(), SECONDS_PER_DAY);
+                    for (int row = from; row < to; row++) {
+                        if (statuses[row] != CANCELLED) {
+                            int day = (int) (Math.floorDiv(timestamps[row], SECONDS_PER_DAY) - firstDay);
+                            totals[day] = Money.add(totals[day], Money.multiply(unitPrices[row], quantities[row]));
+                        }
+                    }
+                }
+                case STATUS -> {
+                    for (int row = from; row < to; row++) {
+                        int group = statuses[row];
+                        totals[group] = Money.add(totals[group], Money.multiply(unitPrices[row], quantities[row]));
+                    }
+                }
+            }
+            return totals;
+        }
+    }
+}
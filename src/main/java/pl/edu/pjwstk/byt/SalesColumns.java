@@ -0,0 +1,214 @@
+package pl.edu.pjwstk.byt;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Order lines of one currency projected into primitive columns, one row per order item:
+ * order timestamp (epoch seconds, UTC), status ordinal, product slot, category slot, quantity
+ * and unit price in minor units. Products and categories are replaced by slots into the
+ * dictionaries of the projection; a product without a category has category slot -1.
+ * The columns are immutable once built and are scanned by {@link SalesAnalytics}.
+ */
+public final class SalesColumns {
+
+    public static final int NO_CATEGORY = -1;
+
+    private final Currency currency;
+    private final int size;
+    private final long[] timestamps;
+    private final byte[] statuses;
+    private final int[] productSlots;
+    private final int[] categorySlots;
+    private final int[] quantities;
+    private final long[] unitPrices;
+    private final Product[] products;
+    private final Category[] categories;
+    private final long minTimestamp;
+    private final long maxTimestamp;
+
+    private SalesColumns(Builder builder) {
+        this.currency = builder.currency;
+        this.size = builder.size;
+        this.timestamps = builder.timestamps;
+        this.statuses = builder.statuses;
+        this.productSlots = builder.productSlots;
+        this.categorySlots = builder.categorySlots;
+        this.quantities = builder.quantities;
+        this.unitPrices = builder.unitPrices;
+        this.products = new Product[builder.productDictionary.size()];
+        this.categories = new Category[builder.categoryDictionary.size()];
+        builder.productDictionary.forEach((product, slot) -> products[slot] = product);
+        builder.categoryDictionary.forEach((category, slot) -> categories[slot] = category);
+        this.minTimestamp = builder.minTimestamp;
+        this.maxTimestamp = builder.maxTimestamp;
+    }
+
+    /**
+     * Projects the order items of the snapshot whose order is in the given currency.
+     * Unit prices are the current prices of the products, as in OrderItem.getLineTotal().
+     * Archived orders are not included: they left the extents and live only in the OrderArchive
+     * files. Their sales stay counted in {@link SalesRollups}.
+     */
+    public static SalesColumns project(DomainSnapshot snapshot, Currency currency) {
+        if (snapshot == null) {
+            throw new IllegalArgumentException("Snapshot cannot be null");
+        }
+        if (currency == null) {
+            throw new IllegalArgumentException("Currency cannot be null");
+        }
+        List<OrderItem> items = snapshot.getOrderItems();
+        var builder = new Builder(currency, items.size());
+        for (OrderItem item : items) {
+            Order order = item.getOrder();
+            if (order == null || !order.getCurrency().equals(currency)) {
+                continue;
+            }
+            Product product = item.getProduct();
+            builder.add(order.getOrderDate(), order.getStatus(), builder.productSlot(product),
+                    builder.categorySlot(product.getCategory()), item.getQuantity(), product.getPriceMinor());
+        }
+        return builder.build();
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Product getProduct(int slot) {
+        return products[slot];
+    }
+
+    public int getProductCount() {
+        return products.length;
+    }
+
+    public Category getCategory(int slot) {
+        return categories[slot];
+    }
+
+    public int getCategoryCount() {
+        return categories.length;
+    }
+
+    /**
+     * Writes one CSV row per order line: order date, status, product id, category name,
+     * quantity and unit price in minor units. Streams through the writer, so an export of
+     * millions of lines never exists as one String.
+     */
+    public void writeCsv(ReportWriter writer) throws IOException {
+        OrderStatus[] statusValues = OrderStatus.values();
+        writer.writeRow("order_date", "status", "product_id", "category", "quantity", "unit_price_minor");
+        for (int row = 0; row < size; row++) {
+            int category = categorySlots[row];
+            writer.writeRow(LocalDateTime.ofEpochSecond(timestamps[row], 0, ZoneOffset.UTC),
+                    statusValues[statuses[row]], products[productSlots[row]].getId(),
+                    category == NO_CATEGORY ? "" : categories[category].getName(), quantities[row], unitPrices[row]);
+        }
+    }
+
+    // Column access for the scans, the arrays are shared and must not be modified
+    long[] timestamps() { return timestamps; }
+    byte[] statuses() { return statuses; }
+    int[] productSlots() { return productSlots; }
+    int[] categorySlots() { return categorySlots; }
+    int[] quantities() { return quantities; }
+    long[] unitPrices() { return unitPrices; }
+    long minTimestamp() { return minTimestamp; }
+    long maxTimestamp() { return maxTimestamp; }
+
+    /**
+     * Appends rows column by column. Used by project() and by benchmarks that generate
+     * more order lines than fit into the heap as domain objects.
+     */
+    static final class Builder {
+        private final Currency currency;
+        private final Map<Product, Integer> productDictionary = new IdentityHashMap<>();
+        private final Map<Category, Integer> categoryDictionary = new IdentityHashMap<>();
+        private int size;
+        private long[] timestamps;
+        private byte[] statuses;
+        private int[] productSlots;
+        private int[] categorySlots;
+        private int[] quantities;
+        private long[] unitPrices;
+        private long minTimestamp = Long.MAX_VALUE;
+        private long maxTimestamp = Long.MIN_VALUE;
+
+        Builder(Currency currency, int expectedRows) {
+            if (currency == null) {
+                throw new IllegalArgumentException("Currency cannot be null");
+            }
+            int capacity = Math.max(16, expectedRows);
+            this.currency = currency;
+            this.timestamps = new long[capacity];
+            this.statuses = new byte[capacity];
+            this.productSlots = new int[capacity];
+            this.categorySlots = new int[capacity];
+            this.quantities = new int[capacity];
+            this.unitPrices = new long[capacity];
+        }
+
+        int productSlot(Product product) {
+            return productDictionary.computeIfAbsent(product, p -> productDictionary.size());
+        }
+
+        int categorySlot(Category category) {
+            if (category == null) {
+                return NO_CATEGORY;
+            }
+            return categoryDictionary.computeIfAbsent(category, c -> categoryDictionary.size());
+        }
+
+        void add(LocalDateTime orderDate, OrderStatus status, int productSlot, int categorySlot,
+                 int quantity, long unitPrice) {
+            add(orderDate.toEpochSecond(ZoneOffset.UTC), status, productSlot, categorySlot, quantity, unitPrice);
+        }
+
+        void add(long timestamp, OrderStatus status, int productSlot, int categorySlot, int quantity, long unitPrice) {
+            if (size == timestamps.length) {
+                grow();
+            }
+            timestamps[size] = timestamp;
+            statuses[size] = (byte) status.ordinal();
+            productSlots[size] = productSlot;
+            categorySlots[size] = categorySlot;
+            quantities[size] = quantity;
+            unitPrices[size] = unitPrice;
+            size++;
+            minTimestamp = Math.min(minTimestamp, timestamp);
+            maxTimestamp = Math.max(maxTimestamp, timestamp);
+        }
+
+        private void grow() {
+            resize(timestamps.length + (timestamps.length >> 1));
+        }
+
+        private void resize(int capacity) {
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            productSlots = Arrays.copyOf(productSlots, capacity);
+            categorySlots = Arrays.copyOf(categorySlots, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            unitPrices = Arrays.copyOf(unitPrices, capacity);
+        }
+
+        // Hands the arrays over to the columns, the builder must not be used afterwards.
+        SalesColumns build() {
+            if (size != timestamps.length) {
+                resize(size);
+            }
+            return new SalesColumns(this);
+        }
+    }
+}
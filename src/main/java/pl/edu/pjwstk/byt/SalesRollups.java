@@ -0,0 +1,218 @@
+package pl.edu.pjwstk.byt;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Currency;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Revenue and units per minute, hour and day of the order date, broken down by currency,
+ * category and order status. Order keeps the buckets up to date as orders are registered,
+ * items are added, removed or change quantity, the status changes and orders are deleted
+ * (archived orders stay counted), so dashboards read a few buckets instead of scanning the
+ * Order extent.
+ * A line is valued at the unit price and filed under the category its product had when the line
+ * was first counted; later changes of the line (quantity, status, removal, deletion) move the
+ * same price and category, so they always cancel out exactly. Later price or category changes
+ * of the product do not re-bucket lines that are already counted. Minute buckets are kept for two
+ * days and hour buckets for 92 days; day buckets are kept forever.
+ */
+public final class SalesRollups {
+
+    public enum Granularity {
+        MINUTE(ChronoUnit.MINUTES, Duration.ofDays(2)),
+        HOUR(ChronoUnit.HOURS, Duration.ofDays(92)),
+        DAY(ChronoUnit.DAYS, null);
+
+        private final ChronoUnit unit;
+        private final Duration retention; // null = forever
+
+        Granularity(ChronoUnit unit, Duration retention) {
+            this.unit = unit;
+            this.retention = retention;
+        }
+
+        public LocalDateTime truncate(LocalDateTime time) {
+            return time.truncatedTo(unit);
+        }
+    }
+
+    /** Revenue (minor units) and units of one bucket or of a sum of buckets. */
+    public static final class Totals {
+        public static final Totals ZERO = new Totals(0, 0);
+
+        private final long revenueMinor;
+        private final long units;
+
+        private Totals(long revenueMinor, long units) {
+            this.revenueMinor = revenueMinor;
+            this.units = units;
+        }
+
+        public long getRevenueMinor() {
+            return revenueMinor;
+        }
+
+        public long getUnits() {
+            return units;
+        }
+
+        private Totals plus(Cell cell) {
+            return new Totals(Money.add(revenueMinor, cell.revenue.sum()), units + cell.units.sum());
+        }
+
+        @Override
+        public String toString() {
+            return "Totals{revenue=" + revenueMinor + ", units=" + units + '}';
+        }
+    }
+
+    private record CellKey(Currency currency, Category category, OrderStatus status) {
+    }
+
+    private static final class Cell {
+        private final LongAdder revenue = new LongAdder();
+        private final LongAdder units = new LongAdder();
+    }
+
+    // bucket start (epoch seconds, UTC) -> cells of the bucket, per granularity
+    private static final Map<Granularity, ConcurrentSkipListMap<Long, Map<CellKey, Cell>>> buckets =
+            new EnumMap<>(Granularity.class);
+
+    static {
+        for (Granularity granularity : Granularity.values()) {
+            buckets.put(granularity, new ConcurrentSkipListMap<>());
+        }
+    }
+
+    private SalesRollups() {
+    }
+
+    // Adds quantity units of the line to every granularity; a negative quantity takes them out.
+    static void record(Order order, OrderStatus status, OrderItem item, int quantity) {
+        if (quantity == 0) {
+            return;
+        }
+        var key = new CellKey(order.getCurrency(), item.getRollupCategory(), status);
+        long revenue = Money.multiply(item.getRollupUnitPrice(), quantity);
+        for (Granularity granularity : Granularity.values()) {
+            Map<CellKey, Cell> cells = cells(granularity, granularity.truncate(order.getOrderDate()));
+            if (cells != null) {
+                Cell cell = cells.computeIfAbsent(key, k -> new Cell());
+                cell.revenue.add(revenue);
+                cell.units.add(quantity);
+            }
+        }
+    }
+
+    // Null if the bucket is past the retention of its granularity.
+    private static Map<CellKey, Cell> cells(Granularity granularity, LocalDateTime bucketStart) {
+        ConcurrentSkipListMap<Long, Map<CellKey, Cell>> series = buckets.get(granularity);
+        long start = bucketStart.toEpochSecond(ZoneOffset.UTC);
+        Map<CellKey, Cell> cells = series.get(start);
+        if (cells != null) {
+            return cells;
+        }
+        if (granularity.retention != null) {
+            long cutoff = LocalDateTime.now().minus(granularity.retention).toEpochSecond(ZoneOffset.UTC);
+            if (start < cutoff) {
+                return null;
+            }
+            // a new bucket is opened about once per minute (or hour), a good time to drop expired ones
+            series.headMap(cutoff).clear();
+        }
+        return series.computeIfAbsent(start, s -> new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Totals per bucket of the given granularity in [from, to), for one currency.
+     * A null category or status means all of them. Buckets without sales are left out.
+     */
+    public static SortedMap<LocalDateTime, Totals> series(Granularity granularity, Currency currency,
+                                                          LocalDateTime from, LocalDateTime to,
+                                                          Category category, OrderStatus status) {
+        if (granularity == null) {
+            throw new IllegalArgumentException("Granularity cannot be null");
+        }
+        if (currency == null) {
+            throw new IllegalArgumentException("Currency cannot be null");
+        }
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Time range cannot be null");
+        }
+        NavigableMap<Long, Map<CellKey, Cell>> range = buckets.get(granularity).subMap(
+                granularity.truncate(from).toEpochSecond(ZoneOffset.UTC), true,
+                to.toEpochSecond(ZoneOffset.UTC), false);
+        SortedMap<LocalDateTime, Totals> result = new TreeMap<>();
+        range.forEach((start, cells) -> {
+            Totals totals = Totals.ZERO;
+            for (Map.Entry<CellKey, Cell> entry : cells.entrySet()) {
+                CellKey key = entry.getKey();
+                if (key.currency.equals(currency) && (category == null || key.category == category)
+                        && (status == null || key.status == status)) {
+                    totals = totals.plus(entry.getValue());
+                }
+            }
+            if (totals.units != 0 || totals.revenueMinor != 0) {
+                result.put(LocalDateTime.ofEpochSecond(start, 0, ZoneOffset.UTC), totals);
+            }
+        });
+        return result;
+    }
+
+    // Totals of one bucket per order status, for one currency.
+    public static Map<OrderStatus, Totals> byStatus(Granularity granularity, Currency currency, LocalDateTime bucket) {
+        Map<OrderStatus, Totals> result = new EnumMap<>(OrderStatus.class);
+        bucketCells(granularity, currency, bucket).forEach((key, cell) -> {
+            if (key.currency.equals(currency)) {
+                result.merge(key.status, Totals.ZERO.plus(cell), SalesRollups::sum);
+            }
+        });
+        return result;
+    }
+
+    // Totals of one bucket per category (null = products without a category), for one currency.
+    public static Map<Category, Totals> byCategory(Granularity granularity, Currency currency, LocalDateTime bucket) {
+        Map<Category, Totals> result = new HashMap<>();
+        bucketCells(granularity, currency, bucket).forEach((key, cell) -> {
+            if (key.currency.equals(currency)) {
+                result.merge(key.category, Totals.ZERO.plus(cell), SalesRollups::sum);
+            }
+        });
+        return result;
+    }
+
+    private static Map<CellKey, Cell> bucketCells(Granularity granularity, Currency currency, LocalDateTime bucket) {
+        if (granularity == null || currency == null || bucket == null) {
+            throw new IllegalArgumentException("Granularity, currency and bucket cannot be null");
+        }
+        Map<CellKey, Cell> cells = buckets.get(granularity).get(granularity.truncate(bucket).toEpochSecond(ZoneOffset.UTC));
+        return cells != null ? cells : Map.of();
+    }
+
+    private static Totals sum(Totals a, Totals b) {
+        return new Totals(Money.add(a.revenueMinor, b.revenueMinor), a.units + b.units);
+    }
+
+    /**
+     * Recomputes all buckets from the orders in the Order extent, e.g. after the extents were
+     * loaded from disk. Archived orders are not part of the extent and are dropped from the
+     * buckets. Must not run while orders change.
+     */
+    public static void rebuild() {
+        for (ConcurrentSkipListMap<Long, Map<CellKey, Cell>> series : buckets.values()) {
+            series.clear();
+        }
+        Order.recordAllInRollups(DomainSnapshot.pin().getOrders());
+    }
+}
@@ -0,0 +1,198 @@
+package pl.edu.pjwstk.byt;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import pl.edu.pjwstk.byt.utils.Hashing;
+import pl.edu.pjwstk.byt.utils.HeavyHitters;
+import pl.edu.pjwstk.byt.utils.HyperLogLog;
+
+/**
+ * Approximate merchandising statistics: distinct buyers per product and per category
+ * (HyperLogLog) and the best-selling products by units (count-min sketch with a top-K).
+ * The live sketches are fed as order items are registered. They take a few KB per product
+ * instead of a set of customers, answer within a few percent, and merge across shards and
+ * time windows: drain() hands over the sketches of the current window and starts a new one.
+ * Keys are stable across machines: product id, category name and customer email.
+ */
+public class SalesSketches implements Serializable {
+    private static final long serialVersionUID = 2L; // 2: sketch maps declared as HashMap
+
+    public static final int TOP_K = 100;
+    private static final int PRODUCT_PRECISION = 10; // 1 KB, about 3% error
+    private static final int CATEGORY_PRECISION = 14; // 16 KB, about 0.8% error
+    private static final int SKETCH_DEPTH = 4;
+    private static final int SKETCH_WIDTH = 1 << 16;
+
+    private static final SalesSketches live = new SalesSketches();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private HashMap<String, HyperLogLog> buyersByProduct = new HashMap<>();
+    private HashMap<String, HyperLogLog> buyersByCategory = new HashMap<>();
+    private HeavyHitters bestSellers = new HeavyHitters(TOP_K, SKETCH_DEPTH, SKETCH_WIDTH);
+
+    public SalesSketches() {
+    }
+
+    // The sketches fed by the order items registered in this process.
+    public static SalesSketches live() {
+        return live;
+    }
+
+    // Called for an order item that enters the OrderItem extent on its own.
+    static void itemRegistered(OrderItem item) {
+        itemsRegistered(List.of(item));
+    }
+
+    /**
+     * Called for the items registered together, e.g. by one checkout batch. Keys and hashes are
+     * computed first, then all items are recorded under a single lock acquisition.
+     */
+    static void itemsRegistered(List<OrderItem> items) {
+        int count = 0;
+        long[] customerHashes = new long[items.size()];
+        String[] productIds = new String[items.size()];
+        String[] categoryNames = new String[items.size()];
+        int[] quantities = new int[items.size()];
+        for (OrderItem item : items) {
+            Order order = item.getOrder();
+            if (order == null || order.getCustomer() == null) {
+                continue;
+            }
+            Product product = item.getProduct();
+            Category category = product.getCategory();
+            customerHashes[count] = Hashing.hash64(order.getCustomer().getEmail());
+            productIds[count] = product.getId();
+            categoryNames[count] = category == null ? null : category.getName();
+            quantities[count] = item.getQuantity();
+            count++;
+        }
+        if (count == 0) {
+            return;
+        }
+        live.lock.lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                live.recordLocked(customerHashes[i], productIds[i], categoryNames[i], quantities[i]);
+            }
+        } finally {
+            live.lock.unlock();
+        }
+    }
+
+    public void record(String customerKey, String productId, String categoryName, int quantity) {
+        if (customerKey == null || productId == null) {
+            throw new IllegalArgumentException("Customer and product cannot be null");
+        }
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        long customerHash = Hashing.hash64(customerKey);
+        lock.lock();
+        try {
+            recordLocked(customerHash, productId, categoryName, quantity);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recordLocked(long customerHash, String productId, String categoryName, int quantity) {
+        buyersByProduct.computeIfAbsent(productId, id -> new HyperLogLog(PRODUCT_PRECISION)).add(customerHash);
+        if (categoryName != null) {
+            buyersByCategory.computeIfAbsent(categoryName, name -> new HyperLogLog(CATEGORY_PRECISION))
+                    .add(customerHash);
+        }
+        bestSellers.add(productId, quantity);
+    }
+
+    public long estimateBuyers(Product product) {
+        return estimate(buyersByProduct, product.getId());
+    }
+
+    public long estimateBuyers(Category category) {
+        return estimate(buyersByCategory, category.getName());
+    }
+
+    private long estimate(Map<String, HyperLogLog> sketches, String key) {
+        lock.lock();
+        try {
+            HyperLogLog sketch = sketches.get(key);
+            return sketch == null ? 0 : sketch.estimate();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Best-selling product ids by estimated units, highest first.
+    public List<HeavyHitters.Entry> bestSellers() {
+        lock.lock();
+        try {
+            return bestSellers.top();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long estimateUnitsSold(Product product) {
+        lock.lock();
+        try {
+            return bestSellers.estimate(product.getId());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Adds the other sketches (another shard or time window) to these.
+    public void merge(SalesSketches other) {
+        if (other == this) {
+            throw new IllegalArgumentException("Cannot merge sketches with themselves");
+        }
+        SalesSketches copy = other.copy(); // never hold both locks
+        lock.lock();
+        try {
+            copy.buyersByProduct.forEach((id, sketch) -> buyersByProduct.merge(id, sketch, SalesSketches::union));
+            copy.buyersByCategory.forEach((name, sketch) -> buyersByCategory.merge(name, sketch, SalesSketches::union));
+            bestSellers.merge(copy.bestSellers);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public SalesSketches copy() {
+        var copy = new SalesSketches();
+        lock.lock();
+        try {
+            buyersByProduct.forEach((id, sketch) -> copy.buyersByProduct.put(id, sketch.copy()));
+            buyersByCategory.forEach((name, sketch) -> copy.buyersByCategory.put(name, sketch.copy()));
+            copy.bestSellers = bestSellers.copy();
+        } finally {
+            lock.unlock();
+        }
+        return copy;
+    }
+
+    // Ends the current time window: returns its sketches and starts empty ones.
+    public SalesSketches drain() {
+        var drained = new SalesSketches();
+        lock.lock();
+        try {
+            drained.buyersByProduct = buyersByProduct;
+            drained.buyersByCategory = buyersByCategory;
+            drained.bestSellers = bestSellers;
+            buyersByProduct = new HashMap<>();
+            buyersByCategory = new HashMap<>();
+            bestSellers = new HeavyHitters(TOP_K, SKETCH_DEPTH, SKETCH_WIDTH);
+        } finally {
+            lock.unlock();
+        }
+        return drained;
+    }
+
+    private static HyperLogLog union(HyperLogLog a, HyperLogLog b) {
+        a.merge(b);
+        return a;
+    }
+}
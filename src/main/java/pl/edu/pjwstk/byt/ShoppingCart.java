@@ -1,29 +1,47 @@
 package pl.edu.pjwstk.byt;
 
 import java.io.*;
+import java.time.Clock;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Currency;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-public class ShoppingCart implements Serializable {
+import pl.edu.pjwstk.byt.extent.Extent;
+import pl.edu.pjwstk.byt.tx.VersionStamp;
+import pl.edu.pjwstk.byt.tx.Versioned;
+
+public class ShoppingCart implements Serializable, Versioned {
 
     private static final long serialVersionUID = 1L;
     private static final String EXTENT_FILE = "ShoppingCart_extent.ser";
-    private static List<ShoppingCart> extent = new ArrayList<>();
+    private static final Extent<ShoppingCart> extent = Extent.lockedOnHeap(EXTENT_FILE);
 
     public static final int MAX_CART_ITEMS = 50; // class attribute
 
     private final Map<String, CartItem> cartItems = new HashMap<>(); // qualified association
     private LocalDateTime createdDate;
-    private LocalDateTime lastUpdated;
+    private volatile LocalDateTime lastUpdated; // read by the cart registry expiry
+    private int itemCount; // derived attribute, sum of cart item quantities
+    private long subtotal; // derived attribute, minor units of currency
+    private Currency currency; // set by the first item added to an empty cart
+    private final VersionStamp versionStamp = new VersionStamp();
+    private transient Clock clock; // stamps lastUpdated, the system clock when null
 
     public ShoppingCart() {
-        var now = LocalDateTime.now();
+        this(null);
+    }
+
+    // carts of a CartRegistry are stamped from the registry clock, so idle checks compare like with like
+    ShoppingCart(Clock clock) {
+        this.clock = clock;
+        var now = now();
         createdDate = now;
         lastUpdated = now;
         extent.add(this);
@@ -37,13 +55,35 @@ public class ShoppingCart implements Serializable {
         return lastUpdated;
     }
 
+    private LocalDateTime now() {
+        return clock != null ? LocalDateTime.now(clock) : LocalDateTime.now();
+    }
+
     public Map<String, CartItem> getCartItems() {
         return Collections.unmodifiableMap(cartItems);
     }
 
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public Money getSubtotal() {
+        return Money.ofMinor(subtotal, currency != null ? currency : Money.DEFAULT_CURRENCY);
+    }
+
+    @Override
+    public VersionStamp getVersionStamp() {
+        return versionStamp;
+    }
+
     public void clearCart() {
+        CartItem.disposeAll(cartItems.values());
         this.cartItems.clear();
-        lastUpdated = LocalDateTime.now();
+        itemCount = 0;
+        subtotal = 0;
+        currency = null;
+        lastUpdated = now();
+        versionStamp.touch();
     }
 
     public boolean updateCart(Product product, int quantity) {
@@ -51,20 +91,29 @@ public class ShoppingCart implements Serializable {
             throw new IllegalArgumentException("Product cannot be null.");
         }
 
-        var cartItemsCount = cartItems
-            .values()
-            .stream()
-            .mapToInt(CartItem::getQuantity)
-            .sum();
+        if (currency != null && !currency.equals(product.getCurrency())) {
+            throw new IllegalArgumentException("Product currency does not match cart currency.");
+        }
 
-        if (quantity + cartItemsCount > MAX_CART_ITEMS) {
+        var previous = cartItems.get(product.getId());
+        var previousQuantity = previous == null ? 0 : previous.getQuantity();
+
+        // the replaced item's quantity no longer counts towards the limit
+        if (itemCount - previousQuantity + quantity > MAX_CART_ITEMS) {
             return false;
         }
 
-
-        var cartItem = new CartItem(quantity, product, this);
-        cartItems.put(product.getId(), cartItem);
-        lastUpdated = LocalDateTime.now();
+        if (previous != null) {
+            // reuse the existing item, counters are updated through itemQuantityChangedInternal
+            previous.updateQuantity(quantity);
+        } else {
+            var cartItem = new CartItem(quantity, product, this);
+            cartItems.put(product.getId(), cartItem);
+            currency = product.getCurrency();
+            applyQuantityChange(product, quantity);
+        }
+        lastUpdated = now();
+        versionStamp.touch();
         return true;
     }
 
@@ -73,26 +122,84 @@ public class ShoppingCart implements Serializable {
             throw new IllegalArgumentException("Product is not in the cart");
         }
 
-        var cartItem = cartItems.get(productId);
-        cartItem.setCart(null);
-        cartItems.remove(productId);
-        lastUpdated = LocalDateTime.now();
+        var cartItem = cartItems.remove(productId);
+        cartItem.dispose();
+        applyQuantityChange(cartItem.getProduct(), -cartItem.getQuantity());
+        if (cartItems.isEmpty()) {
+            currency = null;
+        }
+        lastUpdated = now();
+        versionStamp.touch();
+    }
+
+    // Removes the given items if they are still in the cart; items added since then stay.
+    protected void removeItems(Collection<CartItem> items) {
+        List<CartItem> removed = new ArrayList<>(items.size());
+        for (CartItem cartItem : items) {
+            if (containsItem(cartItem)) {
+                cartItems.remove(cartItem.getProduct().getId());
+                applyQuantityChange(cartItem.getProduct(), -cartItem.getQuantity());
+                removed.add(cartItem);
+            }
+        }
+        CartItem.disposeAll(removed);
+        if (cartItems.isEmpty()) {
+            currency = null;
+        }
+        lastUpdated = now();
+        versionStamp.touch();
+    }
+
+    protected boolean containsItem(CartItem cartItem) {
+        return cartItems.get(cartItem.getProduct().getId()) == cartItem;
+    }
+
+    // Called by CartItem.updateQuantity so the running counters stay in sync.
+    protected void itemQuantityChangedInternal(CartItem cartItem, int oldQuantity) {
+        if (!containsItem(cartItem)) {
+            return; // not (or no longer) one of this cart's items
+        }
+        applyQuantityChange(cartItem.getProduct(), cartItem.getQuantity() - oldQuantity);
+        lastUpdated = now();
+        versionStamp.touch();
+    }
+
+    private void applyQuantityChange(Product product, int delta) {
+        itemCount += delta;
+        subtotal = Money.add(subtotal, Money.multiply(product.getPriceMinor(), delta));
+    }
+
+    // Lifecycle: removes the cart and its items from the extents
+    public void delete() {
+        deleteAll(List.of(this));
+    }
+
+    // Same as delete() for many carts, with a single pass over each extent
+    public static void deleteAll(Collection<ShoppingCart> carts) {
+        if (carts.isEmpty()) {
+            return;
+        }
+        List<CartItem> items = new ArrayList<>();
+        for (ShoppingCart cart : carts) {
+            items.addAll(cart.cartItems.values());
+            cart.cartItems.clear();
+            cart.itemCount = 0;
+            cart.subtotal = 0;
+            cart.currency = null;
+        }
+        CartItem.disposeAll(items);
+        extent.removeAll(new HashSet<>(carts));
     }
 
     public static List<ShoppingCart> getExtent() {
-        return new ArrayList<>(extent);
+        return extent.snapshot();
     }
 
     public static void saveExtent() throws IOException {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(EXTENT_FILE))) {
-            oos.writeObject(extent);
-        }
+        extent.save();
     }
 
-    @SuppressWarnings("unchecked")
     public static void loadExtent() throws IOException, ClassNotFoundException {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(EXTENT_FILE))) {
-            extent = (List<ShoppingCart>) ois.readObject();
-        }
+        extent.load();
     }
 }
@@ -0,0 +1,70 @@
+package pl.edu.pjwstk.byt;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import pl.edu.pjwstk.byt.utils.TimingWheel;
+
+/**
+ * Stock held for a shopping cart until it is committed (sold), released or expires.
+ * State transitions are single CAS operations, so a hold is released or committed exactly once.
+ */
+public class StockReservation {
+
+    public enum State {
+        HELD,
+        COMMITTED,
+        RELEASED
+    }
+
+    private final Product product;
+    private final int quantity;
+    private final ShoppingCart cart;
+    private final long expiresAtMillis;
+    private final AtomicReference<State> state = new AtomicReference<>(State.HELD);
+    private int shard; // expiry timer, guarded by the lock of its StockReservations shard
+    private TimingWheel.Timer<StockReservation> timer;
+
+    protected StockReservation(Product product, int quantity, ShoppingCart cart, long expiresAtMillis) {
+        this.product = product;
+        this.quantity = quantity;
+        this.cart = cart;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    public Product getProduct() {
+        return product;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public ShoppingCart getCart() {
+        return cart;
+    }
+
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    protected boolean transition(State from, State to) {
+        return state.compareAndSet(from, to);
+    }
+
+    int getShard() {
+        return shard;
+    }
+
+    TimingWheel.Timer<StockReservation> getTimer() {
+        return timer;
+    }
+
+    void setTimer(int shard, TimingWheel.Timer<StockReservation> timer) {
+        this.shard = shard;
+        this.timer = timer;
+    }
+}
@@ -0,0 +1,210 @@
+package pl.edu.pjwstk.byt;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+import pl.edu.pjwstk.byt.utils.TimingWheel;
+
+/**
+ * Reserves product stock for shopping carts.
+ * Taking stock is a CAS on the product's available stock, so reservations of the same SKU never
+ * wait on a lock. Holds expire after a configurable time; {@link #releaseExpired()} puts the stock
+ * of expired holds back. Expiry timers live in several independently locked timing wheels, picked
+ * at random per reservation, so there is no global lock on the reserve path either.
+ */
+public class StockReservations {
+
+    private static final class Shard {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final TimingWheel<StockReservation> wheel;
+
+        private Shard(TimingWheel<StockReservation> wheel) {
+            this.wheel = wheel;
+        }
+    }
+
+    private final Shard[] shards;
+    private final Map<ShoppingCart, Queue<StockReservation>> byCart = new ConcurrentHashMap<>();
+    private final Duration defaultHold;
+    private final Clock clock;
+
+    public StockReservations(Duration defaultHold) {
+        this(defaultHold, Clock.systemDefaultZone(), Runtime.getRuntime().availableProcessors());
+    }
+
+    public StockReservations(Duration defaultHold, Clock clock, int shardCount) {
+        if (defaultHold == null || defaultHold.isNegative() || defaultHold.isZero()) {
+            throw new IllegalArgumentException("Hold duration must be positive");
+        }
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock cannot be null");
+        }
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        this.defaultHold = defaultHold;
+        this.clock = clock;
+        this.shards = new Shard[shardCount];
+        long now = clock.millis();
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(new TimingWheel<>(100, 64, now));
+        }
+    }
+
+    public StockReservation tryReserve(Product product, int quantity, ShoppingCart cart) {
+        return tryReserve(product, quantity, cart, defaultHold);
+    }
+
+    /**
+     * Holds {@code quantity} units for the cart, or returns null when there is not enough stock.
+     */
+    public StockReservation tryReserve(Product product, int quantity, ShoppingCart cart, Duration hold) {
+        if (product == null) {
+            throw new IllegalArgumentException("Product cannot be null");
+        }
+        if (cart == null) {
+            throw new IllegalArgumentException("Reservation must belong to a shopping cart");
+        }
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive");
+        }
+        if (hold == null || hold.isNegative() || hold.isZero()) {
+            throw new IllegalArgumentException("Hold duration must be positive");
+        }
+        if (!product.tryTakeStock(quantity)) {
+            return null;
+        }
+
+        var reservation = new StockReservation(product, quantity, cart, clock.millis() + hold.toMillis());
+        // the timer is in place before the hold becomes visible through getHeld, so forget can always cancel it
+        int index = ThreadLocalRandom.current().nextInt(shards.length);
+        Shard shard = shards[index];
+        shard.lock.lock();
+        try {
+            reservation.setTimer(index, shard.wheel.schedule(reservation, reservation.getExpiresAtMillis()));
+        } finally {
+            shard.lock.unlock();
+        }
+
+        byCart.compute(cart, (key, queue) -> {
+            if (queue == null) {
+                queue = new ConcurrentLinkedQueue<>();
+            }
+            queue.add(reservation);
+            return queue;
+        });
+        return reservation;
+    }
+
+    // The reserved stock is sold and will not come back to the product.
+    public void commit(StockReservation reservation) {
+        if (!reservation.transition(StockReservation.State.HELD, StockReservation.State.COMMITTED)) {
+            throw new IllegalStateException("Reservation is no longer held");
+        }
+        forget(reservation);
+    }
+
+    // Returns the stock to the product; false if the reservation was already committed or released.
+    public boolean release(StockReservation reservation) {
+        if (!reservation.transition(StockReservation.State.HELD, StockReservation.State.RELEASED)) {
+            return false;
+        }
+        reservation.getProduct().returnStock(reservation.getQuantity());
+        forget(reservation);
+        return true;
+    }
+
+    public List<StockReservation> getHeld(ShoppingCart cart) {
+        var queue = byCart.get(cart);
+        List<StockReservation> held = new ArrayList<>();
+        if (queue != null) {
+            for (StockReservation reservation : queue) {
+                if (reservation.getState() == StockReservation.State.HELD) {
+                    held.add(reservation);
+                }
+            }
+        }
+        return held;
+    }
+
+    public List<StockReservation> commitAll(ShoppingCart cart) {
+        List<StockReservation> committed = new ArrayList<>();
+        for (StockReservation reservation : getHeld(cart)) {
+            if (reservation.transition(StockReservation.State.HELD, StockReservation.State.COMMITTED)) {
+                forget(reservation);
+                committed.add(reservation);
+            }
+        }
+        return committed;
+    }
+
+    public int releaseAll(ShoppingCart cart) {
+        int released = 0;
+        for (StockReservation reservation : getHeld(cart)) {
+            if (release(reservation)) {
+                released++;
+            }
+        }
+        return released;
+    }
+
+    /**
+     * Releases every hold whose time is up and returns how many were released.
+     * Meant to be called periodically, e.g. from a scheduled executor.
+     */
+    public int releaseExpired() {
+        long now = clock.millis();
+        List<StockReservation> expired = new ArrayList<>();
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                shard.wheel.advance(now, expired::add);
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        int released = 0;
+        for (StockReservation reservation : expired) {
+            if (release(reservation)) {
+                released++;
+            }
+        }
+        return released;
+    }
+
+    // Number of expiry timers still scheduled, committed and released holds are no longer counted.
+    int getScheduledTimers() {
+        int scheduled = 0;
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                scheduled += shard.wheel.size();
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return scheduled;
+    }
+
+    private void forget(StockReservation reservation) {
+        Shard shard = shards[reservation.getShard()];
+        shard.lock.lock();
+        try {
+            shard.wheel.cancel(reservation.getTimer());
+        } finally {
+            shard.lock.unlock();
+        }
+        byCart.computeIfPresent(reservation.getCart(), (key, queue) -> {
+            queue.remove(reservation);
+            return queue.isEmpty() ? null : queue;
+        });
+    }
+}
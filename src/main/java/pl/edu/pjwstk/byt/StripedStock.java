@@ -0,0 +1,137 @@
+package pl.edu.pjwstk.byt;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import pl.edu.pjwstk.byt.utils.Striping;
+
+/**
+ * Stock counter split into stripes, used for products in flash-sale mode.
+ * Every thread decrements its own stripe, so under heavy contention the CAS traffic is spread
+ * over several cache lines. A thread whose stripe runs dry borrows from the other stripes; borrowing
+ * is serialized, so two half-done borrows can never make each other fail while the total would do.
+ * Stripes never go below zero, so neither does the total.
+ */
+public class StripedStock {
+
+    // one stripe per 64 byte cache line to avoid false sharing
+    private static final int PADDING = 16;
+
+    private final AtomicIntegerArray cells;
+    private final int stripes;
+    private final AtomicInteger overflow; // receives stock returned after the counter was closed
+    private final ReentrantLock borrowLock = new ReentrantLock(); // slow path only
+    private volatile boolean closed;
+
+    public StripedStock(int stripes, AtomicInteger overflow) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive");
+        }
+        if (overflow == null) {
+            throw new IllegalArgumentException("Overflow counter cannot be null");
+        }
+        this.stripes = stripes;
+        this.cells = new AtomicIntegerArray(stripes * PADDING);
+        this.overflow = overflow;
+    }
+
+    // Spreads the stock evenly over all stripes.
+    public void distribute(int stock) {
+        if (stock < 0) {
+            throw new IllegalArgumentException("Stock cannot be negative");
+        }
+        for (int i = 0; i < stripes; i++) {
+            cells.addAndGet(i * PADDING, stock / stripes + (i < stock % stripes ? 1 : 0));
+        }
+    }
+
+    public int getStripeCount() {
+        return stripes;
+    }
+
+    public boolean tryTake(int quantity) {
+        if (closed) {
+            return false;
+        }
+        int home = homeStripe();
+        if (takeExactly(home, quantity)) {
+            return true;
+        }
+        // home stripe ran dry, borrow from the others
+        borrowLock.lock();
+        try {
+            int taken = 0;
+            for (int i = 0; i < stripes && taken < quantity; i++) {
+                taken += takeUpTo((home + i) % stripes, quantity - taken);
+            }
+            if (taken == quantity) {
+                return true;
+            }
+            if (taken > 0) {
+                add(taken); // not enough in total, give the borrowed stock back
+            }
+            return false;
+        } finally {
+            borrowLock.unlock();
+        }
+    }
+
+    public void add(int quantity) {
+        int index = homeStripe() * PADDING;
+        cells.addAndGet(index, quantity);
+        if (closed) {
+            // raced with close(), move the stock to the overflow counter instead
+            overflow.addAndGet(cells.getAndSet(index, 0));
+        }
+    }
+
+    // Approximate while other threads are taking stock, exact once they stop.
+    public int sum() {
+        int sum = 0;
+        for (int i = 0; i < stripes; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    /**
+     * Stops the striped mode and moves the remaining stock to the overflow counter.
+     */
+    public void close() {
+        closed = true;
+        for (int i = 0; i < stripes; i++) {
+            overflow.addAndGet(cells.getAndSet(i * PADDING, 0));
+        }
+    }
+
+    private boolean takeExactly(int stripe, int quantity) {
+        int index = stripe * PADDING;
+        int current;
+        do {
+            current = cells.get(index);
+            if (current < quantity) {
+                return false;
+            }
+        } while (!cells.compareAndSet(index, current, current - quantity));
+        return true;
+    }
+
+    private int takeUpTo(int stripe, int max) {
+        int index = stripe * PADDING;
+        int current;
+        int taken;
+        do {
+            current = cells.get(index);
+            if (current == 0) {
+                return 0;
+            }
+            taken = Math.min(current, max);
+        } while (!cells.compareAndSet(index, current, current - taken));
+        return taken;
+    }
+
+    private int homeStripe() {
+        return Striping.homeStripe(stripes);
+    }
+}
@@ -0,0 +1,185 @@
+package pl.edu.pjwstk.byt.extent;
+
+import java.io.*;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Class extent shared by all persistent domain classes.
+ * The storage backend (the list holding the instances) and the persistence
+ * codec are both pluggable, so each class can pick what fits its workload.
+ * Every change of the extent bumps its modification version; domain classes also bump it
+ * with touch() when an instance changes, so cached results can tell they are stale.
+ */
+public class Extent<T> extends AbstractList<T> {
+
+    private final String fileName;
+    private final List<T> storage;
+    private final ExtentCodec<T> codec;
+    private final LongAdder version = new LongAdder(); // only grows, uncontended on hot paths
+
+    public Extent(String fileName, List<T> storage, ExtentCodec<T> codec) {
+        if (fileName == null || fileName.isBlank()) {
+            throw new IllegalArgumentException("Extent file name cannot be empty");
+        }
+        if (storage == null) {
+            throw new IllegalArgumentException("Extent storage cannot be null");
+        }
+        if (codec == null) {
+            throw new IllegalArgumentException("Extent codec cannot be null");
+        }
+        this.fileName = fileName;
+        this.storage = storage;
+        this.codec = codec;
+    }
+
+    // plain on-heap list, fine for single threaded use
+    public static <T> Extent<T> onHeap(String fileName) {
+        return new Extent<>(fileName, new ArrayList<>(), new SerializationCodec<>());
+    }
+
+    // read-mostly registry that can be iterated while other threads register instances
+    public static <T> Extent<T> concurrent(String fileName) {
+        return new Extent<>(fileName, new CopyOnWriteArrayList<>(), new SerializationCodec<>());
+    }
+
+    // write-heavy registry shared between threads, guarded by a read-write lock
+    public static <T> Extent<T> lockedOnHeap(String fileName) {
+        return new Extent<>(fileName, new LockedList<>(), new SerializationCodec<>());
+    }
+
+    // multi-version registry, read through lock-free snapshots of its group
+    public static <T> Extent<T> versioned(String fileName, SnapshotGroup group) {
+        return new Extent<>(fileName, new VersionedList<>(group), new SerializationCodec<>());
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    List<T> getStorage() {
+        return storage;
+    }
+
+    // Bumped after every change: a result computed after reading version v is stale once it moved past v.
+    public long getVersion() {
+        return version.sum();
+    }
+
+    // Records a change of an instance that does not change the extent itself.
+    public void touch() {
+        version.increment();
+    }
+
+    // copy handed out by the getExtent() methods of domain classes
+    public List<T> snapshot() {
+        return new ArrayList<>(storage);
+    }
+
+    public void save() throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(fileName))) {
+            codec.write(snapshot(), out);
+        }
+    }
+
+    public void load() throws IOException, ClassNotFoundException {
+        List<T> loaded;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(fileName))) {
+            loaded = codec.read(in);
+        }
+        // only replace the contents once the whole file was read successfully, and in one step where
+        // the backend is shared between threads; the plain lists are changed in two
+        if (storage instanceof ReplaceableStorage) {
+            @SuppressWarnings("unchecked")
+            var replaceable = (ReplaceableStorage<T>) storage;
+            replaceable.replaceContents(loaded);
+        } else {
+            storage.clear();
+            storage.addAll(loaded);
+        }
+        version.increment();
+    }
+
+    @Override
+    public T get(int index) {
+        return storage.get(index);
+    }
+
+    @Override
+    public int size() {
+        return storage.size();
+    }
+
+    @Override
+    public T set(int index, T element) {
+        var result = storage.set(index, element);
+        version.increment();
+        return result;
+    }
+
+    @Override
+    public void add(int index, T element) {
+        storage.add(index, element);
+        version.increment();
+    }
+
+    @Override
+    public boolean add(T element) {
+        var result = storage.add(element);
+        version.increment();
+        return result;
+    }
+
+    @Override
+    public T remove(int index) {
+        var result = storage.remove(index);
+        version.increment();
+        return result;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        var result = storage.remove(o);
+        version.increment();
+        return result;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return storage.contains(o);
+    }
+
+    // bulk registration with a single call on the backing storage
+    @Override
+    public boolean addAll(Collection<? extends T> c) {
+        var result = storage.addAll(c);
+        version.increment();
+        return result;
+    }
+
+    // bulk removal in a single pass over the backing storage
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        var result = storage.removeAll(c);
+        version.increment();
+        return result;
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super T> filter) {
+        var result = storage.removeIf(filter);
+        version.increment();
+        return result;
+    }
+
+    @Override
+    public void clear() {
+        storage.clear();
+        version.increment();
+    }
+}
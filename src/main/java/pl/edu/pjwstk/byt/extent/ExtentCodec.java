@@ -0,0 +1,16 @@
+package pl.edu.pjwstk.byt.extent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Strategy used by {@link Extent} to write its instances to a file and read them back.
+ */
+public interface ExtentCodec<T> {
+
+    void write(List<T> items, OutputStream out) throws IOException;
+
+    List<T> read(InputStream in) throws IOException, ClassNotFoundException;
+}
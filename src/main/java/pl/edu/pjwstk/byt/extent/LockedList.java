@@ -0,0 +1,172 @@
+package pl.edu.pjwstk.byt.extent;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * ArrayList guarded by a read-write lock. Unlike Collections.synchronizedList it does not use
+ * monitors, so virtual threads waiting for it do not pin their carrier thread, and readers
+ * (copies, lookups) do not block each other.
+ */
+public class LockedList<T> extends AbstractList<T> implements RandomAccess, ReplaceableStorage<T> {
+
+    private final List<T> list = new ArrayList<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Override
+    public T get(int index) {
+        lock.readLock().lock();
+        try {
+            return list.get(index);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return list.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        lock.readLock().lock();
+        try {
+            return list.contains(o);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Object[] toArray() {
+        lock.readLock().lock();
+        try {
+            return list.toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public <E> E[] toArray(E[] a) {
+        lock.readLock().lock();
+        try {
+            return list.toArray(a);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public T set(int index, T element) {
+        lock.writeLock().lock();
+        try {
+            return list.set(index, element);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean add(T element) {
+        lock.writeLock().lock();
+        try {
+            return list.add(element);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void add(int index, T element) {
+        lock.writeLock().lock();
+        try {
+            list.add(index, element);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends T> c) {
+        lock.writeLock().lock();
+        try {
+            return list.addAll(c);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public T remove(int index) {
+        lock.writeLock().lock();
+        try {
+            return list.remove(index);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        lock.writeLock().lock();
+        try {
+            return list.remove(o);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        lock.writeLock().lock();
+        try {
+            return list.removeAll(c);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super T> filter) {
+        lock.writeLock().lock();
+        try {
+            return list.removeIf(filter);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void replaceContents(Collection<? extends T> elements) {
+        lock.writeLock().lock();
+        try {
+            list.clear();
+            list.addAll(elements);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            list.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package pl.edu.pjwstk.byt.extent;
+
+import java.util.Collection;
+
+/**
+ * Storage backend of an {@link Extent} that can swap its whole contents in one step, so that
+ * readers never see it half replaced while the extent is loaded.
+ */
+public interface ReplaceableStorage<T> {
+
+    void replaceContents(Collection<? extends T> elements);
+}
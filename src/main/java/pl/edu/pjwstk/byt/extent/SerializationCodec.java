@@ -0,0 +1,26 @@
+package pl.edu.pjwstk.byt.extent;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Default codec, stores the extent as a serialized {@link ArrayList}
+ * (same file format the domain classes always used).
+ */
+public class SerializationCodec<T> implements ExtentCodec<T> {
+
+    @Override
+    public void write(List<T> items, OutputStream out) throws IOException {
+        ObjectOutputStream oos = new ObjectOutputStream(out);
+        oos.writeObject(new ArrayList<>(items));
+        oos.flush();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<T> read(InputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream ois = new ObjectInputStream(in);
+        return (List<T>) ois.readObject();
+    }
+}
@@ -0,0 +1,41 @@
+package pl.edu.pjwstk.byt.extent;
+
+import java.util.List;
+
+/**
+ * Consistent read-only view of all extents of a {@link SnapshotGroup} at one point in time.
+ * Holding a snapshot keeps its extent versions alive; once no snapshot references a version
+ * any more it is reclaimed by the garbage collector.
+ */
+public final class Snapshot {
+
+    private final SnapshotGroup group;
+    private final Object[] versions;
+    private final long version;
+
+    Snapshot(SnapshotGroup group, Object[] versions, long version) {
+        this.group = group;
+        this.versions = versions;
+        this.version = version;
+    }
+
+    // Number of publications of the group before this snapshot was taken.
+    public long getVersion() {
+        return version;
+    }
+
+    // Immutable contents of the extent as of this snapshot.
+    public <T> List<T> of(Extent<T> extent) {
+        if (!(extent.getStorage() instanceof VersionedList)) {
+            throw new IllegalArgumentException("Extent is not versioned");
+        }
+        var list = (VersionedList<T>) extent.getStorage();
+        if (list.getGroup() != group) {
+            throw new IllegalArgumentException("Extent belongs to another snapshot group");
+        }
+        if (list.getIndex() >= versions.length) {
+            throw new IllegalStateException("Extent was created after the snapshot was taken");
+        }
+        return list.view(versions[list.getIndex()]);
+    }
+}
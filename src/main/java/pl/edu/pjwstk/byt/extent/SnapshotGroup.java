@@ -0,0 +1,84 @@
+package pl.edu.pjwstk.byt.extent;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Set of versioned extents that are read together through {@link Snapshot}s.
+ * Writers of the group publish new extent versions one at a time under a short writer lock;
+ * {@link #write} groups several changes, possibly of several extents, into one publication.
+ * Readers pin the current version of every extent without taking the lock: a sequence number
+ * that is odd while a publication is running tells them to try again.
+ */
+public final class SnapshotGroup {
+
+    private static final int PIN_ATTEMPTS = 64;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final List<VersionedList<?>> lists = new CopyOnWriteArrayList<>();
+    private volatile long sequence; // odd while a publication is running
+
+    int register(VersionedList<?> list) {
+        writeLock.lock();
+        try {
+            lists.add(list);
+            return lists.size() - 1;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Runs the changes as one publication, readers see all of them or none.
+    public void write(Runnable changes) {
+        write(() -> {
+            changes.run();
+            return null;
+        });
+    }
+
+    public <R> R write(Supplier<R> changes) {
+        writeLock.lock();
+        boolean outermost = writeLock.getHoldCount() == 1;
+        if (outermost) {
+            sequence++;
+        }
+        try {
+            return changes.get();
+        } finally {
+            if (outermost) {
+                sequence++;
+            }
+            writeLock.unlock();
+        }
+    }
+
+    public Snapshot pin() {
+        for (int attempt = 0; attempt < PIN_ATTEMPTS; attempt++) {
+            long before = sequence;
+            if ((before & 1) == 0) {
+                Object[] versions = capture();
+                if (sequence == before) {
+                    return new Snapshot(this, versions, before >>> 1);
+                }
+            }
+            Thread.onSpinWait();
+        }
+        // writers kept publishing the whole time, wait for the current publication to finish
+        writeLock.lock();
+        try {
+            return new Snapshot(this, capture(), sequence >>> 1);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private Object[] capture() {
+        Object[] versions = new Object[lists.size()];
+        for (int i = 0; i < versions.length; i++) {
+            versions[i] = lists.get(i).currentVersion();
+        }
+        return versions;
+    }
+}
@@ -0,0 +1,332 @@
+package pl.edu.pjwstk.byt.extent;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+/**
+ * Multi-version list: every change publishes a new immutable version and readers work on
+ * the version that was current when they started, without taking any lock.
+ * Appends write behind the end of the shared array, which older versions never look at,
+ * so registering instances does not copy the extent. Small removals do not copy it either:
+ * the new version shares the array and lists the removed slots, which are compacted away
+ * once there are more than {@link #MAX_REMOVED_SLOTS} of them. Other changes copy the array.
+ * Writes are published through the {@link SnapshotGroup} of the list.
+ */
+public class VersionedList<T> extends AbstractList<T> implements RandomAccess, ReplaceableStorage<T> {
+
+    static final int MAX_REMOVED_SLOTS = 32;
+
+    private static final int[] NO_SLOTS = new int[0];
+
+    private static final class Version {
+        private final Object[] elements;
+        private final int length; // used slots of elements, removed ones included
+        private final int[] removed; // ascending slots that are no longer part of this version
+        private final int size;
+
+        private Version(Object[] elements, int length, int[] removed) {
+            this.elements = elements;
+            this.length = length;
+            this.removed = removed;
+            this.size = length - removed.length;
+        }
+
+        // removed[j] - j is the number of live slots before removed[j], so it never decreases
+        private int slot(int index) {
+            int low = 0;
+            int high = removed.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (removed[mid] - mid <= index) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return index + low;
+        }
+    }
+
+    // Read-only list over a version that still has removed slots.
+    private static final class VersionView<T> extends AbstractList<T> implements RandomAccess {
+        private final Version version;
+
+        private VersionView(Version version) {
+            this.version = version;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            Objects.checkIndex(index, version.size);
+            return (T) version.elements[version.slot(index)];
+        }
+
+        @Override
+        public int size() {
+            return version.size;
+        }
+    }
+
+    private static final Version EMPTY = new Version(new Object[0], 0, NO_SLOTS);
+
+    private final SnapshotGroup group;
+    private final int index;
+    private volatile Version current = EMPTY;
+
+    public VersionedList(SnapshotGroup group) {
+        if (group == null) {
+            throw new IllegalArgumentException("Snapshot group cannot be null");
+        }
+        this.group = group;
+        this.index = group.register(this);
+    }
+
+    SnapshotGroup getGroup() {
+        return group;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    Object currentVersion() {
+        return current;
+    }
+
+    @SuppressWarnings("unchecked")
+    List<T> view(Object pinned) {
+        var version = (Version) pinned;
+        if (version.removed.length > 0) {
+            return new VersionView<>(version);
+        }
+        return Collections.unmodifiableList((List<T>) Arrays.asList(version.elements).subList(0, version.size));
+    }
+
+    // Immutable view of the current version.
+    public List<T> pin() {
+        return view(current);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        Version version = current;
+        Objects.checkIndex(index, version.size);
+        return (T) version.elements[version.slot(index)];
+    }
+
+    @Override
+    public int size() {
+        return current.size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        Version version = current;
+        int next = 0;
+        for (int i = 0; i < version.length; i++) {
+            if (next < version.removed.length && version.removed[next] == i) {
+                next++;
+            } else if (Objects.equals(o, version.elements[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Object[] toArray() {
+        Version version = current;
+        return compact(version, version.size);
+    }
+
+    @Override
+    public <E> E[] toArray(E[] a) {
+        return pin().toArray(a);
+    }
+
+    @Override
+    public boolean add(T element) {
+        return group.write(() -> {
+            Version version = withRoomFor(current, 1);
+            version.elements[version.length] = element;
+            current = new Version(version.elements, version.length + 1, version.removed);
+            return true;
+        });
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends T> c) {
+        Object[] added = c.toArray();
+        if (added.length == 0) {
+            return false;
+        }
+        return group.write(() -> {
+            Version version = withRoomFor(current, added.length);
+            System.arraycopy(added, 0, version.elements, version.length, added.length);
+            current = new Version(version.elements, version.length + added.length, version.removed);
+            return true;
+        });
+    }
+
+    @Override
+    public void add(int index, T element) {
+        group.write(() -> {
+            Version version = current;
+            Objects.checkIndex(index, version.size + 1);
+            Object[] elements = compact(version, Math.max(8, version.size * 2));
+            System.arraycopy(elements, index, elements, index + 1, version.size - index);
+            elements[index] = element;
+            current = new Version(elements, version.size + 1, NO_SLOTS);
+        });
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T set(int index, T element) {
+        return group.write(() -> {
+            Version version = current;
+            Objects.checkIndex(index, version.size);
+            Object[] elements = compact(version, version.elements.length);
+            T previous = (T) elements[index];
+            elements[index] = element;
+            current = new Version(elements, version.size, NO_SLOTS);
+            return previous;
+        });
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T remove(int index) {
+        return group.write(() -> {
+            Version version = current;
+            Objects.checkIndex(index, version.size);
+            int slot = version.slot(index);
+            removeSlots(version, new int[] {slot}, 1);
+            return (T) version.elements[slot];
+        });
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        return group.write(() -> removeMatching(current, element -> Objects.equals(o, element), true));
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        return group.write(() -> removeMatching(current, c::contains, false));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean removeIf(Predicate<? super T> filter) {
+        return group.write(() -> removeMatching(current, element -> filter.test((T) element), false));
+    }
+
+    @Override
+    public void clear() {
+        group.write(() -> {
+            current = EMPTY;
+        });
+    }
+
+    // One new version, so no reader sees the list empty in between.
+    @Override
+    public void replaceContents(Collection<? extends T> elements) {
+        Object[] source = elements.toArray();
+        Object[] replacement = Arrays.copyOf(source, source.length, Object[].class);
+        group.write(() -> {
+            current = replacement.length == 0 ? EMPTY : new Version(replacement, replacement.length, NO_SLOTS);
+        });
+    }
+
+    // The version itself if its array has room for more elements, otherwise a copy with room (and without removed slots).
+    private static Version withRoomFor(Version version, int more) {
+        if (version.length + more <= version.elements.length) {
+            return version;
+        }
+        Object[] elements = compact(version, Math.max(version.size + more, Math.max(8, version.size * 2)));
+        return new Version(elements, version.size, NO_SLOTS);
+    }
+
+    // The live elements of the version, in order, at the start of a new array of the given capacity.
+    private static Object[] compact(Version version, int capacity) {
+        Object[] elements = new Object[capacity];
+        copyLive(version.elements, version.length, version.removed, version.removed.length, elements);
+        return elements;
+    }
+
+    // Copies the slots below length that are not in skip (ascending) in runs; returns how many were copied.
+    private static int copyLive(Object[] from, int length, int[] skip, int skipCount, Object[] to) {
+        int copied = 0;
+        int start = 0;
+        for (int j = 0; j <= skipCount; j++) {
+            int end = j < skipCount ? skip[j] : length;
+            System.arraycopy(from, start, to, copied, end - start);
+            copied += end - start;
+            start = end + 1;
+        }
+        return copied;
+    }
+
+    // Removes the live elements the filter accepts; keeps the current version if there are none.
+    private boolean removeMatching(Version version, Predicate<Object> filter, boolean firstOnly) {
+        int[] slots = NO_SLOTS;
+        int count = 0;
+        int next = 0;
+        for (int i = 0; i < version.length; i++) {
+            if (next < version.removed.length && version.removed[next] == i) {
+                next++;
+            } else if (filter.test(version.elements[i])) {
+                if (count == slots.length) {
+                    slots = Arrays.copyOf(slots, Math.max(8, count * 2));
+                }
+                slots[count++] = i;
+                if (firstOnly) {
+                    break;
+                }
+            }
+        }
+        if (count == 0) {
+            return false;
+        }
+        removeSlots(version, slots, count);
+        return true;
+    }
+
+    // Publishes the version without the given (ascending, live) slots.
+    private void removeSlots(Version version, int[] slots, int count) {
+        int[] removed = merge(version.removed, slots, count);
+        if (removed.length <= MAX_REMOVED_SLOTS) {
+            current = new Version(version.elements, version.length, removed);
+            return;
+        }
+        Object[] elements = new Object[version.elements.length];
+        int size = copyLive(version.elements, version.length, removed, removed.length, elements);
+        current = new Version(elements, size, NO_SLOTS);
+    }
+
+    private static int[] merge(int[] a, int[] b, int bCount) {
+        int[] merged = new int[a.length + bCount];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < a.length && j < bCount) {
+            merged[k++] = a[i] < b[j] ? a[i++] : b[j++];
+        }
+        while (i < a.length) {
+            merged[k++] = a[i++];
+        }
+        while (j < bCount) {
+            merged[k++] = b[j++];
+        }
+        return merged;
+    }
+}
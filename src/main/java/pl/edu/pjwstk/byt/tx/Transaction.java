@@ -0,0 +1,155 @@
+package pl.edu.pjwstk.byt.tx;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Lightweight optimistic in-memory transaction over several domain objects.
+ * The body of the transaction reads objects through {@link #read} and only records its changes
+ * with {@link #write}. At commit the written objects are locked (a busy object aborts the
+ * transaction instead of waiting), the versions of everything read are validated and the changes
+ * are applied. If applying a change fails, the already applied ones are undone in reverse order.
+ * Only transactions touching the same objects conflict; they are retried by {@link #execute}.
+ */
+public final class Transaction {
+
+    public static final int DEFAULT_ATTEMPTS = 16;
+
+    private static final class Write {
+        private final VersionStamp stamp;
+        private final Runnable apply;
+        private final Runnable undo;
+
+        private Write(VersionStamp stamp, Runnable apply, Runnable undo) {
+            this.stamp = stamp;
+            this.apply = apply;
+            this.undo = undo;
+        }
+    }
+
+    private final Map<VersionStamp, Long> reads = new HashMap<>();
+    private final Set<VersionStamp> writeSet = new LinkedHashSet<>();
+    private final List<Write> writes = new ArrayList<>();
+
+    private Transaction() {
+    }
+
+    public static <T> T execute(Function<Transaction, T> body) {
+        return execute(body, DEFAULT_ATTEMPTS);
+    }
+
+    /**
+     * Runs the body and commits it, retrying on conflicts with a randomized backoff.
+     * Other exceptions of the body or of a change are not retried.
+     */
+    public static <T> T execute(Function<Transaction, T> body, int maxAttempts) {
+        if (body == null) {
+            throw new IllegalArgumentException("Transaction body cannot be null");
+        }
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Max attempts must be positive");
+        }
+        for (int attempt = 1; ; attempt++) {
+            var transaction = new Transaction();
+            try {
+                T result = body.apply(transaction);
+                transaction.commit();
+                return result;
+            } catch (TransactionConflictException e) {
+                if (attempt == maxAttempts) {
+                    throw e;
+                }
+                LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(1_000L << Math.min(attempt, 10)));
+            }
+        }
+    }
+
+    // Reads a value of the object; fails fast if the object changes while (or since) it was read.
+    public <T> T read(Versioned object, Supplier<T> getter) {
+        VersionStamp stamp = stampOf(object);
+        long version = stamp.version();
+        T value = getter.get();
+        if (version < 0 || stamp.version() != version) {
+            throw new TransactionConflictException("Object changed while it was read");
+        }
+        Long previous = reads.putIfAbsent(stamp, version);
+        if (previous != null && previous != version) {
+            throw new TransactionConflictException("Object changed since it was read");
+        }
+        return value;
+    }
+
+    /**
+     * Records a change of the object, applied at commit. The undo action reverts the change and
+     * is only run when a later change of the same transaction fails.
+     */
+    public void write(Versioned object, Runnable apply, Runnable undo) {
+        if (apply == null || undo == null) {
+            throw new IllegalArgumentException("Apply and undo actions cannot be null");
+        }
+        VersionStamp stamp = stampOf(object);
+        if (!reads.containsKey(stamp)) {
+            long version = stamp.version();
+            if (version < 0) {
+                throw new TransactionConflictException("Object is being changed by another transaction");
+            }
+            reads.put(stamp, version);
+        }
+        writeSet.add(stamp);
+        writes.add(new Write(stamp, apply, undo));
+    }
+
+    private void commit() {
+        List<VersionStamp> locked = new ArrayList<>(writeSet.size());
+        boolean committed = false;
+        try {
+            for (VersionStamp stamp : writeSet) {
+                if (!stamp.tryLock(reads.get(stamp))) {
+                    throw new TransactionConflictException("Object was changed by another transaction");
+                }
+                locked.add(stamp);
+            }
+            for (Map.Entry<VersionStamp, Long> read : reads.entrySet()) {
+                if (!writeSet.contains(read.getKey()) && read.getKey().version() != read.getValue()) {
+                    throw new TransactionConflictException("Object was changed by another transaction");
+                }
+            }
+            apply();
+            committed = true;
+        } finally {
+            for (VersionStamp stamp : locked) {
+                stamp.unlock(committed);
+            }
+        }
+    }
+
+    private void apply() {
+        int applied = 0;
+        try {
+            for (Write write : writes) {
+                write.apply.run();
+                applied++;
+            }
+        } catch (RuntimeException e) {
+            for (int i = applied - 1; i >= 0; i--) {
+                writes.get(i).undo.run();
+            }
+            throw e;
+        }
+    }
+
+    private static VersionStamp stampOf(Versioned object) {
+        if (object == null) {
+            throw new IllegalArgumentException("Object cannot be null");
+        }
+        return object.getVersionStamp();
+    }
+}
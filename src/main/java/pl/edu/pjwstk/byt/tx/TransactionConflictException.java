@@ -0,0 +1,10 @@
+package pl.edu.pjwstk.byt.tx;
+
+// Thrown when an object read or written by a transaction was changed concurrently.
+public class TransactionConflictException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    public TransactionConflictException(String message) {
+        super(message);
+    }
+}
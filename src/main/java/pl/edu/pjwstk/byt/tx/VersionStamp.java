@@ -0,0 +1,36 @@
+package pl.edu.pjwstk.byt.tx;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of a domain object, used to validate optimistic transactions.
+ * The counter grows with every change of the object. While a transaction commits a change
+ * to the object the stamp is locked, other transactions touching the object then abort.
+ */
+public final class VersionStamp implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final long LOCKED = 1; // lowest bit, the version is kept in the others
+
+    private final AtomicLong word = new AtomicLong();
+
+    // Current version, or -1 while a transaction is committing a change of the object.
+    public long version() {
+        long word = this.word.get();
+        return (word & LOCKED) != 0 ? -1 : word >>> 1;
+    }
+
+    // Records a change made outside a transaction (or by the committing transaction itself).
+    public void touch() {
+        word.addAndGet(2);
+    }
+
+    // Locks the stamp if it is still at the expected version.
+    boolean tryLock(long expectedVersion) {
+        return expectedVersion >= 0 && word.compareAndSet(expectedVersion << 1, (expectedVersion << 1) | LOCKED);
+    }
+
+    void unlock(boolean changed) {
+        word.getAndUpdate(word -> (word & ~LOCKED) + (changed ? 2 : 0));
+    }
+}
@@ -0,0 +1,7 @@
+package pl.edu.pjwstk.byt.tx;
+
+// Domain object that can take part in a Transaction.
+public interface Versioned {
+
+    VersionStamp getVersionStamp();
+}
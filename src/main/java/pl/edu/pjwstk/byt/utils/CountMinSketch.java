@@ -0,0 +1,87 @@
+package pl.edu.pjwstk.byt.utils;
+
+import java.io.Serializable;
+
+/**
+ * Count-min sketch (Cormode and Muthukrishnan) with long counters over 64-bit hashes.
+ * An estimate is never below the true count and exceeds it by at most about
+ * e / width of the total count, with probability 1 - e^-depth. Unlike FrequencySketch it
+ * keeps full counts and never ages them, and sketches of the same shape merge by adding up
+ * their counters.
+ * Not thread-safe, callers guard it with their own lock.
+ */
+public class CountMinSketch implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final int depth;
+    private final int mask;
+    private final long[] table; // depth rows of width counters
+    private long total;
+
+    public CountMinSketch(int depth, int width) {
+        if (depth <= 0 || depth > 16) {
+            throw new IllegalArgumentException("Depth must be between 1 and 16");
+        }
+        if (width <= 0 || Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("Width must be a power of two");
+        }
+        this.depth = depth;
+        this.mask = width - 1;
+        this.table = new long[depth * width];
+    }
+
+    private CountMinSketch(CountMinSketch other) {
+        this.depth = other.depth;
+        this.mask = other.mask;
+        this.table = other.table.clone();
+        this.total = other.total;
+    }
+
+    // Adds the count and returns the new estimate. The hash must be well mixed, see Hashing.hash64.
+    public long add(long hash, long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count cannot be negative");
+        }
+        total += count;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int index = index(hash, row);
+            table[index] += count;
+            estimate = Math.min(estimate, table[index]);
+        }
+        return estimate;
+    }
+
+    public long estimate(long hash) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, table[index(hash, row)]);
+        }
+        return estimate;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void merge(CountMinSketch other) {
+        if (other.depth != depth || other.mask != mask) {
+            throw new IllegalArgumentException("Cannot merge sketches of different shape");
+        }
+        for (int i = 0; i < table.length; i++) {
+            table[i] += other.table[i];
+        }
+        total += other.total;
+    }
+
+    public CountMinSketch copy() {
+        return new CountMinSketch(this);
+    }
+
+    // Row hashes h1 + row * h2 (Kirsch and Mitzenmacher), one row after another in the table.
+    private int index(long hash, int row) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return row * (mask + 1) + ((h1 + row * h2) & mask);
+    }
+}
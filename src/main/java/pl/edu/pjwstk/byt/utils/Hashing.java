@@ -0,0 +1,31 @@
+package pl.edu.pjwstk.byt.utils;
+
+/**
+ * 64-bit string hash for the analytics sketches. Unlike String.hashCode it is wide enough for
+ * billions of distinct keys, and it only depends on the characters, so sketches built on
+ * different machines can be merged.
+ */
+public final class Hashing {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private Hashing() {
+    }
+
+    // FNV-1a over the UTF-16 chars, then the MurmurHash3 finalizer to spread the bits.
+    public static long hash64(CharSequence value) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            hash = (hash ^ (c & 0xFF)) * FNV_PRIME;
+            hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,155 @@
+package pl.edu.pjwstk.byt.utils;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Approximate top-K items by count: a CountMinSketch estimates every count and the K items
+ * with the highest estimates are kept as candidates in a min-heap indexed by item. An item that
+ * is not a candidate only costs a sketch update, unless its estimate beats the root of the heap,
+ * which it then replaces in O(log K). Merging adds up the sketches and picks the top K of both
+ * candidate sets again.
+ * Not thread-safe, callers guard it with their own lock.
+ */
+public class HeavyHitters implements Serializable {
+    private static final long serialVersionUID = 2L; // 2: candidates in an indexed min-heap
+
+    public record Entry(String item, long count) implements Serializable {
+    }
+
+    private final int k;
+    private final CountMinSketch sketch;
+    // min-heap of the candidates by count, the smallest at index 0
+    private final String[] heapItems;
+    private final long[] heapCounts;
+    private final HashMap<String, Integer> positions; // heap index of every candidate
+    private int size;
+
+    public HeavyHitters(int k, int depth, int width) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("K must be positive");
+        }
+        this.k = k;
+        this.sketch = new CountMinSketch(depth, width);
+        this.heapItems = new String[k];
+        this.heapCounts = new long[k];
+        this.positions = new HashMap<>(k * 2);
+    }
+
+    private HeavyHitters(HeavyHitters other) {
+        this.k = other.k;
+        this.sketch = other.sketch.copy();
+        this.heapItems = other.heapItems.clone();
+        this.heapCounts = other.heapCounts.clone();
+        this.positions = new HashMap<>(other.positions);
+        this.size = other.size;
+    }
+
+    public void add(String item, long count) {
+        long estimate = sketch.add(Hashing.hash64(item), count);
+        offer(item, estimate);
+    }
+
+    public long estimate(String item) {
+        return sketch.estimate(Hashing.hash64(item));
+    }
+
+    public long getTotal() {
+        return sketch.getTotal();
+    }
+
+    // Candidates by estimated count, highest first.
+    public List<Entry> top() {
+        List<Entry> top = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            top.add(new Entry(heapItems[i], heapCounts[i]));
+        }
+        top.sort(Comparator.comparingLong(Entry::count).reversed().thenComparing(Entry::item));
+        return top;
+    }
+
+    public void merge(HeavyHitters other) {
+        if (other.k != k) {
+            throw new IllegalArgumentException("Cannot merge heavy hitters of different k");
+        }
+        sketch.merge(other.sketch);
+        Set<String> items = new HashSet<>(positions.keySet());
+        items.addAll(other.positions.keySet());
+        Arrays.fill(heapItems, null);
+        positions.clear();
+        size = 0;
+        for (String item : items) {
+            offer(item, estimate(item));
+        }
+    }
+
+    public HeavyHitters copy() {
+        return new HeavyHitters(this);
+    }
+
+    private void offer(String item, long estimate) {
+        Integer position = positions.get(item);
+        if (position != null) {
+            heapCounts[position] = estimate;
+            siftDown(siftUp(position));
+            return;
+        }
+        if (size < k) {
+            place(size, item, estimate);
+            siftUp(size++);
+            return;
+        }
+        if (estimate > heapCounts[0]) {
+            positions.remove(heapItems[0]);
+            place(0, item, estimate);
+            siftDown(0);
+        }
+    }
+
+    private void place(int index, String item, long count) {
+        heapItems[index] = item;
+        heapCounts[index] = count;
+        positions.put(item, index);
+    }
+
+    private int siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (heapCounts[parent] <= heapCounts[index]) {
+                break;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+        return index;
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int smallest = index;
+            for (int child = 2 * index + 1; child <= 2 * index + 2 && child < size; child++) {
+                if (heapCounts[child] < heapCounts[smallest]) {
+                    smallest = child;
+                }
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        String item = heapItems[a];
+        long count = heapCounts[a];
+        place(a, heapItems[b], heapCounts[b]);
+        place(b, item, count);
+    }
+}
@@ -0,0 +1,106 @@
+package pl.edu.pjwstk.byt.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Sums of non-negative values over a sliding time window, e.g. orders of the last 5 minutes.
+ * Time is cut into slots ({@code slotMillis} wide); every stripe has a ring buffer of slots.
+ * A slot is one long that packs the slot number it belongs to (low bits of it, as a tag) with
+ * the value, so an add is a single CAS with no lock and no allocation: a stale slot is reset
+ * and added to in the same CAS. Threads add to their own stripe, so they rarely share a CAS.
+ * Reads sum the slots of the window over all stripes; they are exact once writers stop.
+ */
+public class SlidingWindowCounter {
+
+    private static final int TAG_BITS = 20;
+    private static final int VALUE_BITS = Long.SIZE - TAG_BITS;
+    private static final long TAG_MASK = (1L << TAG_BITS) - 1;
+    private static final long VALUE_MASK = (1L << VALUE_BITS) - 1;
+
+    private final AtomicLongArray slots;
+    private final int slotCount;
+    private final int stripes;
+    private final long slotMillis;
+    private final LongSupplier clock;
+
+    public SlidingWindowCounter(int slotCount, long slotMillis, int stripes, LongSupplier clock) {
+        if (slotCount <= 0 || slotCount > TAG_MASK) {
+            throw new IllegalArgumentException("Slot count must be between 1 and " + TAG_MASK);
+        }
+        if (slotMillis <= 0) {
+            throw new IllegalArgumentException("Slot width must be positive");
+        }
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive");
+        }
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock cannot be null");
+        }
+        this.slotCount = slotCount;
+        this.stripes = stripes;
+        this.slotMillis = slotMillis;
+        this.clock = clock;
+        // stripe-major, so the slots written by different stripes are slotCount * 8 bytes apart
+        this.slots = new AtomicLongArray(slotCount * stripes);
+    }
+
+    public long getWindowMillis() {
+        return slotCount * slotMillis;
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    public void add(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Value cannot be negative");
+        }
+        long slot = Math.floorDiv(clock.getAsLong(), slotMillis);
+        long tag = slot & TAG_MASK;
+        int index = homeStripe() * slotCount + (int) Math.floorMod(slot, (long) slotCount);
+        while (true) {
+            long word = slots.get(index);
+            long sum = (word >>> VALUE_BITS) == tag ? (word & VALUE_MASK) + value : value;
+            // saturates instead of spilling into the tag
+            long next = tag << VALUE_BITS | Math.min(sum, VALUE_MASK);
+            if (slots.compareAndSet(index, word, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sum over the last {@code windowMillis}, rounded up to whole slots, the current slot included.
+     * The window cannot be longer than the ring buffer.
+     */
+    public long sum(long windowMillis) {
+        if (windowMillis <= 0 || windowMillis > getWindowMillis()) {
+            throw new IllegalArgumentException("Window must be between 1 and " + getWindowMillis() + " ms");
+        }
+        int windowSlots = (int) ((windowMillis + slotMillis - 1) / slotMillis);
+        long current = Math.floorDiv(clock.getAsLong(), slotMillis);
+        long sum = 0;
+        for (long slot = current - windowSlots + 1; slot <= current; slot++) {
+            long tag = slot & TAG_MASK;
+            int offset = (int) Math.floorMod(slot, (long) slotCount);
+            for (int stripe = 0; stripe < stripes; stripe++) {
+                long word = slots.get(stripe * slotCount + offset);
+                if ((word >>> VALUE_BITS) == tag) {
+                    sum += word & VALUE_MASK;
+                }
+            }
+        }
+        return sum;
+    }
+
+    // Per second over the window, e.g. the order rate.
+    public double rate(long windowMillis) {
+        return sum(windowMillis) * 1000.0 / windowMillis;
+    }
+
+    private int homeStripe() {
+        return Striping.homeStripe(stripes);
+    }
+}
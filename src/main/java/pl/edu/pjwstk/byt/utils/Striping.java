@@ -0,0 +1,22 @@
+package pl.edu.pjwstk.byt.utils;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Home stripe of the calling thread for striped counters. Every thread draws a random probe
+ * once and keeps it, so a thread always lands on the same stripe and threads spread evenly
+ * over the stripes.
+ */
+public final class Striping {
+
+    private static final ThreadLocal<Integer> probe =
+            ThreadLocal.withInitial(() -> ThreadLocalRandom.current().nextInt() & Integer.MAX_VALUE);
+
+    private Striping() {
+    }
+
+    // Between 0 and stripes - 1.
+    public static int homeStripe(int stripes) {
+        return probe.get() % stripes;
+    }
+}
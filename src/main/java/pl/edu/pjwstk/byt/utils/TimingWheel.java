@@ -0,0 +1,184 @@
+package pl.edu.pjwstk.byt.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel (Varghese and Lauck).
+ * Level k has {@code wheelSize} slots, each {@code tickMillis * wheelSize^k} wide. Scheduling
+ * and cancelling are O(1). A timer moves down at most once per level before it fires, so the
+ * cost per expiry does not depend on how many timers are pending. Timers never fire early.
+ * Not thread-safe, callers guard it with their own lock.
+ */
+public class TimingWheel<T> {
+
+    public static final class Timer<T> {
+        private final T value;
+        private long deadlineTick;
+        private Timer<T> prev;
+        private Timer<T> next;
+        private Timer<T> bucket; // sentinel of the slot this timer is linked into, null when not scheduled
+
+        private Timer(T value) {
+            this.value = value;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public boolean isScheduled() {
+            return bucket != null;
+        }
+    }
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final List<Timer<T>[]> levels = new ArrayList<>();
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+        if (wheelSize < 2) {
+            throw new IllegalArgumentException("Wheel size must be at least 2");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+        addLevel();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Schedules a new timer. A deadline that already passed fires on the next {@link #advance}.
+     */
+    public Timer<T> schedule(T value, long deadlineMillis) {
+        Timer<T> timer = new Timer<>(value);
+        reschedule(timer, deadlineMillis);
+        return timer;
+    }
+
+    public void reschedule(Timer<T> timer, long deadlineMillis) {
+        cancel(timer);
+        // round up so a timer never fires before its deadline
+        timer.deadlineTick = Math.max(Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis), currentTick + 1);
+        insert(timer);
+        size++;
+    }
+
+    public void cancel(Timer<T> timer) {
+        if (timer.bucket == null) {
+            return;
+        }
+        unlink(timer);
+        size--;
+    }
+
+    /**
+     * Moves the clock forward to {@code nowMillis}, passing the value of every timer whose
+     * deadline was reached to {@code onExpired}. The callback may schedule new timers or
+     * reschedule the timer that just expired.
+     */
+    public int advance(long nowMillis, Consumer<T> onExpired) {
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        int expired = 0;
+        while (currentTick < targetTick) {
+            if (size == 0) {
+                currentTick = targetTick; // nothing pending, skip idle ticks
+                break;
+            }
+            currentTick++;
+            // cascade the slots of the coarser levels that just became current
+            long unit = 1;
+            for (int level = 1; level < levels.size(); level++) {
+                unit *= wheelSize;
+                if (currentTick % unit != 0) {
+                    break;
+                }
+                Timer<T> cascaded = detach(levels.get(level)[slotIndex(currentTick / unit)]);
+                while (cascaded != null) {
+                    Timer<T> next = cascaded.next;
+                    insert(cascaded);
+                    cascaded = next;
+                }
+            }
+            Timer<T> due = detach(levels.get(0)[slotIndex(currentTick)]);
+            while (due != null) {
+                Timer<T> next = due.next;
+                due.prev = null;
+                due.next = null;
+                size--;
+                expired++;
+                onExpired.accept(due.value);
+                due = next;
+            }
+        }
+        return expired;
+    }
+
+    // level k holds timers due within the next wheelSize units of that level
+    private void insert(Timer<T> timer) {
+        int level = 0;
+        long unit = 1;
+        while (timer.deadlineTick / unit - currentTick / unit >= wheelSize) {
+            level++;
+            unit *= wheelSize;
+            if (level == levels.size()) {
+                addLevel();
+            }
+        }
+        // a cascaded timer due right now lands in the level 0 slot that is processed next
+        Timer<T> sentinel = levels.get(level)[slotIndex(timer.deadlineTick / unit)];
+        timer.bucket = sentinel;
+        timer.prev = sentinel.prev;
+        timer.next = sentinel;
+        sentinel.prev.next = timer;
+        sentinel.prev = timer;
+    }
+
+    private void unlink(Timer<T> timer) {
+        timer.prev.next = timer.next;
+        timer.next.prev = timer.prev;
+        timer.prev = null;
+        timer.next = null;
+        timer.bucket = null;
+    }
+
+    // empties the slot and returns its timers as a null terminated chain
+    private Timer<T> detach(Timer<T> sentinel) {
+        if (sentinel.next == sentinel) {
+            return null;
+        }
+        Timer<T> first = sentinel.next;
+        sentinel.prev.next = null;
+        sentinel.next = sentinel;
+        sentinel.prev = sentinel;
+        for (Timer<T> t = first; t != null; t = t.next) {
+            t.bucket = null;
+        }
+        return first;
+    }
+
+    private int slotIndex(long unitIndex) {
+        return (int) Math.floorMod(unitIndex, (long) wheelSize);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void addLevel() {
+        Timer<T>[] slots = new Timer[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            Timer<T> sentinel = new Timer<>(null);
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            slots[i] = sentinel;
+        }
+        levels.add(slots);
+    }
+}
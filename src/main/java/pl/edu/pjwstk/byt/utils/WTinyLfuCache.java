@@ -0,0 +1,223 @@
+package pl.edu.pjwstk.byt.utils;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Weight-bounded cache with W-TinyLFU admission (Einziger, Friedman and Manes).
+ * New entries enter a small LRU window (1% of the budget). Entries leaving the window compete
+ * with the least recently used entry of the main space: whichever the frequency sketch rates
+ * as less popular is evicted, so a scan of once-read keys cannot flush the frequently read
+ * ones. The main space is a segmented LRU: an entry hit while on probation moves to the
+ * protected segment (80% of the main space).
+ * Not thread-safe, callers guard it with their own lock.
+ */
+public class WTinyLfuCache<K, V> {
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private static final class Node<V> {
+        private V value;
+        private long weight;
+        private int queue;
+
+        private Node(V value, long weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    private final Map<K, Node<V>> data = new HashMap<>();
+    // queues in LRU order, the first entry is the least recently used
+    private final LinkedHashMap<K, Node<V>> window = new LinkedHashMap<>();
+    private final LinkedHashMap<K, Node<V>> probation = new LinkedHashMap<>();
+    private final LinkedHashMap<K, Node<V>> protectedQueue = new LinkedHashMap<>();
+    private final long[] queueWeights = new long[3];
+
+    private final FrequencySketch<K> sketch;
+    private final ToLongFunction<V> weigher;
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param maximumWeight  budget of the whole cache, in the unit of the weigher (e.g. bytes)
+     * @param expectedSize   expected number of entries, sizes the frequency sketch
+     */
+    public WTinyLfuCache(long maximumWeight, int expectedSize, ToLongFunction<V> weigher) {
+        if (maximumWeight <= 0) {
+            throw new IllegalArgumentException("Maximum weight must be positive");
+        }
+        if (weigher == null) {
+            throw new IllegalArgumentException("Weigher cannot be null");
+        }
+        this.maximumWeight = maximumWeight;
+        this.windowMaximum = Math.max(1, maximumWeight / 100);
+        this.protectedMaximum = (maximumWeight - windowMaximum) * 8 / 10;
+        this.sketch = new FrequencySketch<>(expectedSize);
+        this.weigher = weigher;
+    }
+
+    // Cached value or null; every lookup counts towards the frequency of the key.
+    public V get(K key) {
+        sketch.increment(key);
+        Node<V> node = data.get(key);
+        if (node == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        onHit(key, node);
+        return node.value;
+    }
+
+    /**
+     * Adds or replaces the value. A value heavier than the whole budget is not cached.
+     * Returns false if the value was not admitted.
+     */
+    public boolean put(K key, V value) {
+        long weight = weigher.applyAsLong(value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight cannot be negative");
+        }
+        Node<V> node = data.get(key);
+        if (node != null) {
+            queueWeights[node.queue] += weight - node.weight;
+            node.value = value;
+            node.weight = weight;
+            onHit(key, node);
+        } else {
+            if (weight > maximumWeight) {
+                return false;
+            }
+            node = new Node<>(value, weight);
+            node.queue = WINDOW;
+            data.put(key, node);
+            window.put(key, node);
+            queueWeights[WINDOW] += weight;
+        }
+        evict();
+        return data.get(key) == node;
+    }
+
+    public V invalidate(K key) {
+        Node<V> node = data.remove(key);
+        if (node == null) {
+            return null;
+        }
+        queue(node.queue).remove(key);
+        queueWeights[node.queue] -= node.weight;
+        return node.value;
+    }
+
+    public int size() {
+        return data.size();
+    }
+
+    public long weightedSize() {
+        return queueWeights[WINDOW] + queueWeights[PROBATION] + queueWeights[PROTECTED];
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public long getHitCount() {
+        return hits;
+    }
+
+    public long getMissCount() {
+        return misses;
+    }
+
+    public long getEvictionCount() {
+        return evictions;
+    }
+
+    public double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+
+    private void onHit(K key, Node<V> node) {
+        if (node.queue == PROBATION) {
+            probation.remove(key);
+            queueWeights[PROBATION] -= node.weight;
+            node.queue = PROTECTED;
+            protectedQueue.put(key, node);
+            queueWeights[PROTECTED] += node.weight;
+            // demote the least recently used protected entries back to probation
+            while (queueWeights[PROTECTED] > protectedMaximum && protectedQueue.size() > 1) {
+                var demoted = removeFirst(protectedQueue, PROTECTED);
+                demoted.getValue().queue = PROBATION;
+                probation.put(demoted.getKey(), demoted.getValue());
+                queueWeights[PROBATION] += demoted.getValue().weight;
+            }
+        } else {
+            // move to the most recently used end
+            var queue = queue(node.queue);
+            queue.remove(key);
+            queue.put(key, node);
+        }
+    }
+
+    private void evict() {
+        // entries leaving the window become candidates at the most recently used end of probation
+        ArrayDeque<K> candidates = new ArrayDeque<>();
+        while (queueWeights[WINDOW] > windowMaximum && window.size() > 1) {
+            var candidate = removeFirst(window, WINDOW);
+            candidate.getValue().queue = PROBATION;
+            probation.put(candidate.getKey(), candidate.getValue());
+            queueWeights[PROBATION] += candidate.getValue().weight;
+            candidates.add(candidate.getKey());
+        }
+        while (weightedSize() > maximumWeight) {
+            if (probation.isEmpty()) {
+                evictFirst(protectedQueue.isEmpty() ? window : protectedQueue);
+                continue;
+            }
+            K candidate = candidates.poll();
+            while (candidate != null && !probation.containsKey(candidate)) {
+                candidate = candidates.poll(); // already evicted as a victim
+            }
+            K victim = probation.keySet().iterator().next();
+            if (candidate == null || candidate.equals(victim)
+                    || sketch.frequency(candidate) > sketch.frequency(victim)) {
+                evictKey(victim);
+            } else {
+                evictKey(candidate);
+            }
+        }
+    }
+
+    private void evictFirst(LinkedHashMap<K, Node<V>> queue) {
+        evictKey(queue.keySet().iterator().next());
+    }
+
+    private void evictKey(K key) {
+        invalidate(key);
+        evictions++;
+    }
+
+    private Map.Entry<K, Node<V>> removeFirst(LinkedHashMap<K, Node<V>> queue, int queueId) {
+        Iterator<Map.Entry<K, Node<V>>> iterator = queue.entrySet().iterator();
+        var first = iterator.next();
+        iterator.remove();
+        queueWeights[queueId] -= first.getValue().weight;
+        return Map.entry(first.getKey(), first.getValue());
+    }
+
+    private LinkedHashMap<K, Node<V>> queue(int queue) {
+        return queue == WINDOW ? window : queue == PROBATION ? probation : protectedQueue;
+    }
+}
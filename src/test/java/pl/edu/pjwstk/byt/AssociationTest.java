@@ -148,6 +148,43 @@ class AssociationTest {
         assertFalse(OrderItem.getExtent().contains(item2), "Part 2 should be deleted");
     }
 
+    @Test
+    void shouldCascadeDeleteOrdersWhenCustomerIsDeleted() {
+        Customer alice = new Customer("Alice", "alice@example.com");
+        Customer bob = new Customer("Bob", "bob@example.com");
+        Product product = new Product("P", "D", 10.0, 10, java.util.List.of("i"));
+        Order aliceOrder1 = new Order(alice, product, 1);
+        Order aliceOrder2 = new Order(alice, product, 2);
+        Order bobOrder = new Order(bob, product, 3);
+
+        alice.delete();
+
+        assertFalse(Customer.getExtent().contains(alice));
+        assertEquals(List.of(bobOrder), Order.getExtent());
+        assertEquals(bobOrder.getItems(), OrderItem.getExtent());
+        assertTrue(alice.getOrders().isEmpty());
+        assertNull(aliceOrder1.getCustomer());
+        assertTrue(aliceOrder2.getItems().isEmpty());
+        assertEquals(List.of(bobOrder), bob.getOrders());
+    }
+
+    @Test
+    void shouldDeleteManyOrdersAndUnlinkTheirCustomers() {
+        Customer alice = new Customer("Alice", "alice@example.com");
+        Customer bob = new Customer("Bob", "bob@example.com");
+        Product product = new Product("P", "D", 10.0, 10, java.util.List.of("i"));
+        Order kept = new Order(alice, product, 1);
+        List<Order> deleted = List.of(new Order(alice, product, 1), new Order(bob, product, 1), new Order(bob, product, 2));
+
+        Order.deleteAll(deleted);
+
+        assertEquals(List.of(kept), Order.getExtent());
+        assertEquals(kept.getItems(), OrderItem.getExtent());
+        assertEquals(List.of(kept), alice.getOrders());
+        assertTrue(bob.getOrders().isEmpty());
+        assertTrue(Customer.getExtent().contains(bob), "Customers stay when only their orders are deleted");
+    }
+
     // ------------------------------------------------------------------------
     // 3. Association with Attribute: ShoppingCart <-> Product (via CartItem)
     // ------------------------------------------------------------------------
@@ -7,6 +7,7 @@ import org.junit.jupiter.api.Test;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -152,5 +153,25 @@ public class CartItemExtentTest {
         assertNotNull(loadedCartItem.getProduct());
         assertEquals("Test Product", loadedCartItem.getProduct().getName());
     }
-}
 
+    @Test
+    void disposeAll_removesOnlyTheGivenItems() {
+        // given
+        var product = new Product("Product", "Description", 10.0, 50, List.of("image.jpg"));
+        var items = new ArrayList<CartItem>();
+        for (int i = 0; i < 5; i++) {
+            items.add(new CartItem(1, product, new ShoppingCart()));
+        }
+
+        // when
+        CartItem.disposeAll(List.of(items.get(1), items.get(3)));
+        items.get(4).dispose(); // moved into a freed slot by the first removal
+
+        // then
+        var extent = CartItem.getExtent();
+        assertEquals(2, extent.size());
+        assertTrue(extent.contains(items.get(0)));
+        assertTrue(extent.contains(items.get(2)));
+        assertNull(items.get(1).getCart());
+    }
+}
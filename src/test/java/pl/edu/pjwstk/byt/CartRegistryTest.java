@@ -0,0 +1,182 @@
+package pl.edu.pjwstk.byt;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CartRegistryTest {
+
+    private static final Path SPILL_DIR = Path.of("cart-spill-test");
+
+    // clock that only moves when the test says so
+    private static class ManualClock extends Clock {
+        private Instant now;
+
+        ManualClock() {
+            this(Instant.now());
+        }
+
+        ManualClock(Instant start) {
+            now = start;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.systemDefault();
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        File dir = SPILL_DIR.toFile();
+        if (dir.isFile()) {
+            dir.delete();
+        } else if (dir.exists()) {
+            for (File file : dir.listFiles()) {
+                file.delete();
+            }
+            dir.delete();
+        }
+    }
+
+    @Test
+    void getOrCreate_sameKey_returnsSameCart() {
+        // given
+        var registry = new CartRegistry(4, Duration.ofMinutes(30));
+
+        // when
+        var cart1 = registry.getOrCreate("session-1");
+        var cart2 = registry.getOrCreate("session-1");
+        var other = registry.getOrCreate("session-2");
+
+        // then
+        assertSame(cart1, cart2);
+        assertNotSame(cart1, other);
+        assertEquals(2, registry.size());
+        assertSame(cart1, registry.get("session-1"));
+        assertNull(registry.get("unknown"));
+    }
+
+    @Test
+    void expireIdle_evictsOnlyIdleCartsAndRemovesThemFromExtents() throws Exception {
+        // given
+        var clock = new ManualClock();
+        var registry = new CartRegistry(2, Duration.ofMinutes(10), Duration.ofSeconds(1), clock, null);
+        var product = new Product("Product", "Description", 10.0, 5, List.of("image.jpg"));
+        var idle = registry.getOrCreate("idle");
+        idle.updateCart(product, 1);
+        var idleItem = idle.getCartItems().get(product.getId());
+
+        // when
+        clock.advance(Duration.ofMinutes(5));
+        assertEquals(0, registry.expireIdle());
+        clock.advance(Duration.ofMinutes(6));
+        var active = registry.getOrCreate("active");
+        var evicted = registry.expireIdle();
+
+        // then
+        assertEquals(1, evicted);
+        assertNull(registry.get("idle"));
+        assertSame(active, registry.get("active"));
+        assertFalse(ShoppingCart.getExtent().contains(idle));
+        assertFalse(CartItem.getExtent().contains(idleItem));
+        assertTrue(ShoppingCart.getExtent().contains(active));
+    }
+
+    @Test
+    void expireIdle_withSpillDirectory_writesExpiredCartToDisk() throws Exception {
+        // given
+        var clock = new ManualClock();
+        var registry = new CartRegistry(1, Duration.ofMinutes(1), Duration.ofSeconds(1), clock, SPILL_DIR);
+        var product = new Product("Product", "Description", 10.0, 5, List.of("image.jpg"));
+        registry.getOrCreate("user-1").updateCart(product, 3);
+
+        // when
+        clock.advance(Duration.ofMinutes(2));
+        registry.expireIdle();
+
+        // then
+        var file = CartRegistry.spillFile(SPILL_DIR, "user-1");
+        assertTrue(Files.exists(file));
+        try (var ois = new ObjectInputStream(new FileInputStream(file.toFile()))) {
+            var spilled = (ShoppingCart) ois.readObject();
+            assertEquals(3, spilled.getItemCount());
+        }
+    }
+
+    @Test
+    void expireIdle_clockFarFromSystemTime_usesRegistryClockForUpdates() throws Exception {
+        // given
+        var clock = new ManualClock(Instant.parse("2001-01-01T00:00:00Z"));
+        var registry = new CartRegistry(1, Duration.ofMinutes(10), Duration.ofSeconds(1), clock, null);
+        var product = new Product("Product", "Description", 10.0, 5, List.of("image.jpg"));
+        registry.getOrCreate("user-1").updateCart(product, 1);
+
+        // when
+        clock.advance(Duration.ofMinutes(11));
+        var evicted = registry.expireIdle();
+
+        // then
+        assertEquals(1, evicted);
+        assertNull(registry.get("user-1"));
+    }
+
+    @Test
+    void expireIdle_spillFails_keepsUnspilledCartsRegistered() throws Exception {
+        // given
+        Files.writeString(SPILL_DIR, "not a directory");
+        var clock = new ManualClock();
+        var registry = new CartRegistry(1, Duration.ofMinutes(1), Duration.ofSeconds(1), clock, SPILL_DIR);
+        var product = new Product("Product", "Description", 10.0, 5, List.of("image.jpg"));
+        var cart = registry.getOrCreate("user-1");
+        cart.updateCart(product, 2);
+
+        // when
+        clock.advance(Duration.ofMinutes(2));
+        assertThrows(IOException.class, registry::expireIdle);
+
+        // then
+        assertSame(cart, registry.get("user-1"));
+        assertTrue(ShoppingCart.getExtent().contains(cart));
+        assertEquals(2, cart.getItemCount());
+    }
+
+    @Test
+    void remove_existingCart_deletesIt() {
+        // given
+        var registry = new CartRegistry(4, Duration.ofMinutes(30));
+        var cart = registry.getOrCreate("session");
+
+        // when / then
+        assertTrue(registry.remove("session"));
+        assertFalse(registry.remove("session"));
+        assertFalse(ShoppingCart.getExtent().contains(cart));
+    }
+}
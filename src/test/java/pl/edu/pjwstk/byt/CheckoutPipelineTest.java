@@ -0,0 +1,131 @@
+package pl.edu.pjwstk.byt;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CheckoutPipelineTest {
+
+    private Product createProduct(String name, double price, int stock) {
+        return new Product(name, "Description", price, stock, List.of("image.jpg"));
+    }
+
+    @Test
+    void submit_manyCarts_createsRegisteredOrdersAndClearsCarts() throws Exception {
+        // given
+        var product1 = createProduct("Product 1", 10.0, 1_000);
+        var product2 = createProduct("Product 2", 2.5, 1_000);
+        var reservations = new StockReservations(Duration.ofMinutes(15));
+        List<ShoppingCart> carts = new ArrayList<>();
+        List<CompletableFuture<Order>> results = new ArrayList<>();
+
+        // when
+        try (var pipeline = new CheckoutPipeline(reservations, 4, 16, 8)) {
+            for (int i = 0; i < 100; i++) {
+                var customer = new Customer("Customer " + i, "customer" + i + "@test.com");
+                var cart = new ShoppingCart();
+                cart.updateCart(product1, 2);
+                cart.updateCart(product2, 4);
+                carts.add(cart);
+                results.add(pipeline.submit(customer, cart));
+            }
+            CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+            assertEquals(100, pipeline.getOrdersCreated());
+            assertTrue(pipeline.getBatchCount() <= 100);
+        }
+
+        // then
+        var orderExtent = Order.getExtent();
+        var itemExtent = OrderItem.getExtent();
+        for (int i = 0; i < 100; i++) {
+            var order = results.get(i).get();
+            assertEquals(Money.of(30.0), order.getTotal());
+            assertEquals(2, order.getItems().size());
+            assertTrue(order.getCustomer().getOrders().contains(order));
+            assertTrue(orderExtent.contains(order));
+            assertTrue(itemExtent.containsAll(order.getItems()));
+            assertTrue(carts.get(i).getCartItems().isEmpty());
+        }
+        assertEquals(800, product1.getStockQuantity());
+        assertEquals(600, product2.getStockQuantity());
+    }
+
+    @Test
+    void submit_notEnoughStock_failsOnlyThatCheckout() throws Exception {
+        // given
+        var scarce = createProduct("Scarce", 10.0, 1);
+        var plenty = createProduct("Plenty", 1.0, 100);
+        var reservations = new StockReservations(Duration.ofMinutes(15));
+        var customer = new Customer("Customer", "customer@test.com");
+        var cart1 = new ShoppingCart();
+        cart1.updateCart(plenty, 5);
+        cart1.updateCart(scarce, 2);
+        var cart2 = new ShoppingCart();
+        cart2.updateCart(plenty, 3);
+
+        // when
+        CompletableFuture<Order> failed;
+        CompletableFuture<Order> succeeded;
+        try (var pipeline = new CheckoutPipeline(reservations, 1, 4, 4)) {
+            failed = pipeline.submit(customer, cart1);
+            succeeded = pipeline.submit(customer, cart2);
+        }
+
+        // then
+        var exception = assertThrows(ExecutionException.class, failed::get);
+        assertInstanceOf(IllegalStateException.class, exception.getCause());
+        assertEquals(2, cart1.getCartItems().size());
+        assertNotNull(succeeded.get());
+        assertEquals(1, scarce.getStockQuantity());
+        assertEquals(97, plenty.getStockQuantity());
+        assertEquals(List.of(succeeded.get()), customer.getOrders());
+    }
+
+    @Test
+    void submit_emptyCart_fails() throws Exception {
+        var reservations = new StockReservations(Duration.ofMinutes(15));
+        CompletableFuture<Order> result;
+        try (var pipeline = new CheckoutPipeline(reservations, 1, 4, 4)) {
+            result = pipeline.submit(new Customer("Customer", "customer@test.com"), new ShoppingCart());
+        }
+
+        var exception = assertThrows(ExecutionException.class, result::get);
+        assertInstanceOf(IllegalArgumentException.class, exception.getCause());
+    }
+
+    @Test
+    void submit_afterClose_throws() throws Exception {
+        var pipeline = new CheckoutPipeline(new StockReservations(Duration.ofMinutes(15)), 1, 4, 4);
+        pipeline.close();
+
+        assertThrows(IllegalStateException.class,
+                () -> pipeline.submit(new Customer("Customer", "customer@test.com"), new ShoppingCart()));
+    }
+
+    @Test
+    void open_releasesExpiredHoldsInTheBackground() throws Exception {
+        // given
+        var product = createProduct("Product", 10.0, 5);
+        var reservations = new StockReservations(Duration.ofMinutes(15));
+        var hold = reservations.tryReserve(product, 3, new ShoppingCart(), Duration.ofMillis(1));
+
+        // when
+        try (var pipeline = new CheckoutPipeline(reservations, 1, 4, 4)) {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (hold.getState() == StockReservation.State.HELD && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+        }
+
+        // then
+        assertEquals(StockReservation.State.RELEASED, hold.getState());
+        assertEquals(5, product.getStockQuantity());
+    }
+}
@@ -0,0 +1,74 @@
+package pl.edu.pjwstk.byt;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CheckoutServiceTest {
+
+    private Product createProduct(String name, double price, int stock) {
+        return new Product(name, "Description", price, stock, List.of("image.jpg"));
+    }
+
+    private CheckoutService createService() {
+        return new CheckoutService(new CartRegistry(8, Duration.ofMinutes(30)),
+                new StockReservations(Duration.ofMinutes(15)), 2);
+    }
+
+    @Test
+    void checkout_manyConcurrentSessions_createsOrdersAndTakesStock() throws Exception {
+        // given
+        var product = createProduct("Product", 10.0, 10_000);
+        var customer = new Customer("Customer", "customer@test.com");
+        List<Future<Order>> results = new ArrayList<>();
+
+        // when
+        try (var service = createService()) {
+            for (int i = 0; i < 500; i++) {
+                String key = "session-" + i;
+                results.add(service.startSession(() -> {
+                    service.addToCart(key, product, 2);
+                    return service.checkout(key, customer);
+                }));
+            }
+            for (Future<Order> result : results) {
+                assertNotNull(result.get());
+            }
+
+            // then
+            assertEquals(500, service.getOrdersCreated());
+            assertNull(service.getCart("session-0"));
+        }
+        assertEquals(9_000, product.getStockQuantity());
+        assertEquals(500, customer.getOrders().size());
+    }
+
+    @Test
+    void checkout_notEnoughStock_keepsCart() throws Exception {
+        // given
+        var product = createProduct("Scarce", 10.0, 1);
+
+        try (var service = createService()) {
+            service.addToCart("session", product, 2);
+
+            // when + then
+            assertThrows(IllegalStateException.class,
+                    () -> service.checkout("session", new Customer("Customer", "customer@test.com")));
+            assertEquals(2, service.getCart("session").getItemCount());
+        }
+        assertEquals(1, product.getStockQuantity());
+    }
+
+    @Test
+    void checkout_unknownSession_throws() throws Exception {
+        try (var service = createService()) {
+            assertThrows(IllegalStateException.class,
+                    () -> service.checkout("missing", new Customer("Customer", "customer@test.com")));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package pl.edu.pjwstk.byt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Currency;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoneyTest {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+
+    @Test
+    void of_convertsToMinorUnitsWithRounding() {
+        assertEquals(1550, Money.of(15.5).getMinorUnits());
+        assertEquals(299999, Money.of(2999.99).getMinorUnits());
+        assertEquals(1, Money.of(0.005).getMinorUnits());
+        assertEquals(Money.DEFAULT_CURRENCY, Money.of(1).getCurrency());
+    }
+
+    @Test
+    void plusAndTimes_areExact() {
+        var price = Money.of(0.1);
+        var sum = Money.zero(Money.DEFAULT_CURRENCY);
+        for (int i = 0; i < 10; i++) {
+            sum = sum.plus(price);
+        }
+        assertEquals(Money.of(1.0), sum);
+        assertEquals(Money.of(0.3), price.times(3));
+        assertEquals(1.0, sum.toDouble());
+    }
+
+    @Test
+    void plus_differentCurrencies_throws() {
+        assertThrows(IllegalArgumentException.class, () -> Money.of(1).plus(Money.of(1, EUR)));
+    }
+
+    @Test
+    void multiply_overflow_throws() {
+        assertThrows(ArithmeticException.class, () -> Money.multiply(Long.MAX_VALUE, 2));
+    }
+
+    @Test
+    void toString_usesCurrencyFractionDigits() {
+        assertEquals("15.50 PLN", Money.of(15.5).toString());
+        assertEquals("-0.05 EUR", Money.ofMinor(-5, EUR).toString());
+    }
+
+    @Test
+    void calculateRevenue_parallelSumMatchesSerialSum() {
+        var customer = new Customer("Revenue", "revenue@test.com");
+        var product = new Product("P", "D", 0.1, 10, List.of("img"));
+        var euroProduct = new Product("E", "D", Money.of(3, EUR), 10, List.of("img"));
+        var orders = IntStream.range(0, 200).mapToObj(i -> new Order(customer, product, 1 + i % 7)).toList();
+        new Order(customer, euroProduct, 1);
+
+        long serial = 0;
+        for (Order order : Order.getExtent()) {
+            if (order.getCurrency().equals(Money.DEFAULT_CURRENCY)) {
+                serial += order.getTotalMinor();
+            }
+        }
+
+        assertEquals(Money.ofMinor(serial, Money.DEFAULT_CURRENCY), Order.calculateRevenue(Money.DEFAULT_CURRENCY));
+        assertTrue(orders.stream().allMatch(Order::verifyTotal));
+    }
+
+    @Test
+    void addProduct_differentCurrency_throws() {
+        var customer = new Customer("Currency", "currency@test.com");
+        var order = new Order(customer, new Product("P", "D", 1.0, 1, List.of("img")), 1);
+        var euroProduct = new Product("E", "D", Money.of(3, EUR), 10, List.of("img"));
+
+        assertThrows(IllegalArgumentException.class, () -> order.addProduct(euroProduct, 1));
+        assertEquals(1, order.getItems().size());
+    }
+}
@@ -0,0 +1,156 @@
+package pl.edu.pjwstk.byt;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderArchiveTest {
+
+    private Path directory;
+    private OrderArchive archive;
+    private Customer customer;
+    private Product product;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        clearExtent(Order.class); // finished orders left by other tests would be archived too
+        clearExtent(OrderItem.class);
+        directory = Files.createTempDirectory("order-archive");
+        archive = OrderArchive.open(directory);
+        customer = new Customer("Customer", "customer@test.com");
+        product = new Product("Product", "Description", 10.0, 1_000, List.of("image.jpg"));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        archive.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    private void clearExtent(Class<?> clazz) throws Exception {
+        Field field = clazz.getDeclaredField("extent");
+        field.setAccessible(true);
+        ((List<?>) field.get(null)).clear();
+    }
+
+    private Order createOrder(int quantity, OrderStatus status) {
+        var order = new Order(customer, product, quantity);
+        order.changeOrderStatus(status);
+        return order;
+    }
+
+    @Test
+    void archive_finishedOrders_leaveExtentsButStayVisibleToCustomer() throws IOException {
+        // given
+        var complete = createOrder(1, OrderStatus.COMPLETE);
+        complete.addProduct(product, 2);
+        var cancelled = createOrder(4, OrderStatus.CANCELLED);
+        var open = createOrder(5, OrderStatus.PAID);
+
+        // when
+        int archived = archive.archive(LocalDateTime.now().plusSeconds(1));
+
+        // then
+        assertEquals(2, archived);
+        assertFalse(Order.getExtent().contains(complete));
+        assertFalse(Order.getExtent().contains(cancelled));
+        assertTrue(Order.getExtent().contains(open));
+        assertTrue(OrderItem.getExtent().stream().noneMatch(item -> item.getOrder() == null));
+        assertEquals(2, customer.getArchivedOrderCount());
+
+        List<Order> orders = customer.getOrders();
+        assertEquals(3, orders.size());
+        assertEquals(OrderStatus.COMPLETE, orders.get(0).getStatus());
+        assertEquals(Money.of(30.0), orders.get(0).getTotal());
+        assertEquals(2, orders.get(0).getItems().size());
+        assertEquals(complete.getOrderDate(), orders.get(0).getOrderDate());
+        assertEquals(OrderStatus.CANCELLED, orders.get(1).getStatus());
+        assertSame(customer, orders.get(1).getCustomer());
+        assertSame(open, orders.get(2));
+    }
+
+    @Test
+    void archive_recentOrders_areKept() throws IOException {
+        var order = createOrder(1, OrderStatus.DELIVERED);
+
+        assertEquals(0, archive.archive(LocalDateTime.now().minusDays(30)));
+
+        assertTrue(Order.getExtent().contains(order));
+        assertEquals(List.of(order), customer.getOrders());
+    }
+
+    @Test
+    void getOrders_manyArchivedOrders_fetchesAllPages() throws IOException {
+        // given
+        List<Order> created = new ArrayList<>();
+        for (int i = 1; i <= 150; i++) {
+            created.add(createOrder(i, OrderStatus.COMPLETE));
+            if (i == 100) {
+                archive.archive(LocalDateTime.now().plusSeconds(1)); // second run writes a second segment
+            }
+        }
+        archive.archive(LocalDateTime.now().plusSeconds(1));
+
+        // when
+        List<Order> orders = customer.getOrders();
+
+        // then
+        assertEquals(150, orders.size());
+        for (int i = 0; i < 150; i++) {
+            assertEquals(created.get(i).getTotal(), orders.get(i).getTotal());
+        }
+    }
+
+    @Test
+    void restoredOrder_rejectsChanges() throws IOException {
+        // given
+        createOrder(2, OrderStatus.COMPLETE);
+        archive.archive(LocalDateTime.now().plusSeconds(1));
+        var restored = customer.getOrders().get(0);
+        int itemsBefore = OrderItem.getExtent().size();
+
+        // when / then
+        assertThrows(IllegalStateException.class, () -> restored.changeOrderStatus(OrderStatus.DELIVERED));
+        assertThrows(IllegalStateException.class, () -> restored.addProduct(product, 1));
+        assertThrows(IllegalStateException.class, () -> restored.getItems().get(0).setQuantity(5));
+        assertEquals(OrderStatus.COMPLETE, restored.getStatus());
+        assertEquals(1, restored.getItems().size());
+        assertEquals(2, restored.getItems().get(0).getQuantity());
+        assertEquals(itemsBefore, OrderItem.getExtent().size());
+    }
+
+    @Test
+    void deleteCustomer_withArchivedOrders_deletesWithoutReadingTheArchive() throws IOException {
+        // given
+        createOrder(1, OrderStatus.COMPLETE);
+        var open = createOrder(2, OrderStatus.PAID);
+        archive.archive(LocalDateTime.now().plusSeconds(1));
+        archive.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.filter(Files::isRegularFile).forEach(file -> file.toFile().delete()); // archive unreadable
+        }
+
+        // when
+        customer.delete();
+
+        // then
+        assertFalse(Customer.getExtent().contains(customer));
+        assertFalse(Order.getExtent().contains(open));
+        assertEquals(0, customer.getArchivedOrderCount());
+        assertTrue(customer.getOrders().isEmpty());
+    }
+}
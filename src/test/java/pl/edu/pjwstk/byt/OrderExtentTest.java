@@ -188,4 +188,41 @@ public class OrderExtentTest {
         assertEquals(OrderStatus.COMPLETE, loadedOrder.getStatus());
         assertEquals(2, loadedOrder.getItems().size());
     }
+
+    @Test
+    void loadExtent_loadedOrdersStillCountInMetrics() throws Exception {
+        // given
+        new Order(customer, product, 1);
+        Order.saveExtent();
+        clearExtent(Order.class);
+        Order.loadExtent();
+        var loadedOrder = Order.getExtent().get(0);
+        long shipped = OrderMetrics.getStatusTransitions(OrderStatus.SHIPPED, OrderMetrics.Window.ONE_HOUR);
+        long items = OrderMetrics.getItemsSold(OrderMetrics.Window.ONE_HOUR);
+
+        // when
+        loadedOrder.getItems().get(0).setQuantity(3);
+        loadedOrder.changeOrderStatus(OrderStatus.SHIPPED);
+
+        // then
+        assertEquals(shipped + 1, OrderMetrics.getStatusTransitions(OrderStatus.SHIPPED, OrderMetrics.Window.ONE_HOUR));
+        assertEquals(items + 2, OrderMetrics.getItemsSold(OrderMetrics.Window.ONE_HOUR));
+    }
+
+    @Test
+    void domainSnapshot_isNotAffectedByLaterChanges() {
+        // given
+        var order = new Order(customer, product, 2);
+        var snapshot = DomainSnapshot.pin();
+
+        // when
+        var other = new Order(customer, product, 1);
+        order.delete();
+
+        // then
+        assertEquals(List.of(order), snapshot.getOrders());
+        assertEquals(1, snapshot.getOrderItems().size());
+        assertEquals(List.of(other), DomainSnapshot.pin().getOrders());
+        assertTrue(DomainSnapshot.pin().getVersion() > snapshot.getVersion());
+    }
 }
@@ -0,0 +1,34 @@
+package pl.edu.pjwstk.byt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import pl.edu.pjwstk.byt.OrderMetrics.Window;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderMetricsTest {
+
+    @Test
+    void orderLifecycle_updatesWindowCounters() {
+        // given
+        var customer = new Customer("Customer", "customer@test.com");
+        var product = new Product("Product", "Description", 10.0, 100, List.of("image.jpg"));
+        long orders = OrderMetrics.getOrdersCreated(Window.ONE_HOUR);
+        long items = OrderMetrics.getItemsSold(Window.ONE_HOUR);
+        long revenue = OrderMetrics.getRevenue(Money.DEFAULT_CURRENCY, Window.ONE_HOUR).getMinorUnits();
+        long shipped = OrderMetrics.getStatusTransitions(OrderStatus.SHIPPED, Window.ONE_HOUR);
+
+        // when
+        var order = new Order(customer, product, 2);
+        order.addProduct(product, 1);
+        order.changeOrderStatus(OrderStatus.SHIPPED);
+
+        // then
+        assertEquals(orders + 1, OrderMetrics.getOrdersCreated(Window.ONE_HOUR));
+        assertEquals(items + 3, OrderMetrics.getItemsSold(Window.ONE_HOUR));
+        assertEquals(revenue + 3_000, OrderMetrics.getRevenue(Money.DEFAULT_CURRENCY, Window.ONE_HOUR).getMinorUnits());
+        assertEquals(shipped + 1, OrderMetrics.getStatusTransitions(OrderStatus.SHIPPED, Window.ONE_HOUR));
+    }
+}
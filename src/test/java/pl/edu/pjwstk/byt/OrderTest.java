@@ -46,4 +46,125 @@ public class OrderTest {
         var order = new Order(customer, product, 1);
         assertEquals(OrderStatus.PAYMENT_PENDING, order.getStatus());
     }
+
+    // Derived attribute (totalAmount) TESTS
+    @Test
+    void shouldMaintainTotalWhenItemsAddedRemovedAndChanged() {
+        var order = new Order(customer, product, 2);
+        var other = new Product("Q", "D", 5, 10, java.util.List.of("img"));
+        var item = order.addProduct(other, 3);
+        assertEquals(35.0, order.getTotalAmount());
+
+        item.setQuantity(1);
+        assertEquals(25.0, order.getTotalAmount());
+
+        order.removeOrderItem(item);
+        assertEquals(20.0, order.getTotalAmount());
+        assertTrue(order.verifyTotal());
+    }
+
+    @Test
+    void shouldRecomputeTotalOnAudit() {
+        var order = new Order(customer, product, 1);
+        for (int i = 0; i < 100; i++) {
+            order.addProduct(product, 1);
+        }
+        assertTrue(order.verifyTotal());
+        order.calculateTotal();
+        assertEquals(1010.0, order.getTotalAmount());
+    }
+
+    @Test
+    void shouldPlaceOrderFromCartAtomically() {
+        var cart = new ShoppingCart();
+        cart.updateCart(product, 3);
+
+        var order = Order.placeOrder(customer, cart);
+
+        assertEquals(30.0, order.getTotalAmount());
+        assertEquals(7, product.getStockQuantity());
+        assertTrue(Order.getExtent().contains(order));
+        assertEquals(java.util.List.of(order), customer.getOrders());
+        assertTrue(cart.getCartItems().isEmpty());
+    }
+
+    @Test
+    void shouldLeaveEverythingUnchangedWhenPlacingOrderFails() {
+        var scarce = new Product("Scarce", "D", 5, 1, java.util.List.of("img"));
+        var cart = new ShoppingCart();
+        cart.updateCart(product, 2);
+        cart.updateCart(scarce, 2);
+
+        assertThrows(IllegalStateException.class, () -> Order.placeOrder(customer, cart));
+
+        assertEquals(10, product.getStockQuantity());
+        assertEquals(1, scarce.getStockQuantity());
+        assertTrue(customer.getOrders().isEmpty());
+        assertEquals(4, cart.getItemCount());
+    }
+
+    @Test
+    void shouldNotOversellWhenPlacingOrdersConcurrently() throws Exception {
+        var threads = new java.util.ArrayList<Thread>();
+        var placed = new java.util.concurrent.atomic.AtomicInteger();
+        for (int i = 0; i < 8; i++) {
+            var buyer = new Customer("Buyer " + i, "buyer" + i + "@test.com");
+            var cart = new ShoppingCart();
+            cart.updateCart(product, 2);
+            var thread = new Thread(() -> {
+                try {
+                    Order.placeOrder(buyer, cart);
+                    placed.incrementAndGet();
+                } catch (IllegalStateException e) {
+                    // not enough stock left
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(5, placed.get());
+        assertEquals(0, product.getStockQuantity());
+    }
+
+    @Test
+    void shouldCreateOrdersInBulk() {
+        var other = new Customer("Other", "other@test.com");
+        var second = new Product("P2", "D", 2.5, 10, java.util.List.of("img"));
+        var batch = new OrderBatch()
+                .add(customer, product.getId(), 1)
+                .add(customer, second.getId(), 4)
+                .add(other, product.getId(), 2)
+                .endOrder()
+                .add(other, second.getId(), 1);
+
+        var orders = Order.createAll(batch);
+
+        assertEquals(3, orders.size());
+        assertEquals(20.0, orders.get(0).getTotalAmount());
+        assertEquals(2, orders.get(0).getItems().size());
+        assertEquals(20.0, orders.get(1).getTotalAmount());
+        assertEquals(2.5, orders.get(2).getTotalAmount());
+        assertEquals(java.util.List.of(orders.get(0)), customer.getOrders());
+        assertEquals(java.util.List.of(orders.get(1), orders.get(2)), other.getOrders());
+        assertSame(other, orders.get(2).getCustomer());
+        assertTrue(Order.getExtent().containsAll(orders));
+        assertEquals(4, OrderItem.getExtent().stream().filter(item -> orders.contains(item.getOrder())).count());
+    }
+
+    @Test
+    void shouldCreateNothingWhenBulkInputHasUnknownProduct() {
+        var batch = new OrderBatch()
+                .add(customer, product.getId(), 1)
+                .endOrder()
+                .add(customer, "missing", 1);
+
+        assertThrows(IllegalArgumentException.class, () -> Order.createAll(batch));
+
+        assertTrue(customer.getOrders().isEmpty());
+        assertTrue(Order.getExtent().stream().noneMatch(order -> order.getCustomer() == customer));
+    }
 }
@@ -0,0 +1,154 @@
+package pl.edu.pjwstk.byt;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProductCacheTest {
+
+    private Path directory;
+    private DiskProductStore store;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("product-store");
+        store = new DiskProductStore(directory);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    private Product createProduct(String name) {
+        return new Product(name, "Description", 10.0, 5, List.of("image.jpg"));
+    }
+
+    @Test
+    void get_storedProduct_loadsOnceThenHits() throws IOException {
+        // given
+        var product = createProduct("Stored");
+        store.put(product);
+        var cache = new ProductCache(store, 64 * 1024);
+
+        // when
+        Product first = cache.get(product.getId());
+        Product second = cache.get(product.getId());
+
+        // then
+        assertEquals("Stored", first.getName());
+        assertEquals(5, first.getStockQuantity());
+        assertSame(first, second);
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    void get_unknownId_returnsNull() throws IOException {
+        var cache = new ProductCache(store, 64 * 1024);
+
+        assertNull(cache.get("missing"));
+    }
+
+    @Test
+    void put_moreThanBudget_evictsButStillServesFromStore() throws IOException {
+        // given
+        var cache = new ProductCache(store, 10 * ProductCache.estimateSize(createProduct("Sizing")));
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            products.add(createProduct("Sizing"));
+        }
+
+        // when
+        for (Product product : products) {
+            cache.put(product);
+        }
+
+        // then
+        assertTrue(cache.getEvictionCount() >= 90);
+        assertTrue(cache.getCachedBytes() <= 10 * ProductCache.estimateSize(products.get(0)));
+        for (Product product : products) {
+            assertEquals(product.getId(), cache.get(product.getId()).getId());
+        }
+    }
+
+    @Test
+    void store_roundTrip_keepsProductFieldsWithoutCategory() throws IOException {
+        // given
+        var category = new Category("Books", "Printed books", null);
+        var product = new Product("Book", "A".repeat(70_000), Money.of(12.5), 7, List.of("front.jpg", "back.jpg"));
+        category.addProduct(product);
+        product.addReview(5);
+        product.addReview(3);
+
+        // when
+        store.put(product);
+        Product loaded = store.load(product.getId());
+
+        // then
+        assertEquals(product.getId(), loaded.getId());
+        assertEquals(product.getDescription(), loaded.getDescription());
+        assertEquals(Money.of(12.5), loaded.getPriceMoney());
+        assertEquals(7, loaded.getStockQuantity());
+        assertEquals(List.of("front.jpg", "back.jpg"), loaded.getImages());
+        assertEquals(4.0, loaded.getAvgRating());
+        assertEquals(1, loaded.getRatingCount(5));
+        assertNull(loaded.getCategory());
+        assertFalse(Product.getExtent().contains(loaded));
+    }
+
+    @Test
+    void get_putWhileLoading_keepsNewerProduct() throws Exception {
+        // given
+        var product = createProduct("Old");
+        store.put(product);
+        var loadStarted = new CountDownLatch(1);
+        var finishLoad = new CountDownLatch(1);
+        var slowStore = new DiskProductStore(directory) {
+            @Override
+            public Product load(String id) throws IOException {
+                Product loaded = super.load(id);
+                loadStarted.countDown();
+                try {
+                    finishLoad.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return loaded;
+            }
+        };
+        var cache = new ProductCache(slowStore, 64 * 1024);
+        var reader = new Thread(() -> {
+            try {
+                cache.get(product.getId());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        // when
+        reader.start();
+        loadStarted.await();
+        var newer = Product.restore(product.getId(), "New", "Description", Money.of(10.0), 5,
+                List.of("image.jpg"), new int[5]);
+        cache.put(newer);
+        finishLoad.countDown();
+        reader.join();
+
+        // then
+        assertSame(newer, cache.get(product.getId()));
+    }
+}
@@ -145,5 +145,105 @@ public class ProductExtentTest {
         assertEquals(15.5, loadedProduct.getPrice());
         assertEquals(4.5, loadedProduct.getAvgRating(), 0.01);
     }
-}
 
+    @Test
+    void findByPriceRange_returnsOnlyProductsWithinRange() {
+        // given
+        var cheap = new Product("Cheap", "Description", 5.0, 1, List.of("image.jpg"));
+        var middle = new Product("Middle", "Description", 50.0, 1, List.of("image.jpg"));
+        var expensive = new Product("Expensive", "Description", 500.0, 1, List.of("image.jpg"));
+
+        // when
+        var found = Product.findByPriceRange(10.0, 100.0);
+
+        // then
+        assertEquals(List.of(middle), found);
+    }
+
+    @Test
+    void countInStock_reflectsStockUpdates() {
+        // given
+        var product1 = new Product("Product 1", "Description 1", 10.0, 1, List.of("image1.jpg"));
+        var product2 = new Product("Product 2", "Description 2", 20.0, 0, List.of("image2.jpg"));
+        assertEquals(1, Product.countInStock());
+
+        // when
+        product1.updateStock(-1);
+        product2.updateStock(3);
+
+        // then
+        assertEquals(1, Product.countInStock());
+        assertEquals(3, Product.getTotalStock());
+    }
+
+    @Test
+    void findTopRated_ordersByAverageRatingAndSkipsUnrated() {
+        // given
+        var good = new Product("Good", "Description", 10.0, 1, List.of("image.jpg"));
+        var best = new Product("Best", "Description", 10.0, 1, List.of("image.jpg"));
+        var unrated = new Product("Unrated", "Description", 10.0, 1, List.of("image.jpg"));
+        var bad = new Product("Bad", "Description", 10.0, 1, List.of("image.jpg"));
+        good.addReview(4);
+        best.addReview(5);
+        bad.addReview(1);
+
+        // when
+        var top = Product.findTopRated(2);
+        var all = Product.findTopRated(10);
+
+        // then
+        assertEquals(List.of(best, good), top);
+        assertEquals(List.of(best, good, bad), all);
+    }
+
+    @Test
+    void loadExtent_rebuildsColumnsForLoadedProducts() throws Exception {
+        // given
+        var product = new Product("Stocked", "Description", 10.0, 7, List.of("image.jpg"));
+        Product.saveExtent();
+        clearExtent();
+        assertEquals(0, Product.getTotalStock());
+
+        // when
+        Product.loadExtent();
+        var loaded = Product.getExtent().get(0);
+        loaded.updateStock(-2);
+
+        // then
+        assertEquals(5, Product.getTotalStock());
+        assertEquals(1, Product.countInStock());
+    }
+
+    @Test
+    void saveExtent_duringFlashSale_keepsTheStripedStock() throws Exception {
+        // given
+        var product = new Product("On sale", "Description", 10.0, 40, List.of("image.jpg"));
+        product.startFlashSale(4);
+        product.updateStock(-5);
+        Product.saveExtent();
+        clearExtent();
+
+        // when
+        Product.loadExtent();
+        var loaded = Product.getExtent().get(0);
+
+        // then
+        assertFalse(loaded.isFlashSale());
+        assertEquals(35, loaded.getStockQuantity());
+        assertEquals(35, Product.getTotalStock());
+    }
+
+    @Test
+    void findTopRated_limitLargerThanCatalog_returnsAllRated() {
+        // given
+        var rated = new Product("Rated", "Description", 10.0, 1, List.of("image.jpg"));
+        new Product("Unrated", "Description", 10.0, 1, List.of("image.jpg"));
+        rated.addReview(4);
+
+        // when
+        var top = Product.findTopRated(Integer.MAX_VALUE);
+
+        // then
+        assertEquals(List.of(rated), top);
+    }
+}
@@ -70,4 +70,27 @@ public class ProductTest {
         var product = new Product("Mouse", "Wireless", 100.0, 10, List.of("img1.jpg"));
         assertEquals(0.0, product.getAvgRating());
     }
+
+    @Test
+    void shouldKeepRatingDistributionPerStar() {
+        var product = new Product("Laptop", "Gaming laptop", 4000.0, 5, List.of("img1.jpg"));
+        product.addReview(5);
+        product.addReview(5);
+        product.addReview(5);
+        product.addReview(1);
+
+        assertEquals(4, product.getRatingCount());
+        assertEquals(3, product.getRatingCount(5));
+        assertEquals(0, product.getRatingCount(3));
+        assertEquals(75.0, product.getRatingPercentage(5));
+        assertEquals(4.0, product.getAvgRating());
+        assertArrayEquals(new int[]{1, 0, 0, 0, 3}, product.getRatingDistribution());
+    }
+
+    @Test
+    void shouldReturnZeroPercentageWhenNoRatingsGiven() {
+        var product = new Product("Mouse", "Wireless", 100.0, 10, List.of("img1.jpg"));
+        assertEquals(0.0, product.getRatingPercentage(5));
+        assertThrows(IllegalArgumentException.class, () -> product.getRatingCount(0));
+    }
 }
@@ -0,0 +1,143 @@
+package pl.edu.pjwstk.byt;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReportCacheTest {
+
+    private static final Set<DomainExtent> ORDERS = EnumSet.of(DomainExtent.ORDER, DomainExtent.ORDER_ITEM);
+
+    @Test
+    void get_servesCachedContentUntilDependencyChanges() {
+        // given
+        var cache = new ReportCache();
+        var computations = new AtomicInteger();
+        var customer = new Customer("Customer", "customer@test.com");
+        var product = new Product("Product", "Description", 10.0, 100, List.of("image.jpg"));
+        var order = new Order(customer, product, 1);
+
+        // when + then
+        assertEquals("report 1", cache.get("orders", ORDERS, () -> "report " + computations.incrementAndGet()));
+        new Product("Unrelated", "Description", 1.0, 1, List.of("image.jpg"));
+        assertEquals("report 1", cache.get("orders", ORDERS, () -> "report " + computations.incrementAndGet()));
+        order.changeOrderStatus(OrderStatus.SHIPPED);
+        assertEquals("report 2", cache.get("orders", ORDERS, () -> "report " + computations.incrementAndGet()));
+        order.getItems().get(0).setQuantity(3);
+        assertEquals("report 3", cache.get("orders", ORDERS, () -> "report " + computations.incrementAndGet()));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+    }
+
+    @Test
+    void get_concurrentRequests_computeOnce() throws Exception {
+        // given
+        var cache = new ReportCache();
+        var computations = new AtomicInteger();
+        var release = new CountDownLatch(1);
+        ExecutorService analysts = Executors.newFixedThreadPool(8);
+        List<Future<String>> results = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < 8; i++) {
+            results.add(analysts.submit(() -> cache.get("morning", ORDERS, () -> {
+                computations.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return "morning report";
+            })));
+        }
+        Thread.sleep(100);
+        release.countDown();
+
+        // then
+        for (Future<String> result : results) {
+            assertEquals("morning report", result.get());
+        }
+        analysts.shutdown();
+        assertEquals(1, computations.get());
+    }
+
+    @Test
+    void get_failedComputation_isNotCached() {
+        // given
+        var cache = new ReportCache();
+
+        // when
+        assertThrows(IllegalStateException.class, () -> cache.get("broken", ORDERS, () -> {
+            throw new IllegalStateException("scan failed");
+        }));
+
+        // then
+        assertEquals("fixed", cache.get("broken", ORDERS, () -> "fixed"));
+    }
+
+    @Test
+    void generateReport_addsCopyOfCachedReportToAnalystList() {
+        // given
+        var analyst = new DataAnalyst("analyst", "analyst@test.com");
+        var admin = new AnalystAdmin("admin", "admin@test.com");
+
+        // when
+        Report first = analyst.generateReport("shared-report", ORDERS, () -> "content");
+        Report second = admin.generateReport("shared-report", ORDERS, () -> "recomputed");
+
+        // then
+        assertEquals("content", second.getContent());
+        assertNotSame(first, second);
+        assertEquals(1, analyst.getReportsGenerated());
+        assertEquals(1, admin.getReportsGenerated());
+    }
+
+    @Test
+    void getReport_servesCopiesOfTheCachedFileAndDeletesReplacedOnes() throws Exception {
+        // given
+        var cache = new ReportCache();
+        var computations = new AtomicInteger();
+        var customer = new Customer("Customer", "customer@test.com");
+        var product = new Product("Product", "Description", 10.0, 100, List.of("image.jpg"));
+        var order = new Order(customer, product, 1);
+        List<Path> written = new ArrayList<>();
+        ReportCache.Content content = writer -> {
+            written.add(writer.getFile());
+            writer.writeRow("report", computations.incrementAndGet());
+        };
+
+        // when
+        Report first = cache.getReport("large", ORDERS, content);
+        Report second = cache.getReport("large", ORDERS, content);
+        order.changeOrderStatus(OrderStatus.SHIPPED);
+        Report third = cache.getReport("large", ORDERS, content);
+
+        // then
+        assertTrue(first.isFileBacked());
+        assertNotEquals(first.getFile(), second.getFile());
+        assertEquals("report,1\n", second.getContent());
+        assertEquals("report,2\n", third.getContent());
+        assertFalse(Files.exists(written.get(0)));
+        assertTrue(Files.exists(written.get(1)));
+        for (Report report : List.of(first, second, third)) {
+            Path file = report.getFile();
+            report.delete();
+            assertFalse(Files.exists(file));
+            assertEquals(0, report.getLength());
+        }
+        cache.invalidateAll();
+        assertFalse(Files.exists(written.get(1)));
+    }
+}
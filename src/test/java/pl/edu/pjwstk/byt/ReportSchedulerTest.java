@@ -0,0 +1,210 @@
+package pl.edu.pjwstk.byt;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReportSchedulerTest {
+
+    // Occupies the only thread of the scheduler until the latch opens.
+    private ReportJob block(ReportScheduler scheduler, CountDownLatch started, CountDownLatch release) {
+        return scheduler.submit("blocker", 0, progress -> {
+            started.countDown();
+            release.await();
+            return "blocker";
+        }, null);
+    }
+
+    @Test
+    void submit_queuedJobs_runByPriority() throws Exception {
+        // given
+        List<String> order = new CopyOnWriteArrayList<>();
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        try (var scheduler = new ReportScheduler(1, 16)) {
+            block(scheduler, started, release);
+            started.await();
+            List<ReportJob> jobs = new ArrayList<>();
+            for (int priority : new int[]{1, 5, 3}) {
+                jobs.add(scheduler.submit("p" + priority, priority, progress -> {
+                    order.add("p" + priority);
+                    return "p" + priority;
+                }, null));
+            }
+
+            // when
+            release.countDown();
+            for (ReportJob job : jobs) {
+                job.get();
+            }
+
+            // then
+            assertEquals(List.of("p5", "p3", "p1"), order);
+        }
+    }
+
+    @Test
+    void submitReport_manyJobsFinishing_countsEveryReport() throws Exception {
+        // given
+        var analyst = new DataAnalyst("analyst", "analyst@test.com");
+        List<ReportJob> jobs = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < 200; i++) {
+            int n = i;
+            jobs.add(analyst.submitReport("report " + i, 0, progress -> {
+                progress.update(0.5);
+                return "content " + n;
+            }));
+        }
+        for (ReportJob job : jobs) {
+            assertNotNull(job.get());
+            assertEquals(ReportJob.Status.DONE, job.getStatus());
+            assertEquals(1.0, job.getProgress());
+        }
+
+        // then
+        assertEquals(200, analyst.getReportsGenerated());
+        assertEquals(200, analyst.getReportList().size());
+    }
+
+    @Test
+    void cancel_queuedAndRunningJobs_neverAddReports() throws Exception {
+        // given
+        var analyst = new DataAnalyst("analyst", "analyst@test.com");
+        var running = new CountDownLatch(1);
+        try (var scheduler = new ReportScheduler(1, 16)) {
+            ReportJob longJob = scheduler.submit("long", 0, progress -> {
+                running.countDown();
+                while (!progress.isCancelled()) {
+                    Thread.onSpinWait();
+                }
+                return "too late";
+            }, analyst::addtoReportList);
+            ReportJob queued = scheduler.submit("queued", 0, progress -> "never", analyst::addtoReportList);
+            running.await();
+
+            // when
+            assertTrue(queued.cancel());
+            assertTrue(longJob.cancel());
+
+            // then
+            assertThrows(CancellationException.class, longJob::get);
+            assertEquals(ReportJob.Status.CANCELLED, queued.getStatus());
+        }
+        assertEquals(0, analyst.getReportsGenerated());
+    }
+
+    @Test
+    void submit_failingWork_failsTheJob() throws Exception {
+        try (var scheduler = new ReportScheduler(1, 16)) {
+            ReportJob job = scheduler.submit("broken", 0, progress -> {
+                throw new IllegalStateException("no data");
+            }, null);
+
+            var failure = assertThrows(ExecutionException.class, job::get);
+            assertInstanceOf(IllegalStateException.class, failure.getCause());
+            assertEquals(ReportJob.Status.FAILED, job.getStatus());
+        }
+    }
+
+    @Test
+    void submit_queueFull_throws() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        try (var scheduler = new ReportScheduler(1, 1)) {
+            block(scheduler, started, release);
+            started.await();
+            scheduler.submit("waiting", 0, progress -> "waiting", null);
+
+            assertThrows(IllegalStateException.class, () -> scheduler.submit("rejected", 0, progress -> "x", null));
+            release.countDown();
+        }
+    }
+
+    @Test
+    void cancel_queuedJob_freesItsSlot() throws Exception {
+        // given
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        try (var scheduler = new ReportScheduler(1, 1)) {
+            block(scheduler, started, release);
+            started.await();
+            ReportJob queued = scheduler.submit("queued", 0, progress -> "queued", null);
+
+            // when
+            assertTrue(queued.cancel());
+
+            // then
+            assertEquals(0, scheduler.getQueuedJobs());
+            ReportJob next = scheduler.submit("next", 0, progress -> "next", null);
+            release.countDown();
+            assertEquals("next", next.get().getContent());
+        }
+    }
+
+    @Test
+    void submit_failingCallback_failsTheJob() throws Exception {
+        try (var scheduler = new ReportScheduler(1, 16)) {
+            ReportJob job = scheduler.submit("report", 0, progress -> "content", report -> {
+                throw new IllegalStateException("list is full");
+            });
+
+            var failure = assertThrows(ExecutionException.class, job::get);
+            assertInstanceOf(IllegalStateException.class, failure.getCause());
+            assertEquals(ReportJob.Status.FAILED, job.getStatus());
+        }
+    }
+
+    @Test
+    void submit_afterClose_throws() {
+        var scheduler = new ReportScheduler(1, 16);
+        scheduler.close();
+
+        assertThrows(IllegalStateException.class, () -> scheduler.submit("late", 0, progress -> "late", null));
+    }
+
+    @Test
+    void submit_streamingWork_completesWithFileBackedReport() throws Exception {
+        try (var scheduler = new ReportScheduler(1, 16)) {
+            ReportJob job = scheduler.submit("large", 0, (writer, progress) -> {
+                for (int i = 0; i < 100_000; i++) {
+                    writer.writeRow("order-" + i, i);
+                }
+            }, null);
+
+            Report report = job.get();
+
+            assertTrue(report.isFileBacked());
+            assertTrue(report.getChunkCount() > 1);
+            Path file = report.getFile();
+            report.delete();
+            assertFalse(Files.exists(file));
+        }
+    }
+
+    @Test
+    void submit_failingStreamingWork_deletesItsFile() throws Exception {
+        var file = new AtomicReference<Path>();
+        try (var scheduler = new ReportScheduler(1, 16)) {
+            ReportJob job = scheduler.submit("broken", 0, (writer, progress) -> {
+                file.set(writer.getFile());
+                writer.write("half a report");
+                throw new IllegalStateException("no data");
+            }, null);
+
+            assertThrows(ExecutionException.class, job::get);
+            assertFalse(Files.exists(file.get()));
+        }
+    }
+}
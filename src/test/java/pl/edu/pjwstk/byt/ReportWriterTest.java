@@ -0,0 +1,98 @@
+package pl.edu.pjwstk.byt;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReportWriterTest {
+
+    private final List<Path> files = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private ReportWriter createWriter() throws IOException {
+        var writer = ReportWriter.temporary();
+        files.add(writer.getFile());
+        return writer;
+    }
+
+    @Test
+    void toReport_manyRows_streamsBackEveryRow() throws IOException {
+        // given
+        var writer = createWriter();
+        for (int i = 0; i < 100_000; i++) {
+            writer.writeRow("order-" + i, i % 7, "Za\u017C\u00F3\u0142\u0107, g\u0119\u015Bl\u0105 ja\u017A\u0144");
+        }
+
+        // when
+        Report report = writer.toReport();
+
+        // then
+        assertTrue(report.isFileBacked());
+        assertTrue(report.getChunkCount() > 1);
+        assertTrue(Files.size(report.getFile()) < report.getLength());
+        try (var reader = new BufferedReader(report.openReader())) {
+            for (int i = 0; i < 100_000; i++) {
+                assertEquals("order-" + i + "," + i % 7 + ",\"Za\u017C\u00F3\u0142\u0107, g\u0119\u015Bl\u0105 ja\u017A\u0144\"", reader.readLine());
+            }
+            assertNull(reader.readLine());
+        }
+    }
+
+    @Test
+    void getChunk_randomAccess_matchesContent() throws IOException {
+        // given
+        var writer = createWriter();
+        var expected = new StringBuilder();
+        for (int i = 0; i < 50_000; i++) {
+            String line = "line " + i + " \uD83D\uDCE6\n"; // surrogate pairs may end up on a chunk boundary
+            writer.write(line);
+            expected.append(line);
+        }
+        Report report = writer.toReport();
+
+        // when
+        var content = new StringBuilder();
+        for (int i = report.getChunkCount() - 1; i >= 0; i--) {
+            content.insert(0, report.getChunk(i));
+        }
+
+        // then
+        assertEquals(expected.toString(), content.toString());
+        assertEquals(expected.length(), report.getLength());
+        assertEquals(expected.toString(), Report.open(report.getFile()).getContent());
+    }
+
+    @Test
+    void write_afterClose_throws() throws IOException {
+        var writer = createWriter();
+        writer.write("done");
+        writer.close();
+
+        assertThrows(IOException.class, () -> writer.write("more"));
+        assertEquals("done", writer.toReport().getContent());
+    }
+
+    @Test
+    void inMemoryReport_isOneChunk() throws IOException {
+        var report = new Report("small");
+
+        assertFalse(report.isFileBacked());
+        assertEquals(1, report.getChunkCount());
+        assertEquals("small", report.getChunk(0));
+        assertEquals('s', report.openReader().read());
+    }
+}
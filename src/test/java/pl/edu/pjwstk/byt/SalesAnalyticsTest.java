@@ -0,0 +1,90 @@
+package pl.edu.pjwstk.byt;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SalesAnalyticsTest {
+
+    @BeforeEach
+    void setUp() throws Exception {
+        clearExtent(Order.class);
+        clearExtent(OrderItem.class);
+    }
+
+    private void clearExtent(Class<?> clazz) throws Exception {
+        Field field = clazz.getDeclaredField("extent");
+        field.setAccessible(true);
+        ((List<?>) field.get(null)).clear();
+    }
+
+    @Test
+    void ofCurrentOrders_groupsRevenueByCategoryAndStatus() {
+        // given
+        var customer = new Customer("Customer", "customer@test.com");
+        var books = new Category("Books", "Printed books", null);
+        var book = new Product("Book", "Description", 10.0, 100, List.of("image.jpg"));
+        books.addProduct(book);
+        var pen = new Product("Pen", "Description", 5.0, 100, List.of("image.jpg"));
+        new Order(customer, book, 2).changeOrderStatus(OrderStatus.PAID);
+        new Order(customer, pen, 1).changeOrderStatus(OrderStatus.PAID);
+        new Order(customer, book, 3).changeOrderStatus(OrderStatus.CANCELLED);
+
+        // when
+        var analytics = SalesAnalytics.ofCurrentOrders(Money.DEFAULT_CURRENCY);
+
+        // then
+        Map<Category, Long> byCategory = analytics.revenueByCategory();
+        assertEquals(2_000L, byCategory.get(books));
+        assertEquals(500L, byCategory.get(null));
+        Map<OrderStatus, Long> byStatus = analytics.revenueByStatus();
+        assertEquals(2_500L, byStatus.get(OrderStatus.PAID));
+        assertEquals(3_000L, byStatus.get(OrderStatus.CANCELLED));
+        assertEquals(0L, byStatus.get(OrderStatus.SHIPPED));
+        assertEquals(2_500L, analytics.getTotalRevenueMinor());
+        assertEquals(3, analytics.getColumns().size());
+    }
+
+    @Test
+    void revenueByDay_manyRowsInParallel_matchesSerialSum() {
+        // given
+        var builder = new SalesColumns.Builder(Money.DEFAULT_CURRENCY, 0);
+        int product = builder.productSlot(new Product("Product", "Description", 1.0, 1, List.of("image.jpg")));
+        var random = new Random(42);
+        SortedMap<LocalDate, Long> expected = new TreeMap<>();
+        for (int i = 0; i < 300_000; i++) {
+            long timestamp = 1_700_000_000L + random.nextInt(30 * 86_400);
+            int quantity = 1 + random.nextInt(5);
+            long price = 1 + random.nextInt(10_000);
+            OrderStatus status = i % 10 == 0 ? OrderStatus.CANCELLED : OrderStatus.COMPLETE;
+            builder.add(timestamp, status, product, SalesColumns.NO_CATEGORY, quantity, price);
+            if (status != OrderStatus.CANCELLED) {
+                expected.merge(LocalDate.ofEpochDay(Math.floorDiv(timestamp, 86_400)), quantity * price, Long::sum);
+            }
+        }
+
+        // when
+        var analytics = new SalesAnalytics(builder.build(), new ForkJoinPool(4));
+
+        // then
+        assertEquals(expected, analytics.revenueByDay());
+    }
+
+    @Test
+    void revenueByDay_noOrders_isEmpty() {
+        var analytics = new SalesAnalytics(new SalesColumns.Builder(Money.DEFAULT_CURRENCY, 0).build());
+
+        assertTrue(analytics.revenueByDay().isEmpty());
+        assertEquals(0, analytics.getTotalRevenueMinor());
+    }
+}
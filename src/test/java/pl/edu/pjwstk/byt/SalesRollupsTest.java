@@ -0,0 +1,142 @@
+package pl.edu.pjwstk.byt;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+import pl.edu.pjwstk.byt.SalesRollups.Granularity;
+import pl.edu.pjwstk.byt.SalesRollups.Totals;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SalesRollupsTest {
+
+    private Customer customer;
+    private Category books;
+    private Product book;
+    private Product pen;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        clearExtent(Order.class);
+        clearExtent(OrderItem.class);
+        SalesRollups.rebuild();
+
+        customer = new Customer("Customer", "customer@test.com");
+        books = new Category("Books", "Printed books", null);
+        book = new Product("Book", "Description", 10.0, 100, List.of("image.jpg"));
+        books.addProduct(book);
+        pen = new Product("Pen", "Description", 2.0, 100, List.of("image.jpg"));
+    }
+
+    private void clearExtent(Class<?> clazz) throws Exception {
+        Field field = clazz.getDeclaredField("extent");
+        field.setAccessible(true);
+        ((List<?>) field.get(null)).clear();
+    }
+
+    private Totals minute(Order order, OrderStatus status) {
+        Map<OrderStatus, Totals> byStatus =
+                SalesRollups.byStatus(Granularity.MINUTE, Money.DEFAULT_CURRENCY, order.getOrderDate());
+        return byStatus.getOrDefault(status, Totals.ZERO);
+    }
+
+    @Test
+    void record_orderLifecycle_keepsBucketsInStep() {
+        // given
+        var order = new Order(customer, book, 2);
+        assertEquals(2_000, minute(order, OrderStatus.PAYMENT_PENDING).getRevenueMinor());
+
+        // when
+        order.addProduct(pen, 3);
+        order.getItems().get(0).setQuantity(1);
+        order.changeOrderStatus(OrderStatus.PAID);
+
+        // then
+        assertEquals(0, minute(order, OrderStatus.PAYMENT_PENDING).getUnits());
+        Totals paid = minute(order, OrderStatus.PAID);
+        assertEquals(order.getTotalMinor(), paid.getRevenueMinor());
+        assertEquals(4, paid.getUnits());
+
+        // when
+        order.delete();
+
+        // then
+        assertEquals(0, minute(order, OrderStatus.PAID).getRevenueMinor());
+    }
+
+    @Test
+    void byCategory_splitsOneBucketByCategory() {
+        // given
+        var order = new Order(customer, book, 1);
+        order.addProduct(pen, 5);
+
+        // when
+        Map<Category, Totals> byCategory =
+                SalesRollups.byCategory(Granularity.HOUR, Money.DEFAULT_CURRENCY, order.getOrderDate());
+
+        // then
+        assertEquals(1_000, byCategory.get(books).getRevenueMinor());
+        assertEquals(1_000, byCategory.get(null).getRevenueMinor());
+        assertEquals(5, byCategory.get(null).getUnits());
+    }
+
+    @Test
+    void series_filtersByCategoryAndSumsTheRange() {
+        // given
+        new Order(customer, book, 2);
+        new Order(customer, pen, 1);
+        LocalDateTime now = LocalDateTime.now();
+
+        // when
+        SortedMap<LocalDateTime, Totals> all =
+                SalesRollups.series(Granularity.DAY, Money.DEFAULT_CURRENCY, now.minusDays(1), now.plusDays(1), null, null);
+        SortedMap<LocalDateTime, Totals> onlyBooks =
+                SalesRollups.series(Granularity.DAY, Money.DEFAULT_CURRENCY, now.minusDays(1), now.plusDays(1), books, null);
+
+        // then
+        assertEquals(2_200, all.values().stream().mapToLong(Totals::getRevenueMinor).sum());
+        assertEquals(2_000, onlyBooks.values().stream().mapToLong(Totals::getRevenueMinor).sum());
+        assertTrue(SalesRollups.series(Granularity.DAY, Money.DEFAULT_CURRENCY, now.minusDays(1), now.plusDays(1),
+                null, OrderStatus.CANCELLED).isEmpty());
+    }
+
+    @Test
+    void rebuild_afterExtentChangedBehindTheRollups_matchesExtent() throws Exception {
+        // given
+        var order = new Order(customer, book, 2);
+        clearExtent(Order.class);
+        clearExtent(OrderItem.class);
+
+        // when
+        SalesRollups.rebuild();
+
+        // then
+        assertEquals(0, minute(order, OrderStatus.PAYMENT_PENDING).getRevenueMinor());
+    }
+
+    @Test
+    void record_productChangedCategory_reversesLineUnderItsOriginalCategory() {
+        // given
+        var order = new Order(customer, book, 2);
+        books.removeProduct(book);
+
+        // when
+        order.changeOrderStatus(OrderStatus.PAID);
+
+        // then
+        var date = order.getOrderDate();
+        SortedMap<LocalDateTime, Totals> paidBooks = SalesRollups.series(Granularity.MINUTE, Money.DEFAULT_CURRENCY,
+                date.minusMinutes(1), date.plusMinutes(1), books, OrderStatus.PAID);
+        SortedMap<LocalDateTime, Totals> pendingBooks = SalesRollups.series(Granularity.MINUTE,
+                Money.DEFAULT_CURRENCY, date.minusMinutes(1), date.plusMinutes(1), books, OrderStatus.PAYMENT_PENDING);
+        assertEquals(2_000, paidBooks.values().stream().mapToLong(Totals::getRevenueMinor).sum());
+        assertTrue(pendingBooks.isEmpty());
+        assertFalse(SalesRollups.byCategory(Granularity.MINUTE, Money.DEFAULT_CURRENCY, date).containsKey(null));
+    }
+}
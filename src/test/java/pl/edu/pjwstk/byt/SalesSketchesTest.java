@@ -0,0 +1,71 @@
+package pl.edu.pjwstk.byt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SalesSketchesTest {
+
+    @Test
+    void orderItems_feedTheLiveSketches() {
+        // given
+        var category = new Category("Sketched", "Category", null);
+        var product = new Product("Sketched", "Description", 10.0, 1_000, List.of("image.jpg"));
+        category.addProduct(product);
+        long before = SalesSketches.live().estimateUnitsSold(product);
+
+        // when
+        for (int i = 0; i < 20; i++) {
+            var customer = new Customer("Customer", "sketch" + i + "@test.com");
+            new Order(customer, product, 2);
+            new Order(customer, product, 1);
+        }
+
+        // then
+        assertEquals(20, SalesSketches.live().estimateBuyers(product));
+        assertEquals(20, SalesSketches.live().estimateBuyers(category));
+        assertTrue(SalesSketches.live().estimateUnitsSold(product) >= before + 60);
+    }
+
+    @Test
+    void createAll_recordsTheWholeBatch() {
+        // given
+        var product = new Product("Batched", "Description", 10.0, 1_000, List.of("image.jpg"));
+        var batch = new OrderBatch();
+        for (int i = 0; i < 10; i++) {
+            batch.add(new Customer("Customer", "batch" + i + "@test.com"), product.getId(), 2).endOrder();
+        }
+
+        // when
+        Order.createAll(batch);
+
+        // then
+        assertEquals(10, SalesSketches.live().estimateBuyers(product));
+        assertTrue(SalesSketches.live().estimateUnitsSold(product) >= 20);
+    }
+
+    @Test
+    void drainAndMerge_combineTimeWindows() {
+        // given
+        var sketches = new SalesSketches();
+        sketches.record("a@test.com", "product-1", "Books", 5);
+        sketches.record("b@test.com", "product-1", "Books", 1);
+        SalesSketches monday = sketches.drain();
+        sketches.record("b@test.com", "product-1", "Books", 2);
+        sketches.record("c@test.com", "product-2", null, 1);
+
+        // when
+        var week = new SalesSketches();
+        week.merge(monday);
+        week.merge(sketches);
+
+        // then
+        assertEquals("product-1", week.bestSellers().get(0).item());
+        assertEquals(8, week.bestSellers().get(0).count());
+        var books = new Category("Books", "Printed books", null);
+        assertEquals(2, week.estimateBuyers(books));
+        assertEquals(1, sketches.estimateBuyers(books));
+    }
+}
@@ -37,6 +37,26 @@ public class ShoppingCartTest {
         assertSame(shoppingCart, cartItem.getCart());
     }
 
+    @Test
+    void removeItems_itemsAddedAfterSnapshot_stayInCart() {
+        // given
+        var shoppingCart = new ShoppingCart();
+        var checkedOut = createTestProduct();
+        var addedLater = createTestProduct();
+        shoppingCart.updateCart(checkedOut, 2);
+        var snapshot = List.copyOf(shoppingCart.getCartItems().values());
+        shoppingCart.updateCart(addedLater, 3);
+
+        // when
+        shoppingCart.removeItems(snapshot);
+
+        // then
+        assertEquals(1, shoppingCart.getCartItems().size());
+        assertTrue(shoppingCart.getCartItems().containsKey(addedLater.getId()));
+        assertEquals(3, shoppingCart.getItemCount());
+        assertNull(snapshot.get(0).getCart());
+    }
+
     @Test
     void clearCart_emptyCart_cartRemainsEmpty() {
         // given
@@ -252,6 +272,7 @@ public class ShoppingCartTest {
         var product = createTestProduct();
         shoppingCart.updateCart(product, 1);
         var key = product.getId();
+        var cartItem = shoppingCart.getCartItems().get(key);
         var before = shoppingCart.getLastUpdated();
 
         // when
@@ -260,14 +281,96 @@ public class ShoppingCartTest {
 
         // then
         assertFalse(shoppingCart.getCartItems().containsKey(key));
-        var found = CartItem.getExtent().stream()
-            .filter(ci -> ci.getProduct().getId().equals(key))
-            .findFirst();
-        assertTrue(found.isPresent());
-        assertNull(found.get().getCart());
+        assertNull(cartItem.getCart());
+        assertFalse(CartItem.getExtent().contains(cartItem));
         assertTrue(shoppingCart.getLastUpdated().isAfter(before) || shoppingCart.getLastUpdated().equals(before));
     }
 
+    @Test
+    void updateCart_replacingItem_doesNotCountOldQuantityTowardsLimit() {
+        // given
+        var shoppingCart = new ShoppingCart();
+        var product = createTestProduct();
+        shoppingCart.updateCart(product, ShoppingCart.MAX_CART_ITEMS);
+
+        // when
+        var result = shoppingCart.updateCart(product, ShoppingCart.MAX_CART_ITEMS - 1);
+
+        // then
+        assertTrue(result);
+        assertEquals(ShoppingCart.MAX_CART_ITEMS - 1, shoppingCart.getItemCount());
+    }
+
+    @Test
+    void itemCountAndSubtotal_maintainedAcrossUpdateRemoveAndClear() {
+        // given
+        var shoppingCart = new ShoppingCart();
+        var product1 = new Product("Product 1", "Description 1", 10.0, 5, List.of("image1.jpg"));
+        var product2 = new Product("Product 2", "Description 2", 2.5, 10, List.of("image2.jpg"));
+
+        // when
+        shoppingCart.updateCart(product1, 2);
+        shoppingCart.updateCart(product2, 4);
+        shoppingCart.updateCart(product1, 1);
+
+        // then
+        assertEquals(5, shoppingCart.getItemCount());
+        assertEquals(Money.of(20.0), shoppingCart.getSubtotal());
+
+        shoppingCart.getCartItems().get(product2.getId()).updateQuantity(2);
+        assertEquals(3, shoppingCart.getItemCount());
+        assertEquals(Money.of(15.0), shoppingCart.getSubtotal());
+
+        shoppingCart.remove(product1.getId());
+        assertEquals(2, shoppingCart.getItemCount());
+        assertEquals(Money.of(5.0), shoppingCart.getSubtotal());
+
+        shoppingCart.clearCart();
+        assertEquals(0, shoppingCart.getItemCount());
+        assertEquals(Money.of(0), shoppingCart.getSubtotal());
+    }
+
+    @Test
+    void updateCart_sameProduct_reusesCartItemWithoutGrowingExtent() {
+        // given
+        var shoppingCart = new ShoppingCart();
+        var product = createTestProduct();
+        shoppingCart.updateCart(product, 1);
+        var cartItem = shoppingCart.getCartItems().get(product.getId());
+        var extentSize = CartItem.getExtent().size();
+
+        // when
+        shoppingCart.updateCart(product, 3);
+
+        // then
+        assertSame(cartItem, shoppingCart.getCartItems().get(product.getId()));
+        assertEquals(3, cartItem.getQuantity());
+        assertEquals(extentSize, CartItem.getExtent().size());
+    }
+
+    @Test
+    void clearCart_removesCartItemsFromExtent() {
+        // given
+        var shoppingCart = new ShoppingCart();
+        var product1 = new Product("Product 1", "Description 1", 10.0, 5, List.of("image1.jpg"));
+        var product2 = new Product("Product 2", "Description 2", 20.0, 10, List.of("image2.jpg"));
+        shoppingCart.updateCart(product1, 1);
+        shoppingCart.updateCart(product2, 2);
+        var items = List.copyOf(shoppingCart.getCartItems().values());
+        var orphansBefore = CartItem.getOrphanCount();
+
+        // when
+        shoppingCart.clearCart();
+
+        // then
+        var extent = CartItem.getExtent();
+        for (var item : items) {
+            assertFalse(extent.contains(item));
+            assertNull(item.getCart());
+        }
+        assertEquals(orphansBefore, CartItem.getOrphanCount());
+    }
+
     private Product createTestProduct() {
         return new Product("Test Product", "Test Description", 10.0, 5, List.of("image.jpg"));
     }
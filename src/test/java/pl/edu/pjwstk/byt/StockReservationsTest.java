@@ -0,0 +1,180 @@
+package pl.edu.pjwstk.byt;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StockReservationsTest {
+
+    private static class ManualClock extends Clock {
+        private Instant now = Instant.now();
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.systemDefault();
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    private Product createProduct(int stock) {
+        return new Product("Product", "Description", 10.0, stock, List.of("image.jpg"));
+    }
+
+    @Test
+    void tryReserve_enoughStock_takesStockUntilCommitted() {
+        // given
+        var reservations = new StockReservations(Duration.ofMinutes(15));
+        var product = createProduct(5);
+        var cart = new ShoppingCart();
+
+        // when
+        var reservation = reservations.tryReserve(product, 3, cart);
+
+        // then
+        assertNotNull(reservation);
+        assertEquals(2, product.getStockQuantity());
+        assertEquals(List.of(reservation), reservations.getHeld(cart));
+        reservations.commit(reservation);
+        assertEquals(StockReservation.State.COMMITTED, reservation.getState());
+        assertEquals(2, product.getStockQuantity());
+        assertTrue(reservations.getHeld(cart).isEmpty());
+        assertThrows(IllegalStateException.class, () -> reservations.commit(reservation));
+    }
+
+    @Test
+    void tryReserve_notEnoughStock_returnsNull() {
+        var reservations = new StockReservations(Duration.ofMinutes(15));
+        var product = createProduct(2);
+
+        assertNull(reservations.tryReserve(product, 3, new ShoppingCart()));
+        assertEquals(2, product.getStockQuantity());
+    }
+
+    @Test
+    void release_returnsStockOnlyOnce() {
+        // given
+        var reservations = new StockReservations(Duration.ofMinutes(15));
+        var product = createProduct(5);
+        var reservation = reservations.tryReserve(product, 4, new ShoppingCart());
+
+        // when / then
+        assertTrue(reservations.release(reservation));
+        assertFalse(reservations.release(reservation));
+        assertEquals(5, product.getStockQuantity());
+    }
+
+    @Test
+    void releaseExpired_releasesOnlyExpiredHolds() {
+        // given
+        var clock = new ManualClock();
+        var reservations = new StockReservations(Duration.ofMinutes(10), clock, 2);
+        var product = createProduct(10);
+        var cart = new ShoppingCart();
+        var shortHold = reservations.tryReserve(product, 2, cart, Duration.ofMinutes(1));
+        var longHold = reservations.tryReserve(product, 3, cart);
+        var committed = reservations.tryReserve(product, 1, cart, Duration.ofMinutes(1));
+        reservations.commit(committed);
+
+        // when
+        clock.advance(Duration.ofMinutes(2));
+        var released = reservations.releaseExpired();
+
+        // then
+        assertEquals(1, released);
+        assertEquals(StockReservation.State.RELEASED, shortHold.getState());
+        assertEquals(StockReservation.State.HELD, longHold.getState());
+        assertEquals(6, product.getStockQuantity());
+    }
+
+    @Test
+    void releaseAll_releasesHoldsOfThatCartOnly() {
+        var reservations = new StockReservations(Duration.ofMinutes(15));
+        var product = createProduct(10);
+        var cart = new ShoppingCart();
+        var otherCart = new ShoppingCart();
+        reservations.tryReserve(product, 2, cart);
+        reservations.tryReserve(product, 3, cart);
+        reservations.tryReserve(product, 4, otherCart);
+
+        assertEquals(2, reservations.releaseAll(cart));
+        assertEquals(6, product.getStockQuantity());
+        assertEquals(1, reservations.getHeld(otherCart).size());
+    }
+
+    @Test
+    void commitAndRelease_cancelExpiryTimers() {
+        // given
+        var reservations = new StockReservations(Duration.ofMinutes(15));
+        var product = createProduct(10);
+        var cart = new ShoppingCart();
+        var committed = reservations.tryReserve(product, 2, cart);
+        var released = reservations.tryReserve(product, 3, cart);
+        reservations.tryReserve(product, 1, cart);
+
+        // when
+        reservations.commit(committed);
+        reservations.release(released);
+
+        // then
+        assertEquals(1, reservations.getScheduledTimers());
+    }
+
+    @Test
+    void tryReserve_concurrentCheckouts_neverOversell() throws Exception {
+        // given
+        var reservations = new StockReservations(Duration.ofMinutes(15));
+        var product = createProduct(1_000);
+        var cart = new ShoppingCart();
+        var succeeded = new AtomicInteger();
+        var start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < 500; i++) {
+                    if (reservations.tryReserve(product, 1, cart) != null) {
+                        succeeded.incrementAndGet();
+                    }
+                }
+            }));
+        }
+
+        // when
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // then
+        assertEquals(1_000, succeeded.get());
+        assertEquals(0, product.getStockQuantity());
+        assertEquals(1_000, reservations.getHeld(cart).size());
+    }
+}
@@ -0,0 +1,134 @@
+package pl.edu.pjwstk.byt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StripedStockTest {
+
+    @Test
+    void tryTake_homeStripeEmpty_borrowsFromOtherStripes() {
+        // given
+        var overflow = new AtomicInteger();
+        var stock = new StripedStock(4, overflow);
+        stock.distribute(4); // one unit per stripe
+
+        // when / then
+        assertTrue(stock.tryTake(3));
+        assertEquals(1, stock.sum());
+        assertFalse(stock.tryTake(2));
+        assertEquals(1, stock.sum());
+    }
+
+    @Test
+    void close_movesRemainingStockToOverflow() {
+        // given
+        var overflow = new AtomicInteger(5);
+        var stock = new StripedStock(3, overflow);
+        stock.distribute(10);
+
+        // when
+        stock.close();
+        stock.add(2);
+
+        // then
+        assertEquals(17, overflow.get());
+        assertEquals(0, stock.sum());
+        assertFalse(stock.tryTake(1));
+    }
+
+    @Test
+    void flashSale_stockIsKeptAcrossStartAndEnd() {
+        // given
+        var product = new Product("Product", "Description", 10.0, 10, List.of("image.jpg"));
+
+        // when
+        product.startFlashSale(4);
+        product.updateStock(-3);
+        product.updateStock(1);
+
+        // then
+        assertTrue(product.isFlashSale());
+        assertEquals(8, product.getStockQuantity());
+        assertThrows(IllegalArgumentException.class, () -> product.updateStock(-9));
+        product.endFlashSale();
+        assertFalse(product.isFlashSale());
+        assertEquals(8, product.getStockQuantity());
+        assertThrows(IllegalStateException.class, product::endFlashSale);
+    }
+
+    @Test
+    void flashSale_concurrentBuyers_neverOversell() throws Exception {
+        // given
+        var product = new Product("Product", "Description", 10.0, 1_000, List.of("image.jpg"));
+        product.startFlashSale(4);
+        var sold = new AtomicInteger();
+        var start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < 500; i++) {
+                    try {
+                        product.updateStock(-1);
+                        sold.incrementAndGet();
+                    } catch (IllegalArgumentException e) {
+                        // sold out
+                    }
+                }
+            }));
+        }
+
+        // when
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        product.endFlashSale();
+
+        // then
+        assertEquals(1_000, sold.get());
+        assertEquals(0, product.getStockQuantity());
+    }
+
+    @Test
+    void tryTake_concurrentBorrowers_failOnlyWhenTotalIsShort() throws Exception {
+        // given
+        var stock = new StripedStock(8, new AtomicInteger());
+        stock.distribute(1_001);
+        var start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                while (stock.tryTake(3)) {
+                    // keep buying until a take fails
+                }
+            }));
+        }
+
+        // when
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // then
+        assertEquals(1_001 % 3, stock.sum());
+    }
+}
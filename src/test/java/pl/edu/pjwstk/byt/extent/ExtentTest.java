@@ -0,0 +1,133 @@
+package pl.edu.pjwstk.byt.extent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExtentTest {
+
+    private static final String EXTENT_FILE = "Test_extent.ser";
+
+    @AfterEach
+    void tearDown() {
+        File file = new File(EXTENT_FILE);
+        if (file.exists()) {
+            file.delete();
+        }
+    }
+
+    @Test
+    void snapshot_returnsCopy_notBackingStorage() {
+        // given
+        Extent<String> extent = Extent.onHeap(EXTENT_FILE);
+        extent.add("a");
+
+        // when
+        var snapshot = extent.snapshot();
+        snapshot.clear();
+
+        // then
+        assertEquals(1, extent.size());
+        assertEquals(List.of("a"), extent.snapshot());
+    }
+
+    @Test
+    void saveAndLoad_onHeap_restoresItemsInOrder() throws Exception {
+        // given
+        Extent<String> extent = Extent.onHeap(EXTENT_FILE);
+        extent.add("a");
+        extent.add("b");
+        extent.save();
+        extent.clear();
+
+        // when
+        extent.load();
+
+        // then
+        assertEquals(List.of("a", "b"), extent.snapshot());
+    }
+
+    @Test
+    void saveAndLoad_concurrent_restoresItems() throws Exception {
+        // given
+        Extent<String> extent = Extent.concurrent(EXTENT_FILE);
+        extent.add("a");
+        extent.save();
+        extent.add("b");
+
+        // when
+        extent.load();
+
+        // then
+        assertEquals(List.of("a"), extent.snapshot());
+    }
+
+    @Test
+    void load_fileDoesNotExist_keepsCurrentItems() {
+        // given
+        Extent<String> extent = Extent.onHeap(EXTENT_FILE);
+        extent.add("a");
+
+        // then
+        assertThrows(IOException.class, extent::load);
+        assertEquals(List.of("a"), extent.snapshot());
+    }
+
+    @Test
+    void save_customCodec_isUsedForPersistence() throws Exception {
+        // given
+        var codec = new ExtentCodec<String>() {
+            @Override
+            public void write(List<String> items, java.io.OutputStream out) throws IOException {
+                out.write(String.join(",", items).getBytes());
+            }
+
+            @Override
+            public List<String> read(java.io.InputStream in) throws IOException {
+                return List.of(new String(in.readAllBytes()).split(","));
+            }
+        };
+        var extent = new Extent<>(EXTENT_FILE, new ArrayList<>(), codec);
+        extent.add("x");
+        extent.add("y");
+
+        // when
+        extent.save();
+        extent.clear();
+        extent.load();
+
+        // then
+        assertEquals(List.of("x", "y"), extent.snapshot());
+    }
+
+    @Test
+    void load_versioned_publishesTheLoadedItemsAsOneVersion() throws Exception {
+        // given
+        var group = new SnapshotGroup();
+        Extent<String> extent = Extent.versioned(EXTENT_FILE, group);
+        extent.add("saved");
+        extent.save();
+        extent.add("unsaved");
+        long before = group.pin().getVersion();
+
+        // when
+        extent.load();
+
+        // then
+        Snapshot after = group.pin();
+        assertEquals(before + 1, after.getVersion());
+        assertEquals(List.of("saved"), after.of(extent));
+    }
+
+    @Test
+    void constructor_nullStorage_throws() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new Extent<String>(EXTENT_FILE, null, new SerializationCodec<>()));
+    }
+}
@@ -0,0 +1,134 @@
+package pl.edu.pjwstk.byt.extent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VersionedListTest {
+
+    @Test
+    void pin_laterChanges_doNotAffectPinnedVersion() {
+        // given
+        var list = new VersionedList<String>(new SnapshotGroup());
+        list.add("a");
+        list.add("b");
+        List<String> pinned = list.pin();
+
+        // when
+        list.add("c");
+        list.remove("a");
+        list.set(0, "x");
+
+        // then
+        assertEquals(List.of("a", "b"), pinned);
+        assertEquals(List.of("x", "c"), list);
+    }
+
+    @Test
+    void pin_returnsImmutableView() {
+        var list = new VersionedList<String>(new SnapshotGroup());
+        list.add("a");
+
+        assertThrows(UnsupportedOperationException.class, () -> list.pin().add("b"));
+    }
+
+    @Test
+    void listOperations_behaveLikeArrayList() {
+        // given
+        var list = new VersionedList<Integer>(new SnapshotGroup());
+        List<Integer> expected = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < 20; i++) {
+            list.add(i);
+            expected.add(i);
+        }
+        list.add(3, 100);
+        expected.add(3, 100);
+        list.addAll(List.of(7, 8));
+        expected.addAll(List.of(7, 8));
+        list.removeIf(i -> i % 5 == 0);
+        expected.removeIf(i -> i % 5 == 0);
+        list.removeAll(List.of(7, 11));
+        expected.removeAll(List.of(7, 11));
+        list.remove(0);
+        expected.remove(0);
+
+        // then
+        assertEquals(expected, list);
+        assertTrue(list.contains(8));
+        assertArrayEquals(expected.toArray(), list.toArray());
+    }
+
+    @Test
+    void remove_manySmallRemovals_keepPinnedVersionsIntact() {
+        // given
+        var list = new VersionedList<Integer>(new SnapshotGroup());
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            list.add(i);
+            expected.add(i);
+        }
+        List<List<Integer>> pinned = new ArrayList<>();
+        List<List<Integer>> pinnedExpected = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < VersionedList.MAX_REMOVED_SLOTS + 10; i++) {
+            pinned.add(list.pin());
+            pinnedExpected.add(List.copyOf(expected));
+            list.remove(Integer.valueOf(i * 2));
+            expected.remove(Integer.valueOf(i * 2));
+            list.remove(expected.size() / 2);
+            expected.remove(expected.size() / 2);
+            list.add(1_000 + i);
+            expected.add(1_000 + i);
+        }
+
+        // then
+        assertEquals(expected, list);
+        assertEquals(expected, list.pin());
+        assertArrayEquals(expected.toArray(), list.toArray());
+        assertFalse(list.contains(0));
+        assertTrue(list.contains(expected.get(expected.size() - 1)));
+        for (int i = 0; i < pinned.size(); i++) {
+            assertEquals(pinnedExpected.get(i), pinned.get(i));
+        }
+    }
+
+    @Test
+    void snapshot_groupWrite_isSeenCompletelyOrNotAtAll() throws Exception {
+        // given
+        var group = new SnapshotGroup();
+        Extent<Integer> left = Extent.versioned("Left_extent.ser", group);
+        Extent<Integer> right = Extent.versioned("Right_extent.ser", group);
+        var writer = new Thread(() -> {
+            for (int i = 0; i < 10_000; i++) {
+                int value = i;
+                group.write(() -> {
+                    left.add(value);
+                    right.add(value);
+                });
+            }
+        });
+
+        // when
+        writer.start();
+        while (writer.isAlive()) {
+            Snapshot snapshot = group.pin();
+            // then
+            assertEquals(snapshot.of(left).size(), snapshot.of(right).size());
+        }
+        writer.join();
+        assertEquals(10_000, group.pin().of(right).size());
+    }
+
+    @Test
+    void snapshot_extentOfOtherGroup_throws() {
+        Extent<String> extent = Extent.versioned("Other_extent.ser", new SnapshotGroup());
+
+        assertThrows(IllegalArgumentException.class, () -> new SnapshotGroup().pin().of(extent));
+    }
+}
@@ -0,0 +1,143 @@
+package pl.edu.pjwstk.byt.tx;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransactionTest {
+
+    private static class Account implements Versioned {
+        private final VersionStamp versionStamp = new VersionStamp();
+        private int balance;
+
+        private Account(int balance) {
+            this.balance = balance;
+        }
+
+        @Override
+        public VersionStamp getVersionStamp() {
+            return versionStamp;
+        }
+    }
+
+    private static void transfer(Transaction tx, Account from, Account to, int amount) {
+        int fromBalance = tx.read(from, () -> from.balance);
+        int toBalance = tx.read(to, () -> to.balance);
+        tx.write(from, () -> from.balance = fromBalance - amount, () -> from.balance = fromBalance);
+        tx.write(to, () -> to.balance = toBalance + amount, () -> to.balance = toBalance);
+    }
+
+    @Test
+    void execute_appliesWritesAndBumpsVersions() {
+        // given
+        var from = new Account(100);
+        var to = new Account(0);
+
+        // when
+        Transaction.execute(tx -> {
+            transfer(tx, from, to, 30);
+            return null;
+        });
+
+        // then
+        assertEquals(70, from.balance);
+        assertEquals(30, to.balance);
+        assertEquals(1, from.getVersionStamp().version());
+        assertEquals(1, to.getVersionStamp().version());
+    }
+
+    @Test
+    void execute_failingWrite_undoesAppliedWrites() {
+        // given
+        var first = new Account(10);
+        var second = new Account(20);
+
+        // when
+        assertThrows(IllegalStateException.class, () -> Transaction.execute(tx -> {
+            tx.write(first, () -> first.balance = 0, () -> first.balance = 10);
+            tx.write(second, () -> {
+                throw new IllegalStateException("failed");
+            }, () -> second.balance = 20);
+            return null;
+        }));
+
+        // then
+        assertEquals(10, first.balance);
+        assertEquals(20, second.balance);
+        assertEquals(0, first.getVersionStamp().version());
+    }
+
+    @Test
+    void execute_readChangedBeforeCommit_retries() {
+        // given
+        var account = new Account(5);
+        var other = new Account(0);
+        var attempts = new AtomicInteger();
+
+        // when
+        int seen = Transaction.execute(tx -> {
+            int balance = tx.read(account, () -> account.balance);
+            if (attempts.incrementAndGet() == 1) {
+                account.balance = 50; // concurrent change outside the transaction
+                account.getVersionStamp().touch();
+            }
+            tx.write(other, () -> other.balance = balance, () -> other.balance = 0);
+            return balance;
+        });
+
+        // then
+        assertEquals(2, attempts.get());
+        assertEquals(50, seen);
+        assertEquals(50, other.balance);
+    }
+
+    @Test
+    void execute_conflictsOnEveryAttempt_throws() {
+        var account = new Account(0);
+
+        assertThrows(TransactionConflictException.class, () -> Transaction.execute(tx -> {
+            tx.read(account, () -> account.balance);
+            account.getVersionStamp().touch();
+            tx.write(account, () -> account.balance++, () -> account.balance--);
+            return null;
+        }, 3));
+        assertEquals(0, account.balance);
+    }
+
+    @Test
+    void execute_concurrentTransfers_keepTotal() throws Exception {
+        // given
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            accounts.add(new Account(1_000));
+        }
+        List<Thread> threads = new ArrayList<>();
+
+        // when
+        for (int t = 0; t < 4; t++) {
+            int offset = t;
+            var thread = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    var from = accounts.get((i + offset) % 4);
+                    var to = accounts.get((i + offset + 1) % 4);
+                    Transaction.execute(tx -> {
+                        transfer(tx, from, to, 1);
+                        return null;
+                    }, Integer.MAX_VALUE);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // then
+        assertEquals(4_000, accounts.stream().mapToInt(account -> account.balance).sum());
+    }
+}
@@ -0,0 +1,91 @@
+package pl.edu.pjwstk.byt.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HeavyHittersTest {
+
+    // Items "hot0".."hot4" sell 1000 units each, 20 000 other items sell 1 to 5 units.
+    private HeavyHitters feed(HeavyHitters hitters, long seed) {
+        var random = new Random(seed);
+        for (int round = 0; round < 1_000; round++) {
+            for (int hot = 0; hot < 5; hot++) {
+                hitters.add("hot" + hot, 1);
+            }
+            for (int i = 0; i < 20; i++) {
+                hitters.add("sku" + random.nextInt(20_000), 1 + random.nextInt(5));
+            }
+        }
+        return hitters;
+    }
+
+    @Test
+    void top_skewedSales_findsTheBestSellers() {
+        // given
+        var hitters = feed(new HeavyHitters(10, 4, 1 << 14), 1);
+
+        // when
+        List<HeavyHitters.Entry> top = hitters.top();
+
+        // then
+        assertEquals(10, top.size());
+        for (int i = 0; i < 5; i++) {
+            assertTrue(top.get(i).item().startsWith("hot"), "unexpected " + top.get(i));
+            assertTrue(top.get(i).count() >= 1_000);
+        }
+        assertTrue(hitters.estimate("hot0") >= 1_000);
+    }
+
+    @Test
+    void merge_twoShards_addsUpTheCounts() {
+        // given
+        var first = feed(new HeavyHitters(10, 4, 1 << 14), 1);
+        var second = feed(new HeavyHitters(10, 4, 1 << 14), 2);
+        long total = first.getTotal() + second.getTotal();
+
+        // when
+        first.merge(second);
+
+        // then
+        assertEquals(total, first.getTotal());
+        assertTrue(first.estimate("hot3") >= 2_000);
+        assertTrue(first.top().get(0).count() >= 2_000);
+        assertTrue(first.top().get(4).item().startsWith("hot"));
+    }
+
+    @Test
+    void top_manyEvictions_keepsTheLargestCounts() {
+        // given
+        var hitters = new HeavyHitters(3, 4, 1 << 16);
+
+        // when: counts arrive in an order that evicts the root again and again
+        for (int i = 0; i < 50; i++) {
+            hitters.add("item" + i, (i * 37) % 50 + 1);
+        }
+        hitters.add("item0", 100); // a candidate or not, it now has the highest count
+        var copy = hitters.copy();
+        copy.add("other", 1_000);
+
+        // then
+        List<HeavyHitters.Entry> top = hitters.top();
+        assertEquals(List.of("item0", "item27", "item4"), top.stream().map(HeavyHitters.Entry::item).toList());
+        assertEquals(List.of(101L, 50L, 49L), top.stream().map(HeavyHitters.Entry::count).toList());
+        assertEquals("other", copy.top().get(0).item());
+    }
+
+    @Test
+    void estimate_neverBelowTrueCount() {
+        var sketch = new CountMinSketch(4, 64);
+        for (int i = 0; i < 1_000; i++) {
+            sketch.add(Hashing.hash64("item" + i), i % 7);
+        }
+
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(sketch.estimate(Hashing.hash64("item" + i)) >= i % 7);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package pl.edu.pjwstk.byt.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HyperLogLogTest {
+
+    private HyperLogLog sketchOf(int from, int to) {
+        var sketch = new HyperLogLog(12);
+        for (int i = from; i < to; i++) {
+            sketch.add(Hashing.hash64("customer" + i + "@test.com"));
+        }
+        return sketch;
+    }
+
+    @Test
+    void estimate_manyDistinctItems_isWithinFivePercent() {
+        // given
+        var sketch = sketchOf(0, 200_000);
+
+        // when
+        long estimate = sketch.estimate();
+
+        // then
+        assertEquals(200_000, estimate, 10_000);
+    }
+
+    @Test
+    void estimate_duplicatesAndSmallCounts_areCountedOnce() {
+        // given
+        var sketch = new HyperLogLog(12);
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < 50; i++) {
+                sketch.add(Hashing.hash64("customer" + i));
+            }
+        }
+
+        // when + then
+        assertEquals(50, sketch.estimate(), 2);
+        assertEquals(0, new HyperLogLog(12).estimate());
+    }
+
+    @Test
+    void merge_overlappingShards_estimatesTheUnion() {
+        // given
+        var first = sketchOf(0, 60_000);
+        var second = sketchOf(40_000, 100_000);
+
+        // when
+        var merged = first.copy();
+        merged.merge(second);
+
+        // then
+        assertEquals(100_000, merged.estimate(), 5_000);
+        assertEquals(sketchOf(0, 100_000), merged);
+        assertThrows(IllegalArgumentException.class, () -> merged.merge(new HyperLogLog(10)));
+    }
+}
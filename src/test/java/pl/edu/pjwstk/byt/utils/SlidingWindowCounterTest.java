@@ -0,0 +1,76 @@
+package pl.edu.pjwstk.byt.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SlidingWindowCounterTest {
+
+    @Test
+    void sum_countsOnlySlotsInsideTheWindow() {
+        // given
+        var clock = new AtomicLong(1_000_000);
+        var counter = new SlidingWindowCounter(60, 1_000, 4, clock::get);
+        counter.add(5);
+        clock.addAndGet(30_000);
+        counter.add(7);
+
+        // when + then
+        assertEquals(7, counter.sum(10_000));
+        assertEquals(12, counter.sum(60_000));
+        clock.addAndGet(45_000);
+        assertEquals(0, counter.sum(10_000));
+        assertEquals(7, counter.sum(60_000));
+    }
+
+    @Test
+    void add_afterTheRingWrapped_resetsStaleSlot() {
+        // given
+        var clock = new AtomicLong(0);
+        var counter = new SlidingWindowCounter(10, 1_000, 1, clock::get);
+        counter.add(100);
+
+        // when
+        clock.addAndGet(10_000); // same slot, next round
+        counter.add(1);
+
+        // then
+        assertEquals(1, counter.sum(10_000));
+    }
+
+    @Test
+    void add_fromManyThreads_losesNothing() throws InterruptedException {
+        // given
+        var counter = new SlidingWindowCounter(60, 1_000, 4, () -> 5_000);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    counter.increment();
+                }
+            }));
+        }
+
+        // when
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // then
+        assertEquals(800_000, counter.sum(1_000));
+        assertEquals(800_000.0, counter.rate(1_000), 1e-9);
+    }
+
+    @Test
+    void sum_windowLongerThanRing_throws() {
+        var counter = new SlidingWindowCounter(10, 1_000, 1, () -> 0);
+
+        assertThrows(IllegalArgumentException.class, () -> counter.sum(11_000));
+        assertThrows(IllegalArgumentException.class, () -> counter.add(-1));
+    }
+}
@@ -0,0 +1,77 @@
+package pl.edu.pjwstk.byt.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimingWheelTest {
+
+    @Test
+    void advance_firesTimersInDeadlineOrderAndNeverEarly() {
+        // given
+        var wheel = new TimingWheel<Long>(10, 4, 0);
+        var random = new Random(42);
+        var deadlines = new ArrayList<Long>();
+        for (int i = 0; i < 500; i++) {
+            long deadline = 1 + random.nextInt(100_000);
+            deadlines.add(deadline);
+            wheel.schedule(deadline, deadline);
+        }
+
+        // when
+        var fired = new ArrayList<Long>();
+        for (long now = 0; now <= 100_010; now += 7) {
+            long time = now;
+            wheel.advance(now, deadline -> {
+                assertTrue(deadline <= time, "fired early");
+                assertTrue(deadline > time - 17, "fired too late");
+                fired.add(deadline);
+            });
+        }
+
+        // then
+        deadlines.sort(null);
+        var sortedFired = new ArrayList<>(fired);
+        sortedFired.sort(null);
+        assertEquals(deadlines, sortedFired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancel_timerDoesNotFire() {
+        // given
+        var wheel = new TimingWheel<String>(1, 8, 0);
+        var kept = wheel.schedule("kept", 50);
+        var cancelled = wheel.schedule("cancelled", 500);
+
+        // when
+        wheel.cancel(cancelled);
+        List<String> fired = new ArrayList<>();
+        wheel.advance(1_000, fired::add);
+
+        // then
+        assertEquals(List.of("kept"), fired);
+        assertFalse(kept.isScheduled());
+        assertFalse(cancelled.isScheduled());
+    }
+
+    @Test
+    void reschedule_fromCallback_movesDeadline() {
+        // given
+        var wheel = new TimingWheel<String>(1, 8, 0);
+        var timer = wheel.schedule("cart", 10);
+        List<Long> firedAt = new ArrayList<>();
+
+        // when
+        wheel.advance(10, value -> wheel.reschedule(timer, 300));
+        wheel.advance(299, value -> firedAt.add(299L));
+        wheel.advance(300, value -> firedAt.add(300L));
+
+        // then
+        assertEquals(List.of(300L), firedAt);
+    }
+}
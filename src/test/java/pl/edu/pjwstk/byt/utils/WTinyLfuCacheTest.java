@@ -0,0 +1,90 @@
+package pl.edu.pjwstk.byt.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WTinyLfuCacheTest {
+
+    private WTinyLfuCache<Integer, String> createCache(long maximumWeight) {
+        return new WTinyLfuCache<>(maximumWeight, (int) maximumWeight, String::length);
+    }
+
+    private String readThrough(WTinyLfuCache<Integer, String> cache, int key) {
+        String value = cache.get(key);
+        if (value == null) {
+            value = "v" + key % 10;
+            cache.put(key, value);
+        }
+        return value;
+    }
+
+    @Test
+    void get_afterScanOfColdKeys_keepsHotKeys() {
+        // given
+        var cache = createCache(200);
+        for (int round = 0; round < 20; round++) {
+            for (int key = 0; key < 50; key++) {
+                readThrough(cache, key);
+            }
+        }
+
+        // when
+        for (int key = 1_000; key < 11_000; key++) {
+            readThrough(cache, key);
+        }
+
+        // then
+        int resident = 0;
+        for (int key = 0; key < 50; key++) {
+            if (cache.get(key) != null) {
+                resident++;
+            }
+        }
+        assertTrue(resident >= 45, "hot keys left: " + resident);
+    }
+
+    @Test
+    void put_manyEntries_staysWithinWeight() {
+        // given
+        var cache = createCache(100);
+
+        // when
+        for (int key = 0; key < 1_000; key++) {
+            readThrough(cache, key);
+        }
+
+        // then
+        assertTrue(cache.weightedSize() <= 100);
+        assertEquals(50, cache.size());
+        assertEquals(950, cache.getEvictionCount());
+    }
+
+    @Test
+    void put_heavierThanMaximum_isRejected() {
+        var cache = createCache(4);
+
+        assertFalse(cache.put(1, "too heavy"));
+        assertNull(cache.get(1));
+        assertEquals(0, cache.weightedSize());
+    }
+
+    @Test
+    void get_countsHitsAndMisses() {
+        // given
+        var cache = createCache(100);
+        cache.put(1, "one");
+
+        // when
+        cache.get(1);
+        cache.get(1);
+        cache.get(2);
+        cache.invalidate(1);
+        cache.get(1);
+
+        // then
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRate(), 1e-9);
+    }
+}